@@ -0,0 +1,51 @@
+package com.example.xmltoallure.benchmark;
+
+import com.example.xmltoallure.parser.XmlParserPool;
+import com.example.xmltoallure.service.ConversionLimits;
+import com.example.xmltoallure.service.ConversionMetrics;
+import com.example.xmltoallure.service.ConversionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк ConversionService.convert на синтетических XML разной формы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+
+    @Param({"MANY_SMALL", "FEW_HUGE", "MOCK_HEAVY", "Q_EVENT_HEAVY"})
+    public SyntheticXml.Shape shape;
+
+    private byte[] xml;
+    private ConversionService conversionService;
+
+    @Setup
+    public void setup() {
+        xml = SyntheticXml.generate(shape);
+        conversionService = new ConversionService(new XmlParserPool(), new ConversionMetrics(new SimpleMeterRegistry()), ConversionLimits.defaults());
+    }
+
+    @Benchmark
+    public void convert(Blackhole blackhole) throws Exception {
+        conversionService.convert(new ByteArrayInputStream(xml), "benchmark.xml", "JAICP", "Benchmark", null, "u_benchmark", blackhole::consume);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.xmltoallure.benchmark;
+
+import com.example.xmltoallure.model.Labels;
+import com.example.xmltoallure.model.ModelInterner;
+import com.example.xmltoallure.model.TestCase;
+import com.example.xmltoallure.parser.TestCaseXmlReader;
+import com.example.xmltoallure.parser.XmlElement;
+import com.example.xmltoallure.parser.XmlParserPool;
+import com.example.xmltoallure.service.TestCaseBuilder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Объем кучи, который занимают сконвертированные тест-кейсы одного файла, с дедупликацией и без нее.
+ * Без интернера каждый тест-кейс получает свой список меток, а каждый шаг - свои строки и параметры,
+ * как до появления ModelInterner. Результат - счетчик retainedBytes (байты кучи после полной сборки мусора).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class RetainedHeapBenchmark {
+
+    @Param({"MANY_SMALL", "MOCK_HEAVY", "Q_EVENT_HEAVY"})
+    public SyntheticXml.Shape shape;
+
+    @Param({"true", "false"})
+    public boolean interning;
+
+    private byte[] xml;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long retainedBytes;
+    }
+
+    @Setup
+    public void setup() {
+        xml = SyntheticXml.generate(shape);
+    }
+
+    @Benchmark
+    public List<TestCase> convert(Retained retained) throws Exception {
+        long before = usedHeapAfterGc();
+        List<TestCase> testCases = new ArrayList<>();
+        ModelInterner interner = interning ? new ModelInterner() : ModelInterner.NONE;
+        List<Labels> sharedLabels = labels();
+        new TestCaseXmlReader().read(new XmlParserPool().createReader(new ByteArrayInputStream(xml)),
+                new TestCaseXmlReader.TestCaseListener() {
+                    private TestCaseBuilder builder;
+
+                    @Override
+                    public boolean onStart(String testCaseId) {
+                        builder = new TestCaseBuilder(testCaseId, interning ? sharedLabels : labels(), interner);
+                        return true;
+                    }
+
+                    @Override
+                    public void onChild(XmlElement child) {
+                        builder.accept(child);
+                    }
+
+                    @Override
+                    public void onEnd() {
+                        testCases.add(builder.build());
+                        builder = null;
+                    }
+                });
+        retained.retainedBytes = usedHeapAfterGc() - before;
+        return testCases;
+    }
+
+    private static List<Labels> labels() {
+        List<Labels> labels = new ArrayList<>();
+        labels.add(Labels.builder().name("epic").value("JAICP").build());
+        labels.add(Labels.builder().name("feature").value("Dialogs").build());
+        labels.add(Labels.builder().name("story").value("synthetic").build());
+        labels.add(Labels.builder().name("owner").value("u_login").build());
+        return labels;
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.xmltoallure.benchmark;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Генератор синтетических XML файлов с тест-кейсами для бенчмарков.
+ */
+public final class SyntheticXml {
+
+    /**
+     * Форма генерируемого документа.
+     */
+    public enum Shape {
+        /**
+         * Много маленьких тест-кейсов: по одному вопросу с двумя ответами.
+         */
+        MANY_SMALL(5000),
+        /**
+         * Несколько огромных тест-кейсов с тысячами шагов и крупными телами запросов.
+         */
+        FEW_HUGE(5),
+        /**
+         * Тест-кейсы с сотнями моков с параметрами URL и телами ответов.
+         */
+        MOCK_HEAVY(200),
+        /**
+         * Тест-кейсы с длинными цепочками q/event, dateTime, requestData и ожидаемых результатов.
+         */
+        Q_EVENT_HEAVY(100);
+
+        private final int defaultTestCases;
+
+        Shape(int defaultTestCases) {
+            this.defaultTestCases = defaultTestCases;
+        }
+    }
+
+    private SyntheticXml() {
+    }
+
+    /**
+     * Генерирует XML документ заданной формы со стандартным для нее числом тест-кейсов.
+     * @param shape Форма документа.
+     * @return Содержимое XML в UTF-8.
+     */
+    public static byte[] generate(Shape shape) {
+        return generate(shape, shape.defaultTestCases);
+    }
+
+    /**
+     * Генерирует XML документ заданной формы.
+     * @param shape Форма документа.
+     * @param testCases Количество тест-кейсов.
+     * @return Содержимое XML в UTF-8.
+     */
+    public static byte[] generate(Shape shape, int testCases) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<test>\n");
+        switch (shape) {
+            case MANY_SMALL:
+                for (int i = 0; i < testCases; i++) {
+                    xml.append("  <test-case id=\"small-").append(i).append("\">\n");
+                    xml.append("    <q>Привет ").append(i).append("</q>\n");
+                    xml.append("    <a state=\"/start\">Здравствуйте!</a>\n");
+                    xml.append("    <a state=\"/start/menu\">Чем могу помочь?</a>\n");
+                    xml.append("  </test-case>\n");
+                }
+                break;
+            case FEW_HUGE:
+                for (int i = 0; i < testCases; i++) {
+                    xml.append("  <test-case id=\"huge-").append(i).append("\">\n");
+                    for (int j = 0; j < 2000; j++) {
+                        xml.append("    <request>").append(jsonBody(j, 40)).append("</request>\n");
+                        xml.append("    <responseData field=\"replies\">").append(jsonBody(j, 20)).append("</responseData>\n");
+                        xml.append("    <responseData field=\"data.id\">").append(j).append("</responseData>\n");
+                    }
+                    xml.append("  </test-case>\n");
+                }
+                break;
+            case MOCK_HEAVY:
+                for (int i = 0; i < testCases; i++) {
+                    xml.append("  <test-case id=\"mock-").append(i).append("\">\n");
+                    for (int j = 0; j < 100; j++) {
+                        xml.append("    <mockData>\n");
+                        xml.append("      <query method=\"get\">http://mock.local/api/${client}/orders/${order}?page=${page}</query>\n");
+                        xml.append("      <parameters><client>client-").append(i).append("</client><order>")
+                                .append(j).append("</order><page>1</page></parameters>\n");
+                        xml.append("      <response status=\"200\">").append(jsonBody(j, 15)).append("</response>\n");
+                        xml.append("    </mockData>\n");
+                    }
+                    xml.append("    <q>Где мой заказ?</q>\n");
+                    xml.append("    <a state=\"/orders\">Ваш заказ в пути</a>\n");
+                    xml.append("  </test-case>\n");
+                }
+                break;
+            case Q_EVENT_HEAVY:
+                for (int i = 0; i < testCases; i++) {
+                    xml.append("  <test-case id=\"dialog-").append(i).append("\">\n");
+                    for (int j = 0; j < 500; j++) {
+                        if (j % 10 == 0) {
+                            xml.append("    <dateTime>2024-01-").append(10 + j % 20).append(" 10:00:00</dateTime>\n");
+                            xml.append("    <requestData>{\"step\": ").append(j).append("}</requestData>\n");
+                        }
+                        if (j % 2 == 0) {
+                            xml.append("    <q>Вопрос номер ").append(j).append("</q>\n");
+                        } else {
+                            xml.append("    <event>event_").append(j).append("</event>\n");
+                        }
+                        xml.append("    <a state=\"/state/").append(j % 50).append("\">Ответ ").append(j).append("</a>\n");
+                        xml.append("    <responseData field=\"data.value\"></responseData>\n");
+                    }
+                    xml.append("  </test-case>\n");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        xml.append("</test>\n");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String jsonBody(int seed, int fields) {
+        StringBuilder body = new StringBuilder("{");
+        for (int k = 0; k < fields; k++) {
+            if (k > 0) {
+                body.append(", ");
+            }
+            body.append("&quot;field").append(k).append("&quot;: &quot;value-").append(seed).append('-').append(k).append("&quot;");
+        }
+        return body.append('}').toString();
+    }
+}
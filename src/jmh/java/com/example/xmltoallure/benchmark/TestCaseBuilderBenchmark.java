@@ -0,0 +1,87 @@
+package com.example.xmltoallure.benchmark;
+
+import com.example.xmltoallure.model.Labels;
+import com.example.xmltoallure.model.TestCase;
+import com.example.xmltoallure.parser.TestCaseXmlReader;
+import com.example.xmltoallure.parser.XmlElement;
+import com.example.xmltoallure.parser.XmlParserPool;
+import com.example.xmltoallure.service.TestCaseBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк построения одного тест-кейса из уже прочитанных элементов (без парсинга XML).
+ * Время и выделение памяти (профайлер gc, gc.alloc.rate.norm) должны расти линейно с числом шагов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestCaseBuilderBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int steps;
+
+    private List<XmlElement> children;
+    private List<Labels> labels;
+
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder xml = new StringBuilder("<test><test-case id=\"builder\">");
+        for (int j = 0; j < steps; j++) {
+            if (j % 10 == 0) {
+                xml.append("<dateTime>2024-01-10 10:00:00</dateTime><requestData>{\"step\": ").append(j).append("}</requestData>");
+            }
+            xml.append(j % 2 == 0 ? "<q>Вопрос " : "<event>event_").append(j).append(j % 2 == 0 ? "</q>" : "</event>");
+            xml.append("<a state=\"/state\">Ответ ").append(j).append("</a>");
+            xml.append("<responseData field=\"data.value\">").append(j).append("</responseData>");
+        }
+        xml.append("</test-case></test>");
+
+        children = new ArrayList<>();
+        new TestCaseXmlReader().read(new XmlParserPool().createReader(new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8))),
+                new TestCaseXmlReader.TestCaseListener() {
+                    @Override
+                    public boolean onStart(String testCaseId) {
+                        return true;
+                    }
+
+                    @Override
+                    public void onChild(XmlElement child) {
+                        child.getText(); // текст материализуется заранее, чтобы измерялось только построение шагов
+                        children.add(child);
+                    }
+
+                    @Override
+                    public void onEnd() {
+                    }
+                });
+        labels = List.of(Labels.builder().name("epic").value("JAICP").build());
+    }
+
+    @Benchmark
+    public TestCase build() {
+        TestCaseBuilder builder = new TestCaseBuilder("builder", labels);
+        for (XmlElement child : children) {
+            builder.accept(child);
+        }
+        return builder.build();
+    }
+}
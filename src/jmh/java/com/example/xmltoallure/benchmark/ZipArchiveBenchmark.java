@@ -0,0 +1,102 @@
+package com.example.xmltoallure.benchmark;
+
+import com.example.xmltoallure.model.OutputFormat;
+import com.example.xmltoallure.model.TestCase;
+import com.example.xmltoallure.parser.XmlParserPool;
+import com.example.xmltoallure.service.ConversionLimits;
+import com.example.xmltoallure.service.ConversionMetrics;
+import com.example.xmltoallure.service.ConversionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.example.xmltoallure.service.ResultArchiveWriter;
+import com.example.xmltoallure.service.SerializedTestCase;
+import com.example.xmltoallure.service.TestCaseJsonWriter;
+import com.example.xmltoallure.service.ZipCompressionExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк сериализации тест-кейсов в Allure JSON и записи их в ZIP-архив (то, что делает createZipArchive).
+ * compressionThreads = 1 - последовательный ZipOutputStream, больше 1 - параллельное сжатие записей (ParallelZipWriter).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipArchiveBenchmark {
+
+    @Param({"MANY_SMALL", "MOCK_HEAVY"})
+    public SyntheticXml.Shape shape;
+
+    @Param({"true", "false"})
+    public boolean pretty;
+
+    @Param({"1", "4"})
+    public int compressionThreads;
+
+    private List<TestCase> testCases;
+    private ConversionMetrics metrics;
+    private ZipCompressionExecutor zipCompressionExecutor;
+
+    @Setup
+    public void setup() throws Exception {
+        testCases = new ArrayList<>();
+        metrics = new ConversionMetrics(new SimpleMeterRegistry());
+        zipCompressionExecutor = new ZipCompressionExecutor(compressionThreads);
+        new ConversionService(new XmlParserPool(), metrics, ConversionLimits.defaults()).convert(new ByteArrayInputStream(SyntheticXml.generate(shape)),
+                "benchmark.xml", "JAICP", "Benchmark", null, "u_benchmark", testCases::add);
+    }
+
+    @Benchmark
+    public long createZipArchive() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        TestCaseJsonWriter jsonWriter = new TestCaseJsonWriter(pretty);
+        try (ResultArchiveWriter writer = zipCompressionExecutor.open(OutputFormat.ZIP, -1, out, metrics)) {
+            for (TestCase testCase : testCases) {
+                writer.handle(new SerializedTestCase(testCase.getName(), jsonWriter.toBytes(testCase)));
+            }
+        }
+        return out.count;
+    }
+
+    @TearDown
+    public void tearDown() {
+        zipCompressionExecutor.destroy();
+    }
+
+    /**
+     * Поток, который только считает записанные байты.
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.xmltoallure.benchmark;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.parser.XmlParserPool;
+import com.example.xmltoallure.service.BatchConversionService;
+import com.example.xmltoallure.service.ConversionCache;
+import com.example.xmltoallure.service.ConversionExecutor;
+import com.example.xmltoallure.service.ConversionLimits;
+import com.example.xmltoallure.service.ConversionMetrics;
+import com.example.xmltoallure.service.ConversionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Бенчмарк распаковки ZIP-архива с XML файлами и их конвертации (processZipFile) при разном числе потоков.
+ * С включенным кешем после первой итерации все записи берутся из ConversionCache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipExtractionBenchmark {
+
+    private static final int ENTRIES = 200;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    private InMemoryMultipartFile upload;
+    private ConversionExecutor conversionExecutor;
+    private BatchConversionService batchConversionService;
+    private ConversionOptions options;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] xml = SyntheticXml.generate(SyntheticXml.Shape.Q_EVENT_HEAVY, 5);
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(zip)) {
+            for (int i = 0; i < ENTRIES; i++) {
+                zos.putNextEntry(new ZipEntry("tests/file-" + i + ".xml"));
+                zos.write(xml);
+                zos.closeEntry();
+            }
+        }
+        upload = new InMemoryMultipartFile("archive.zip", zip.toByteArray());
+        conversionExecutor = new ConversionExecutor(threads, 256L * 1024 * 1024);
+        ConversionMetrics metrics = new ConversionMetrics(new SimpleMeterRegistry());
+        ConversionLimits limits = ConversionLimits.defaults();
+        batchConversionService = new BatchConversionService(new ConversionService(new XmlParserPool(), metrics, limits), conversionExecutor,
+                new ConversionCache(cache, 256L * 1024 * 1024, "", 0), metrics, limits);
+        options = ConversionOptions.builder()
+                .epic("JAICP")
+                .feature("Benchmark")
+                .owner("u_benchmark")
+                .prettyPrinting(true)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        conversionExecutor.destroy();
+    }
+
+    @Benchmark
+    public void processZipFile(Blackhole blackhole) throws Exception {
+        batchConversionService.convert(List.of(upload), options, blackhole::consume);
+    }
+}
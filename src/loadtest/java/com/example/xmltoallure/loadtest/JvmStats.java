@@ -0,0 +1,197 @@
+package com.example.xmltoallure.loadtest;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Статистика GC и кучи JVM за измеряемый интервал: число сборок и суммарное время по каждому сборщику,
+ * максимальная длительность одной сборки, а также использование кучи, снимаемое каждые 100 мс.
+ * Приложение и генератор нагрузки работают в одной JVM, поэтому статистика GC и кучи включает и аллокации генератора.
+ * Чтобы их можно было отделить, объем аллокаций считается по потокам: потоки, имена которых начинаются с одного из
+ * префиксов клиента, относятся к генератору, остальные - к приложению. Счетчики опрашиваются вместе с кучей,
+ * поэтому аллокации потока, завершившегося в интервале, учитываются с точностью до последнего опроса.
+ */
+public class JvmStats implements AutoCloseable {
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final List<String> clientThreadPrefixes;
+    private final Map<Long, ThreadAllocation> allocations = new HashMap<>();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final Map<String, long[]> startCounts = new LinkedHashMap<>();
+    private final Map<String, Long> maxDurations = new LinkedHashMap<>();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::onNotification;
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "load-test-heap-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long heapSamples;
+    private long heapUsedSum;
+    private long heapUsedMax;
+
+    /**
+     * Создает сборщик статистики.
+     * @param clientThreadPrefixes Префиксы имен потоков генератора нагрузки.
+     */
+    public JvmStats(List<String> clientThreadPrefixes) {
+        this.clientThreadPrefixes = List.copyOf(clientThreadPrefixes);
+    }
+
+    /**
+     * Начинает сбор статистики.
+     */
+    public void start() {
+        sampleAllocations(true);
+        for (GarbageCollectorMXBean collector : collectors) {
+            startCounts.put(collector.getName(), new long[]{collector.getCollectionCount(), collector.getCollectionTime()});
+            if (collector instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(listener, null, null);
+                emitters.add(emitter);
+            }
+        }
+        sampler.scheduleAtFixedRate(this::sampleHeap, 0, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Формирует сводку по GC и куче с момента start().
+     * @return Сводка для файла результатов.
+     */
+    public synchronized Map<String, Object> summary() {
+        Map<String, Object> gc = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean collector : collectors) {
+            long[] start = startCounts.getOrDefault(collector.getName(), new long[2]);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("collections", collector.getCollectionCount() - start[0]);
+            stats.put("timeMs", collector.getCollectionTime() - start[1]);
+            stats.put("maxDurationMs", maxDurations.getOrDefault(collector.getName(), 0L));
+            gc.put(collector.getName(), stats);
+        }
+        Map<String, Object> heap = new LinkedHashMap<>();
+        heap.put("usedMeanBytes", heapSamples > 0 ? heapUsedSum / heapSamples : 0);
+        heap.put("usedMaxBytes", heapUsedMax);
+        heap.put("committedBytes", memory.getHeapMemoryUsage().getCommitted());
+        heap.put("maxBytes", memory.getHeapMemoryUsage().getMax());
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("gc", gc);
+        summary.put("heap", heap);
+        if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            sampleAllocations(false);
+            long client = 0;
+            long server = 0;
+            for (ThreadAllocation allocation : allocations.values()) {
+                if (allocation.client) {
+                    client += allocation.last - allocation.start;
+                } else {
+                    server += allocation.last - allocation.start;
+                }
+            }
+            Map<String, Object> allocated = new LinkedHashMap<>();
+            allocated.put("serverBytes", server);
+            allocated.put("clientBytes", client);
+            allocated.put("clientThreadPrefixes", clientThreadPrefixes);
+            summary.put("allocation", allocated);
+        }
+        return summary;
+    }
+
+    /**
+     * Останавливает сбор статистики.
+     */
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (Exception e) {
+                // Слушатель уже удален
+            }
+        }
+    }
+
+    private synchronized void sampleHeap() {
+        long used = memory.getHeapMemoryUsage().getUsed();
+        heapSamples++;
+        heapUsedSum += used;
+        heapUsedMax = Math.max(heapUsedMax, used);
+        sampleAllocations(false);
+    }
+
+    /**
+     * Запоминает объем аллокаций каждого живого потока.
+     * @param initial true при старте: текущие значения становятся точкой отсчета; для потоков, появившихся позже,
+     * точка отсчета - ноль.
+     */
+    private synchronized void sampleAllocations(boolean initial) {
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        ThreadInfo[] infos = threads.getThreadInfo(ids, 0);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] < 0 || infos[i] == null) {
+                // Поток завершился между запросами к ThreadMXBean
+                continue;
+            }
+            ThreadAllocation allocation = allocations.get(ids[i]);
+            if (allocation == null) {
+                allocation = new ThreadAllocation(isClient(infos[i].getThreadName()), initial ? bytes[i] : 0);
+                allocations.put(ids[i], allocation);
+            }
+            allocation.last = bytes[i];
+        }
+    }
+
+    private boolean isClient(String threadName) {
+        for (String prefix : clientThreadPrefixes) {
+            if (threadName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Объем аллокаций одного потока в начале интервала и при последнем опросе.
+     */
+    private static final class ThreadAllocation {
+
+        private final boolean client;
+        private final long start;
+        private long last;
+
+        ThreadAllocation(boolean client, long start) {
+            this.client = client;
+            this.start = start;
+            this.last = start;
+        }
+    }
+
+    private synchronized void onNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        maxDurations.merge(info.getGcName(), info.getGcInfo().getDuration(), Math::max);
+    }
+}
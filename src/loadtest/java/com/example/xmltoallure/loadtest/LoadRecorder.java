@@ -0,0 +1,105 @@
+package com.example.xmltoallure.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Собирает результаты запросов измеряемого интервала: задержки, коды ответа, ошибки и размеры ответов.
+ * Задержки хранятся целиком, поэтому перцентили точные. Потокобезопасен.
+ */
+public class LoadRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    private long responseBytes;
+    private long maxResponseBytes;
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    /**
+     * Записывает завершенный запрос.
+     * @param latencyNanos Задержка от запланированного начала запроса до получения всего ответа.
+     * @param status Код ответа HTTP.
+     * @param bytes Размер тела ответа.
+     */
+    public synchronized void record(long latencyNanos, int status, long bytes) {
+        add(latencyNanos);
+        if (status != 200) {
+            errors++;
+        }
+        responseBytes += bytes;
+        maxResponseBytes = Math.max(maxResponseBytes, bytes);
+        outcomes.merge(Integer.toString(status), 1L, Long::sum);
+    }
+
+    /**
+     * Записывает запрос, завершившийся без ответа (таймаут, обрыв соединения).
+     * @param latencyNanos Задержка до ошибки.
+     * @param error Ошибка.
+     */
+    public synchronized void recordError(long latencyNanos, Throwable error) {
+        add(latencyNanos);
+        errors++;
+        outcomes.merge(error.getClass().getSimpleName(), 1L, Long::sum);
+    }
+
+    /**
+     * Возвращает число записанных запросов.
+     * @return Число запросов.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Формирует сводку: число запросов, ошибки, пропускную способность, перцентили задержки и размер ответа.
+     * @param elapsedNanos Длительность измеряемого интервала.
+     * @return Сводка для файла результатов.
+     */
+    public synchronized Map<String, Object> summary(long elapsedNanos) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("min", millis(count > 0 ? sorted[0] : 0));
+        latency.put("mean", millis(count > 0 ? (long) Arrays.stream(sorted).average().orElse(0) : 0));
+        latency.put("p50", millis(percentile(sorted, 0.50)));
+        latency.put("p90", millis(percentile(sorted, 0.90)));
+        latency.put("p99", millis(percentile(sorted, 0.99)));
+        latency.put("p999", millis(percentile(sorted, 0.999)));
+        latency.put("max", millis(count > 0 ? sorted[count - 1] : 0));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("errors", errors);
+        summary.put("errorRate", count > 0 ? (double) errors / count : 0);
+        summary.put("throughputRps", count / seconds);
+        summary.put("latencyMs", latency);
+        summary.put("outcomes", new LinkedHashMap<>(outcomes));
+        summary.put("responseBytesMean", count > errors ? responseBytes / (count - errors) : 0);
+        summary.put("responseBytesMax", maxResponseBytes);
+        return summary;
+    }
+
+    private void add(long latencyNanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.xmltoallure.loadtest;
+
+import com.example.xmltoallure.XmlToAllureApplication;
+import com.google.gson.GsonBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочный тест эндпоинта multipart-конвертации. Запускает приложение в этой же JVM на случайном порту,
+ * генерирует синтетическую загрузку заданной формы и отправляет ее на эндпоинт в течение заданного времени:
+ * с фиксированным числом параллельных клиентов (--concurrency, замкнутая модель) или с фиксированной частотой
+ * запросов (--rate, открытая модель). В открытой модели задержка отсчитывается от запланированного момента отправки,
+ * поэтому ожидание свободного клиента при перегрузке входит в задержку. Результаты (пропускная способность,
+ * перцентили задержки, доля ошибок, статистика GC и кучи) записываются в JSON файл. Статистика GC и кучи относится
+ * ко всей JVM, то есть включает и генератор нагрузки; аллокации клиента и приложения приводятся отдельно (allocation).
+ * <pre>
+ * ./gradlew loadTest -Pargs="--concurrency=8 --duration-seconds=60 --files=20 --zip=true"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: LoadTest [options] [--server.*=... --converter.*=... --spring.*=...]",
+            "Options:",
+            "  --concurrency=<n>        Parallel clients sending requests back to back (default: 4)",
+            "  --rate=<n>               Requests per second instead of --concurrency (open model)",
+            "  --max-in-flight=<n>      Maximum parallel requests with --rate (default: 256)",
+            "  --duration-seconds=<n>   Measured duration (default: 30)",
+            "  --warmup-seconds=<n>     Warmup duration, not measured (default: 10)",
+            "  --files=<n>              XML files per request (default: 10)",
+            "  --test-cases=<n>         Test cases per file (default: 20)",
+            "  --steps=<n>              Question/answer steps per test case (default: 10)",
+            "  --mocks=<n>              Mocks per test case (default: 2)",
+            "  --body-fields=<n>        Fields in mock and request JSON bodies (default: 8)",
+            "  --zip=<boolean>          Upload one ZIP archive instead of XML files (default: false)",
+            "  --seed=<n>               Corpus random seed (default: 42)",
+            "  --endpoint=<path>        Endpoint path (default: /api/v1/convert/xml-to-allure-zip)",
+            "  --query=<query>          Query string, e.g. pretty=false&format=tar",
+            "  --timeout-seconds=<n>    Request timeout (default: 120)",
+            "  --label=<label>          Run label written to the results",
+            "  --output=<file>          Results file (default: build/reports/loadtest/results.json)",
+            "Other --server.*, --converter.* and --spring.* options are passed to the application.");
+
+    private static final List<String> APPLICATION_DEFAULTS = List.of(
+            "--server.port=0",
+            // Один генератор нагрузки - один клиент: ограничение на клиента исказило бы результат
+            "--converter.admission.max-concurrent-per-client=0",
+            // Одинаковые запросы иначе отдавались бы из кэша без конвертации
+            "--converter.cache.enabled=false");
+
+    /**
+     * Потоки генератора нагрузки: клиенты Driver, сэмплер JvmStats, обработчики ответов HttpClient и его селектор.
+     */
+    private static final List<String> CLIENT_THREAD_PREFIXES = List.of("load-test-", "HttpClient-");
+
+    private static final String JVM_STATS_NOTE = "Generator and application share one JVM: gc and heap include "
+            + "load generator activity; allocation.serverBytes and allocation.clientBytes split allocations by thread";
+
+    private LoadTest() {
+    }
+
+    /**
+     * Точка входа нагрузочного теста.
+     * @param args Аргументы командной строки.
+     * @throws Exception Если тест не удалось выполнить.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> applicationArgs = new ArrayList<>(APPLICATION_DEFAULTS);
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                System.out.println(USAGE);
+                return;
+            }
+            if (arg.startsWith("--server.") || arg.startsWith("--converter.") || arg.startsWith("--spring.")) {
+                applicationArgs.add(arg);
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                usageError("Invalid argument: " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        SyntheticCorpus.Shape shape = new SyntheticCorpus.Shape(
+                intOption(options, "files", 10),
+                intOption(options, "test-cases", 20),
+                intOption(options, "steps", 10),
+                intOption(options, "mocks", 2),
+                intOption(options, "body-fields", 8),
+                Boolean.parseBoolean(options.remove("zip")),
+                longOption(options, "seed", 42));
+        int concurrency = intOption(options, "concurrency", 4);
+        double rate = doubleOption(options, "rate", 0);
+        int maxInFlight = intOption(options, "max-in-flight", 256);
+        int durationSeconds = intOption(options, "duration-seconds", 30);
+        int warmupSeconds = intOption(options, "warmup-seconds", 10);
+        int timeoutSeconds = intOption(options, "timeout-seconds", 120);
+        String endpoint = options.getOrDefault("endpoint", "/api/v1/convert/xml-to-allure-zip");
+        options.remove("endpoint");
+        String query = options.remove("query");
+        String label = options.remove("label");
+        Path output = Paths.get(options.getOrDefault("output", "build/reports/loadtest/results.json"));
+        options.remove("output");
+        if (!options.isEmpty()) {
+            usageError("Unknown option: --" + options.keySet().iterator().next());
+        }
+        if (concurrency <= 0 || maxInFlight <= 0 || durationSeconds <= 0 || warmupSeconds < 0 || rate < 0) {
+            usageError("Concurrency, rate and durations must be positive");
+        }
+
+        List<SyntheticCorpus.UploadFile> files = SyntheticCorpus.generate(shape);
+        MultipartBody body = new MultipartBody(files);
+        long testCasesPerRequest = (long) shape.files() * shape.testCasesPerFile();
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(XmlToAllureApplication.class)
+                .run(applicationArgs.toArray(new String[0]))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + endpoint + (query != null ? "?" + query : ""));
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(httpClientExecutor())
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(timeoutSeconds))
+                    .header("Content-Type", body.getContentType())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body.getContent()))
+                    .build();
+            Driver driver = new Driver(client, request, rate > 0 ? maxInFlight : concurrency, timeoutSeconds);
+
+            System.out.printf("Load test: %s, %d bytes per request, %s for %d s after %d s warmup%n", uri,
+                    body.getContent().length, rate > 0 ? rate + " req/s" : concurrency + " clients",
+                    durationSeconds, warmupSeconds);
+            if (warmupSeconds > 0) {
+                driver.run(rate, warmupSeconds, new LoadRecorder());
+            }
+            System.gc();
+
+            LoadRecorder recorder = new LoadRecorder();
+            Map<String, Object> jvm;
+            long elapsed;
+            try (JvmStats stats = new JvmStats(CLIENT_THREAD_PREFIXES)) {
+                stats.start();
+                elapsed = driver.run(rate, durationSeconds, recorder);
+                jvm = stats.summary();
+            }
+            driver.shutdown();
+
+            Map<String, Object> config = new LinkedHashMap<>();
+            config.put("endpoint", endpoint + (query != null ? "?" + query : ""));
+            config.put("mode", rate > 0 ? "rate" : "concurrency");
+            config.put("concurrency", rate > 0 ? null : concurrency);
+            config.put("rate", rate > 0 ? rate : null);
+            config.put("maxInFlight", rate > 0 ? maxInFlight : null);
+            config.put("durationSeconds", durationSeconds);
+            config.put("warmupSeconds", warmupSeconds);
+            config.put("applicationArgs", applicationArgs);
+
+            Map<String, Object> corpus = new LinkedHashMap<>();
+            corpus.put("shape", shape);
+            corpus.put("uploadFiles", files.size());
+            corpus.put("testCasesPerRequest", testCasesPerRequest);
+            corpus.put("requestBytes", body.getContent().length);
+
+            Map<String, Object> summary = recorder.summary(elapsed);
+            long succeeded = recorder.getCount() - (long) summary.get("errors");
+
+            Map<String, Object> results = new LinkedHashMap<>();
+            results.put("label", label);
+            results.put("timestamp", Instant.now().toString());
+            results.put("config", config);
+            results.put("corpus", corpus);
+            results.putAll(summary);
+            results.put("testCasesPerSecond", succeeded * testCasesPerRequest / (elapsed / 1e9));
+            results.put("jvmStatsNote", JVM_STATS_NOTE);
+            results.putAll(jvm);
+            results.put("jvm", Map.of(
+                    "version", System.getProperty("java.version"),
+                    "processors", Runtime.getRuntime().availableProcessors(),
+                    "arguments", ManagementFactory.getRuntimeMXBean().getInputArguments()));
+
+            if (jvm.get("allocation") instanceof Map<?, ?> allocation) {
+                System.out.printf("Allocated per request: server %d bytes, client %d bytes%n",
+                        recorder.getCount() > 0 ? (long) allocation.get("serverBytes") / recorder.getCount() : 0,
+                        recorder.getCount() > 0 ? (long) allocation.get("clientBytes") / recorder.getCount() : 0);
+            }
+
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            String json = new GsonBuilder().setPrettyPrinting().serializeNulls().create().toJson(results);
+            Files.writeString(output, json, StandardCharsets.UTF_8);
+            System.out.printf("Requests: %d, errors: %d, throughput: %.1f req/s, latency p50/p99: %s/%s ms%n",
+                    recorder.getCount(), summary.get("errors"), summary.get("throughputRps"),
+                    ((Map<?, ?>) summary.get("latencyMs")).get("p50"), ((Map<?, ?>) summary.get("latencyMs")).get("p99"));
+            System.out.println("Results written to " + output.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Пул обработчиков ответов HttpClient. В отличие от пула по умолчанию, потоки не завершаются во время теста,
+     * поэтому их аллокации не теряются между опросами JvmStats.
+     * @return Пул потоков HttpClient.
+     */
+    private static ExecutorService httpClientExecutor() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1, TimeUnit.HOURS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "load-test-http-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        String value = options.remove(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            usageError("Invalid --" + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        return (int) longOption(options, name, defaultValue);
+    }
+
+    private static long longOption(Map<String, String> options, String name, long defaultValue) {
+        String value = options.remove(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            usageError("Invalid --" + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    private static void usageError(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    /**
+     * Отправляет запросы из пула потоков: в замкнутой модели каждый поток отправляет следующий запрос сразу после
+     * ответа на предыдущий, в открытой - запросы ставятся в пул по расписанию независимо от ответов.
+     */
+    private static final class Driver {
+
+        private final HttpClient client;
+        private final HttpRequest request;
+        private final int threads;
+        private final int timeoutSeconds;
+        private final ExecutorService executor;
+
+        Driver(HttpClient client, HttpRequest request, int threads, int timeoutSeconds) {
+            this.client = client;
+            this.request = request;
+            this.threads = threads;
+            this.timeoutSeconds = timeoutSeconds;
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "load-test-client");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /**
+         * Выполняет одну фазу теста и дожидается ответов на все отправленные запросы.
+         * @param rate Частота запросов в секунду (0 - замкнутая модель).
+         * @param seconds Длительность фазы.
+         * @param recorder Получатель результатов.
+         * @return Длительность фазы в наносекундах до последнего ответа.
+         * @throws InterruptedException Если ожидание было прервано.
+         */
+        long run(double rate, int seconds, LoadRecorder recorder) throws InterruptedException {
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(seconds);
+            List<Future<?>> pending = new ArrayList<>();
+            if (rate > 0) {
+                long interval = (long) (1e9 / rate);
+                for (long scheduled = start; scheduled < end; scheduled += interval) {
+                    long wait = scheduled - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    long intended = scheduled;
+                    pending.add(executor.submit(() -> send(intended, recorder)));
+                }
+            } else {
+                for (int i = 0; i < threads; i++) {
+                    pending.add(executor.submit(() -> {
+                        while (System.nanoTime() < end) {
+                            send(System.nanoTime(), recorder);
+                        }
+                    }));
+                }
+            }
+            for (Future<?> future : pending) {
+                try {
+                    future.get(timeoutSeconds + seconds + 60L, TimeUnit.SECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    throw new IllegalStateException("Load test client failed", e);
+                }
+            }
+            return System.nanoTime() - start;
+        }
+
+        private void send(long startNanos, LoadRecorder recorder) {
+            try {
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                long bytes;
+                try (InputStream in = response.body()) {
+                    bytes = in.transferTo(OutputStream.nullOutputStream());
+                }
+                recorder.record(System.nanoTime() - startNanos, response.statusCode(), bytes);
+            } catch (IOException e) {
+                recorder.recordError(System.nanoTime() - startNanos, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                recorder.recordError(System.nanoTime() - startNanos, e);
+            }
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+}
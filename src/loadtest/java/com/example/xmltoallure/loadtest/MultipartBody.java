@@ -0,0 +1,49 @@
+package com.example.xmltoallure.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Тело запроса multipart/form-data с файлами в части files, собранное один раз и отправляемое в каждом запросе.
+ */
+public final class MultipartBody {
+
+    private static final String BOUNDARY = "xml-to-allure-load-test-boundary";
+
+    private final byte[] content;
+
+    /**
+     * Собирает тело запроса.
+     * @param files Загружаемые файлы.
+     */
+    public MultipartBody(List<SyntheticCorpus.UploadFile> files) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (SyntheticCorpus.UploadFile file : files) {
+            String contentType = file.fileName().endsWith(".zip") ? "application/zip" : "application/xml";
+            body.writeBytes(("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"files\"; filename=\"" + file.fileName() + "\"\r\n"
+                    + "Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.writeBytes(file.content());
+            body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        this.content = body.toByteArray();
+    }
+
+    /**
+     * Возвращает значение заголовка Content-Type.
+     * @return Тип содержимого с границей частей.
+     */
+    public String getContentType() {
+        return "multipart/form-data; boundary=" + BOUNDARY;
+    }
+
+    /**
+     * Возвращает тело запроса.
+     * @return Байты тела.
+     */
+    public byte[] getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.xmltoallure.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Генератор синтетических загрузок для нагрузочного теста: XML файлы с тест-кейсами заданной формы,
+ * по отдельности или упакованные в один ZIP-архив. При одинаковых параметрах и seed содержимое совпадает байт в байт.
+ */
+public final class SyntheticCorpus {
+
+    /**
+     * Форма загрузки.
+     * @param files Число XML файлов в одном запросе.
+     * @param testCasesPerFile Число тест-кейсов в файле.
+     * @param stepsPerTestCase Число пар вопрос/ответ в тест-кейсе.
+     * @param mocksPerTestCase Число моков в тест-кейсе.
+     * @param bodyFields Число полей в JSON телах моков и запросов (определяет их размер).
+     * @param zip Упаковывать ли файлы в один ZIP-архив.
+     * @param seed Начальное значение генератора случайных чисел.
+     */
+    public record Shape(int files, int testCasesPerFile, int stepsPerTestCase, int mocksPerTestCase, int bodyFields,
+                        boolean zip, long seed) {
+    }
+
+    /**
+     * Загружаемый файл.
+     * @param fileName Имя файла.
+     * @param content Содержимое.
+     */
+    public record UploadFile(String fileName, byte[] content) {
+    }
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * Генерирует файлы одного запроса.
+     * @param shape Форма загрузки.
+     * @return Один ZIP-архив или XML файлы.
+     * @throws IOException Если не удалось собрать ZIP-архив.
+     */
+    public static List<UploadFile> generate(Shape shape) throws IOException {
+        Random random = new Random(shape.seed());
+        List<UploadFile> xmlFiles = new ArrayList<>(shape.files());
+        for (int i = 0; i < shape.files(); i++) {
+            xmlFiles.add(new UploadFile("load-" + i + ".xml", xml(shape, i, random)));
+        }
+        if (!shape.zip()) {
+            return xmlFiles;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(buffer)) {
+            for (UploadFile file : xmlFiles) {
+                zos.putNextEntry(new ZipEntry("tests/" + file.fileName()));
+                zos.write(file.content());
+                zos.closeEntry();
+            }
+        }
+        return List.of(new UploadFile("load.zip", buffer.toByteArray()));
+    }
+
+    private static byte[] xml(Shape shape, int fileIndex, Random random) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<test>\n");
+        for (int i = 0; i < shape.testCasesPerFile(); i++) {
+            xml.append("  <test-case id=\"load-").append(fileIndex).append('-').append(i).append("\">\n");
+            for (int j = 0; j < shape.mocksPerTestCase(); j++) {
+                xml.append("    <mockData>\n");
+                xml.append("      <query method=\"post\">http://mock.local/api/${client}/orders/${order}</query>\n");
+                xml.append("      <parameters><client>client-").append(random.nextInt(1000)).append("</client><order>")
+                        .append(j).append("</order></parameters>\n");
+                xml.append("      <response status=\"200\">").append(jsonBody(random, shape.bodyFields())).append("</response>\n");
+                xml.append("    </mockData>\n");
+            }
+            for (int j = 0; j < shape.stepsPerTestCase(); j++) {
+                if (j % 5 == 0) {
+                    xml.append("    <requestData>").append(jsonBody(random, shape.bodyFields())).append("</requestData>\n");
+                }
+                xml.append("    <q>Вопрос ").append(random.nextInt(100_000)).append("</q>\n");
+                xml.append("    <a state=\"/state/").append(j % 20).append("\">Ответ ").append(j).append("</a>\n");
+                xml.append("    <responseData field=\"replies\">ok</responseData>\n");
+            }
+            xml.append("  </test-case>\n");
+        }
+        xml.append("</test>\n");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String jsonBody(Random random, int fields) {
+        StringBuilder body = new StringBuilder("{");
+        for (int k = 0; k < fields; k++) {
+            if (k > 0) {
+                body.append(", ");
+            }
+            body.append("&quot;field").append(k).append("&quot;: &quot;").append(Long.toHexString(random.nextLong())).append("&quot;");
+        }
+        return body.append('}').toString();
+    }
+}
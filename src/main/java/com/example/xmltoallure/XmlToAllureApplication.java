@@ -2,6 +2,7 @@ package com.example.xmltoallure;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Info;
 
@@ -9,6 +10,7 @@ import io.swagger.v3.oas.annotations.info.Info;
  * Главный класс приложения для конвертации XML в Allure JSON.
  */
 @SpringBootApplication
+@EnableScheduling
 @OpenAPIDefinition(info = @Info(title = "XML to Allure Converter API", version = "1.0", description = "API for converting XML test cases to Allure JSON format"))
 public class XmlToAllureApplication {
 
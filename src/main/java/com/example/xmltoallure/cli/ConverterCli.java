@@ -0,0 +1,327 @@
+package com.example.xmltoallure.cli;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.model.ConversionReport;
+import com.example.xmltoallure.model.OutputFormat;
+import com.example.xmltoallure.parser.XmlParserPool;
+import com.example.xmltoallure.service.BatchConversionService;
+import com.example.xmltoallure.service.ConversionCache;
+import com.example.xmltoallure.service.ConversionExecutor;
+import com.example.xmltoallure.service.ConversionLimits;
+import com.example.xmltoallure.service.ConversionMetrics;
+import com.example.xmltoallure.service.ConversionService;
+import com.example.xmltoallure.service.ConversionSource;
+import com.example.xmltoallure.service.DirectoryResultWriter;
+import com.example.xmltoallure.service.IncrementalDirectoryConverter;
+import com.example.xmltoallure.service.ResultArchiveWriter;
+import com.example.xmltoallure.service.TestCaseSelector;
+import com.example.xmltoallure.service.ZipCompressionExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Пакетная конвертация из командной строки без запуска веб-приложения и Spring-контекста.
+ * Принимает XML файлы, ZIP-архивы и каталоги (обходятся рекурсивно), результат пишет в каталог allure-results
+ * или в архив, если имя выхода оканчивается на .zip или .tar.
+ * <pre>
+ * java -cp xml-to-allure.jar -Dloader.main=com.example.xmltoallure.cli.ConverterCli \
+ *     org.springframework.boot.loader.PropertiesLauncher --output=allure-results --owner=u_login tests/
+ * </pre>
+ */
+public final class ConverterCli {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: ConverterCli --output=<directory|file.zip|file.tar> [options] <file.xml|file.zip|directory>...",
+            "Options:",
+            "  --epic=<epic>            Epic label (default: JAICP)",
+            "  --feature=<feature>      Feature label",
+            "  --story=<story>          Story label (default: XML file name)",
+            "  --owner=<owner>          Owner label",
+            "  --pretty=<boolean>       Pretty-print JSON (default: true)",
+            "  --attachment-threshold=<bytes>  Move mock and request bodies of at least this size into attachments (default: 0, off)",
+            "  --shard-index=<n>        Convert only test cases of this shard, 0..shard-count-1 (default: 0)",
+            "  --shard-count=<n>        Number of shards, test cases are assigned by a hash of file name and id (default: 1)",
+            "  --include-test-cases=<regex>  Convert only test cases whose id matches",
+            "  --exclude-test-cases=<regex>  Skip test cases whose id matches",
+            "  --include-files=<regex>  Convert only XML files whose name matches",
+            "  --exclude-files=<regex>  Skip XML files whose name matches",
+            "  --threads=<n>            Conversion and zip compression threads (default: number of processors)",
+            "  --compression-level=<n>  ZIP compression level 0-9, 0 stores entries uncompressed (default: -1)",
+            "  --fsync=<boolean>        Sync result files to disk when writing a directory (default: false)",
+            "  --incremental=<boolean>  Convert only new and changed files into the output directory (default: false)",
+            "  --manifest=<file>        Incremental manifest (default: <output>/" + IncrementalDirectoryConverter.DEFAULT_MANIFEST_NAME + ")",
+            "Exit codes: 0 - all files converted, 1 - conversion error, 2 - invalid arguments,",
+            "  3 - some files failed to convert (the rest of the results are written)");
+
+    private ConverterCli() {
+    }
+
+    /**
+     * Точка входа CLI.
+     * @param args Аргументы командной строки.
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Выполняет конвертацию по аргументам командной строки.
+     * @param args Аргументы командной строки.
+     * @return Код завершения: 0 - успех, 1 - ошибка конвертации, 2 - неверные аргументы,
+     * 3 - часть файлов не удалось сконвертировать.
+     */
+    static int run(String[] args) {
+        String output = null;
+        int threads = 0;
+        int compressionLevel = -1;
+        boolean fsync = false;
+        boolean incremental = false;
+        String manifest = null;
+        List<Path> inputs = new ArrayList<>();
+        ConversionOptions options = ConversionOptions.builder()
+                .epic("JAICP")
+                .prettyPrinting(true)
+                .build();
+
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                System.out.println(USAGE);
+                return 0;
+            }
+            if (!arg.startsWith("--")) {
+                inputs.add(Paths.get(arg));
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                return usageError("Option requires a value: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "output":
+                    output = value;
+                    break;
+                case "epic":
+                    options.setEpic(value);
+                    break;
+                case "feature":
+                    options.setFeature(value);
+                    break;
+                case "story":
+                    options.setStory(value);
+                    break;
+                case "owner":
+                    options.setOwner(value);
+                    break;
+                case "pretty":
+                    options.setPrettyPrinting(Boolean.parseBoolean(value));
+                    break;
+                case "attachment-threshold":
+                    try {
+                        options.setAttachmentThreshold(Integer.parseInt(value));
+                    } catch (NumberFormatException e) {
+                        return usageError("Invalid attachment threshold: " + value);
+                    }
+                    break;
+                case "shard-index":
+                    try {
+                        options.setShardIndex(Integer.parseInt(value));
+                    } catch (NumberFormatException e) {
+                        return usageError("Invalid shard index: " + value);
+                    }
+                    break;
+                case "shard-count":
+                    try {
+                        options.setShardCount(Integer.parseInt(value));
+                    } catch (NumberFormatException e) {
+                        return usageError("Invalid shard count: " + value);
+                    }
+                    break;
+                case "include-test-cases":
+                    options.setIncludeTestCases(value);
+                    break;
+                case "exclude-test-cases":
+                    options.setExcludeTestCases(value);
+                    break;
+                case "include-files":
+                    options.setIncludeFiles(value);
+                    break;
+                case "exclude-files":
+                    options.setExcludeFiles(value);
+                    break;
+                case "threads":
+                    try {
+                        threads = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        return usageError("Invalid number of threads: " + value);
+                    }
+                    break;
+                case "compression-level":
+                    try {
+                        compressionLevel = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        compressionLevel = Integer.MIN_VALUE;
+                    }
+                    if (compressionLevel < -1 || compressionLevel > 9) {
+                        return usageError("Invalid compression level: " + value);
+                    }
+                    break;
+                case "fsync":
+                    fsync = Boolean.parseBoolean(value);
+                    break;
+                case "incremental":
+                    incremental = Boolean.parseBoolean(value);
+                    break;
+                case "manifest":
+                    manifest = value;
+                    break;
+                default:
+                    return usageError("Unknown option: " + arg);
+            }
+        }
+        if (output == null) {
+            return usageError("Missing --output");
+        }
+        if (inputs.isEmpty()) {
+            return usageError("No input files or directories");
+        }
+        if (incremental && archiveFormat(output) != null) {
+            return usageError("--incremental requires a directory output");
+        }
+        try {
+            TestCaseSelector.of(options);
+        } catch (IllegalArgumentException e) {
+            return usageError(e.getMessage());
+        }
+
+        long start = System.nanoTime();
+        ConversionExecutor executor = new ConversionExecutor(threads, 256L * 1024 * 1024);
+        ZipCompressionExecutor zipCompressionExecutor = new ZipCompressionExecutor(threads);
+        try {
+            List<Path> files = collectFiles(inputs);
+            ConversionMetrics metrics = new ConversionMetrics(new SimpleMeterRegistry());
+            ConversionLimits limits = ConversionLimits.defaults();
+            BatchConversionService batchConversionService = new BatchConversionService(
+                    new ConversionService(new XmlParserPool(), metrics, limits), executor, new ConversionCache(false, 0, "", 0), metrics, limits);
+
+            Path outputPath = Paths.get(output);
+            if (incremental) {
+                Path manifestPath = manifest != null ? Paths.get(manifest) : outputPath.resolve(IncrementalDirectoryConverter.DEFAULT_MANIFEST_NAME);
+                IncrementalDirectoryConverter.Summary summary = new IncrementalDirectoryConverter(
+                        batchConversionService, outputPath, manifestPath, fsync).convert(files, options);
+                System.out.printf("Converted %d test cases from %d changed files (%d unchanged, %d removed) into %s in %d ms%n",
+                        summary.testCases(), summary.converted(), summary.unchanged(), summary.removed(), outputPath,
+                        (System.nanoTime() - start) / 1_000_000);
+                return printFailures(summary.failed());
+            }
+
+            List<ConversionSource> sources = new ArrayList<>(files.size());
+            for (Path file : files) {
+                sources.add(ConversionSource.of(file, file.getFileName().toString()));
+            }
+            ConversionReport report;
+            OutputFormat format = archiveFormat(output);
+            if (format != null) {
+                if (outputPath.toAbsolutePath().getParent() != null) {
+                    Files.createDirectories(outputPath.toAbsolutePath().getParent());
+                }
+                try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(outputPath));
+                     ResultArchiveWriter writer = zipCompressionExecutor.open(format, compressionLevel, os, metrics)) {
+                    report = batchConversionService.convertSources(sources, options, writer);
+                    writer.writeFile(ConversionReport.FILE_NAME, BatchConversionService.toJson(report));
+                }
+            } else {
+                try (DirectoryResultWriter writer = new DirectoryResultWriter(outputPath, fsync)) {
+                    report = batchConversionService.convertSources(sources, options, writer);
+                    writer.writeFile(ConversionReport.FILE_NAME, BatchConversionService.toJson(report));
+                }
+            }
+
+            System.out.printf("Converted %d test cases from %d files into %s in %d ms%n",
+                    report.getTestCases(), sources.size(), outputPath, (System.nanoTime() - start) / 1_000_000);
+            return printFailures(report.getFailedFiles());
+        } catch (Exception e) {
+            System.err.println("Error during conversion: " + e.getMessage());
+            return 1;
+        } finally {
+            executor.destroy();
+            zipCompressionExecutor.destroy();
+        }
+    }
+
+    /**
+     * Собирает XML файлы и ZIP-архивы из аргументов; каталоги обходятся рекурсивно в порядке имен.
+     * @param inputs Файлы и каталоги.
+     * @return Список исходных файлов.
+     * @throws IOException Если файл или каталог не найден или не читается.
+     */
+    private static List<Path> collectFiles(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> walk = Files.walk(input)) {
+                    files.addAll(walk.filter(Files::isRegularFile)
+                            .filter(ConverterCli::isSupported)
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else if (Files.isRegularFile(input)) {
+                files.add(input);
+            } else {
+                throw new IOException("Input not found: " + input);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Определяет формат архива по расширению выхода.
+     * @param output Путь выхода.
+     * @return Формат архива или null, если результат пишется в каталог.
+     */
+    private static OutputFormat archiveFormat(String output) {
+        String name = output.toLowerCase();
+        if (name.endsWith(".zip")) {
+            return OutputFormat.ZIP;
+        }
+        if (name.endsWith(".tar")) {
+            return OutputFormat.TAR;
+        }
+        return null;
+    }
+
+    private static boolean isSupported(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".xml") || name.endsWith(".zip");
+    }
+
+    /**
+     * Выводит число файлов, которые не удалось сконвертировать.
+     * @param failedFiles Число таких файлов.
+     * @return Код завершения: 3, если такие файлы есть, иначе 0.
+     */
+    private static int printFailures(int failedFiles) {
+        if (failedFiles > 0) {
+            System.err.printf("%d files failed to convert and were skipped, see %s%n", failedFiles, ConversionReport.FILE_NAME);
+            return 3;
+        }
+        return 0;
+    }
+
+    private static int usageError(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        return 2;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.xmltoallure.controller;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.model.OutputFormat;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Параметры запроса на конвертацию в архив: к общим параметрам добавляются форматирование JSON,
+ * вынос тел во вложения, формат архива и уровень сжатия.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ArchiveConversionParams extends ConversionParams {
+
+    /**
+     * Форматировать ли JSON результатов с отступами.
+     */
+    @Parameter(description = "Форматировать JSON с отступами. Без форматирования архив заметно меньше.", schema = @Schema(defaultValue = "true"))
+    private boolean pretty = true;
+    /**
+     * Размер тела, начиная с которого оно выносится во вложение.
+     */
+    @Parameter(description = "Размер тела мока или запроса в байтах, начиная с которого оно выносится во вложение Allure (одинаковые тела записываются в архив один раз); 0 - не выносится.",
+            schema = @Schema(defaultValue = "0"))
+    private int attachmentThreshold;
+    /**
+     * Формат архива.
+     */
+    @Parameter(description = "Формат архива: ZIP или TAR (без сжатия). По умолчанию ZIP.", schema = @Schema(defaultValue = "ZIP"))
+    private OutputFormat format = OutputFormat.ZIP;
+    /**
+     * Уровень сжатия ZIP.
+     */
+    @Parameter(description = "Уровень сжатия ZIP от 0 (без сжатия) до 9; -1 - уровень по умолчанию. Для TAR не используется.",
+            schema = @Schema(defaultValue = "-1"))
+    private int compressionLevel = -1;
+
+    /**
+     * Проверяет уровень сжатия ZIP (-1 или от 0 до 9), параметры шардирования и регулярные выражения фильтров.
+     * @return Сообщение об ошибке или null, если параметры корректны.
+     */
+    @Override
+    public String validationError() {
+        if (compressionLevel < -1 || compressionLevel > 9) {
+            return "Invalid compressionLevel: " + compressionLevel + ", expected -1..9";
+        }
+        return super.validationError();
+    }
+
+    @Override
+    protected ConversionOptions.ConversionOptionsBuilder optionsBuilder() {
+        return super.optionsBuilder()
+                .prettyPrinting(pretty)
+                .attachmentThreshold(attachmentThreshold);
+    }
+}
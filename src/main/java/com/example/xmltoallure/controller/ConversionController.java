@@ -1,31 +1,47 @@
 package com.example.xmltoallure.controller;
 
-import com.example.xmltoallure.model.TestCase;
-import com.example.xmltoallure.service.ConversionService;
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.model.ConversionReport;
+import com.example.xmltoallure.model.OutputFormat;
+import com.example.xmltoallure.service.AdmissionRejectedException;
+import com.example.xmltoallure.service.BatchConversionService;
+import com.example.xmltoallure.service.ConversionAdmission;
+import com.example.xmltoallure.service.ConversionLimitException;
+import com.example.xmltoallure.service.ConversionMetrics;
+import com.example.xmltoallure.service.ConversionSource;
+import com.example.xmltoallure.service.NdjsonResultWriter;
+import com.example.xmltoallure.service.ResultArchiveWriter;
+import com.example.xmltoallure.service.ResultStore;
+import com.example.xmltoallure.service.ResultStoreFactory;
+import com.example.xmltoallure.service.ZipCompressionExecutor;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 /**
  * Контроллер для обработки запросов на конвертацию XML в Allure JSON.
@@ -35,124 +51,283 @@ import java.util.zip.ZipOutputStream;
 @Tag(name = "XML to Allure ZIP Converter")
 public class ConversionController {
 
-    private final ConversionService conversionService;
-    private final Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    private static final Logger log = LoggerFactory.getLogger(ConversionController.class);
+    private static final String FAILED_FILES_HEADER = "X-Conversion-Failed-Files";
+
+    private final BatchConversionService batchConversionService;
+    private final ConversionMetrics metrics;
+    private final ResultStoreFactory resultStoreFactory;
+    private final ZipCompressionExecutor zipCompressionExecutor;
+    private final ConversionAdmission admission;
 
     /**
-     * Конструктор для внедрения зависимости ConversionService.
-     * @param conversionService Сервис для конвертации.
+     * Конструктор для внедрения зависимостей.
+     * @param batchConversionService Сервис для конвертации набора файлов.
+     * @param metrics Метрики конвертации.
+     * @param resultStoreFactory Фабрика хранилищ результатов до сборки архива.
+     * @param zipCompressionExecutor Пул параллельного сжатия ZIP-архива.
+     * @param admission Допуск запросов по бюджету памяти и числу запросов клиента.
      */
     @Autowired
-    public ConversionController(ConversionService conversionService) {
-        this.conversionService = conversionService;
+    public ConversionController(BatchConversionService batchConversionService, ConversionMetrics metrics, ResultStoreFactory resultStoreFactory,
+                                ZipCompressionExecutor zipCompressionExecutor, ConversionAdmission admission) {
+        this.batchConversionService = batchConversionService;
+        this.metrics = metrics;
+        this.resultStoreFactory = resultStoreFactory;
+        this.zipCompressionExecutor = zipCompressionExecutor;
+        this.admission = admission;
     }
 
     /**
      * Конвертирует XML файлы или ZIP-архивы в один ZIP-архив с Allure JSON результатами.
      * @param files Список файлов (XML и/или ZIP) для конвертации.
-     * @param epic Epic для Allure отчета.
-     * @param feature Feature для Allure отчета.
-     * @param story Story для Allure отчета.
-     * @param owner Владелец тест-кейса.
-     * @return ResponseEntity с ZIP-архивом или сообщением об ошибке.
+     * @param params Параметры конвертации и архива.
+     * @param request HTTP-запрос (для определения клиента).
+     * @return ResponseEntity с ZIP-архивом, ошибкой 400 при неверных параметрах, 422 при превышении лимитов ZIP-архива,
+     * 429 если запрос не допущен по бюджету памяти или числу запросов клиента, или сообщением об ошибке.
+     * Файлы, которые не удалось сконвертировать, пропускаются: их список и ошибки - в conversion-report.json внутри архива,
+     * а их число - в заголовке X-Conversion-Failed-Files.
      */
     @Operation(
             summary = "Конвертирует XML файлы или ZIP-архивы в один ZIP-архив с Allure JSON результатами",
             description = "Принимает один или несколько XML файлов и/или ZIP-архивов с XML файлами и возвращает один общий ZIP-архив для импорта в Allure TestOps"
     )
-    @PostMapping(value = "/xml-to-allure-zip", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = "application/zip")
+    @PostMapping(value = "/xml-to-allure-zip", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = {"application/zip", "application/x-tar"})
     public ResponseEntity<byte[]> convertXmlToAllureZip(
             @Parameter(description = "Один или несколько XML файлов и/или ZIP-архивов для конвертации") @RequestPart("files") List<MultipartFile> files,
-            @Parameter(description = "Epic для Allure отчета. По умолчанию 'JAICP'.") @RequestParam(defaultValue = "JAICP") String epic,
-            @Parameter(description = "Feature для Allure отчета") @RequestParam(required = false) String feature,
-            @Parameter(description = "Story для Allure отчета (если не указано, используется имя файла)") @RequestParam(required = false) String story,
-            @Parameter(description = "Owner - u_логин владельца") @RequestParam(required = false) String owner) {
+            @ParameterObject @ModelAttribute ArchiveConversionParams params,
+            HttpServletRequest request) {
 
-        List<TestCase> allTestCases = new ArrayList<>();
+        String validationError = params.validationError();
+        if (validationError != null) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(errorJson(validationError).getBytes(StandardCharsets.UTF_8));
+        }
+        ConversionOptions options = params.toOptions();
+        OutputFormat format = params.getFormat();
 
-        try {
-            for (MultipartFile file : files) {
-                String originalFileName = file.getOriginalFilename();
-                if (originalFileName != null && originalFileName.toLowerCase().endsWith(".zip")) {
-                    processZipFile(file, allTestCases, epic, feature, story, owner);
-                } else if (originalFileName != null && originalFileName.toLowerCase().endsWith(".xml")) {
-                    processXmlFile(file, allTestCases, epic, feature, story, owner);
-                }
-            }
+        try (ConversionAdmission.Permit permit = admission.acquire(request, sources(files));
+             ResultStore allTestCases = resultStoreFactory.create()) {
+            ConversionReport report = batchConversionService.convert(files, options, allTestCases);
 
-            byte[] zipBytes = createZipArchive(allTestCases);
-            String outputFileName = "allure-results.zip";
+            byte[] archiveBytes = createArchive(allTestCases, report, format, params.getCompressionLevel());
 
             HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("application/zip"));
-            headers.setContentDispositionFormData("attachment", outputFileName);
+            headers.setContentType(MediaType.parseMediaType(format.getContentType()));
+            headers.setContentDispositionFormData("attachment", format.getFileName());
+            headers.set(FAILED_FILES_HEADER, Integer.toString(report.getFailedFiles()));
 
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(zipBytes);
+                    .body(archiveBytes);
 
+        } catch (AdmissionRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                    .body(errorJson(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        } catch (ConversionLimitException e) {
+            log.warn("Conversion rejected - {}", e.getMessage());
+            return ResponseEntity.unprocessableEntity().contentType(MediaType.APPLICATION_JSON)
+                    .body(limitErrorJson(e).getBytes(StandardCharsets.UTF_8));
         } catch (Exception e) {
-            e.printStackTrace();
-            String errorJson = "{\"error\":\"Error during conversion: " + e.getMessage() + "\"}";
-            return ResponseEntity.status(500).contentType(MediaType.APPLICATION_JSON).body(errorJson.getBytes(StandardCharsets.UTF_8));
+            log.error("Conversion failed", e);
+            return ResponseEntity.status(500).contentType(MediaType.APPLICATION_JSON)
+                    .body(errorJson("Error during conversion: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
         }
     }
 
-    private void processXmlFile(MultipartFile file, List<TestCase> allTestCases, String epic, String feature, String story, String owner) throws Exception {
-        String xmlContent = new String(file.getBytes(), StandardCharsets.UTF_8);
-        allTestCases.addAll(conversionService.convert(xmlContent, file.getOriginalFilename(), epic, feature, story, owner));
+    /**
+     * Потоково конвертирует XML файлы или ZIP-архивы в один ZIP-архив с Allure JSON результатами.
+     * Каждый тест-кейс записывается в архив сразу после конвертации, поэтому потребление памяти не зависит
+     * от объема загрузки, а клиент начинает получать архив до окончания обработки всех файлов.
+     * Ошибка после начала передачи ответа приводит к обрыву соединения, а не к ответу с кодом 500.
+     * Файлы, которые не удалось сконвертировать, пропускаются; отчет conversion-report.json записывается в конец архива.
+     * @param files Список файлов (XML и/или ZIP) для конвертации.
+     * @param params Параметры конвертации и архива.
+     * @param request HTTP-запрос (для определения клиента).
+     * @return ResponseEntity с потоком ZIP-архива или 429, если запрос не допущен.
+     */
+    @Operation(
+            summary = "Потоково конвертирует XML файлы или ZIP-архивы в один ZIP-архив с Allure JSON результатами",
+            description = "То же, что и /xml-to-allure-zip, но архив передается клиенту по мере конвертации тест-кейсов без буферизации в памяти"
+    )
+    @PostMapping(value = "/xml-to-allure-zip/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = {"application/zip", "application/x-tar"})
+    public ResponseEntity<StreamingResponseBody> convertXmlToAllureZipStream(
+            @Parameter(description = "Один или несколько XML файлов и/или ZIP-архивов для конвертации") @RequestPart("files") List<MultipartFile> files,
+            @ParameterObject @ModelAttribute ArchiveConversionParams params,
+            HttpServletRequest request) {
+
+        String validationError = params.validationError();
+        if (validationError != null) {
+            StreamingResponseBody error = outputStream -> outputStream.write(errorJson(validationError).getBytes(StandardCharsets.UTF_8));
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(error);
+        }
+        ConversionOptions options = params.toOptions();
+        OutputFormat format = params.getFormat();
+        int compressionLevel = params.getCompressionLevel();
+        ConversionAdmission.Permit permit;
+        try {
+            permit = admission.acquire(request, sources(files));
+        } catch (AdmissionRejectedException e) {
+            return tooManyRequests(e);
+        }
+        releaseOnCompletion(request, permit);
+        StreamingResponseBody body = outputStream -> {
+            try (permit; ResultArchiveWriter writer = zipCompressionExecutor.open(format, compressionLevel, outputStream, metrics)) {
+                ConversionReport report = batchConversionService.convert(files, options, writer);
+                writer.writeFile(ConversionReport.FILE_NAME, BatchConversionService.toJson(report));
+            } catch (IOException e) {
+                log.error("Streaming conversion failed", e);
+                throw e;
+            } catch (Exception e) {
+                log.error("Streaming conversion failed", e);
+                throw new IOException("Error during conversion: " + e.getMessage(), e);
+            }
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(format.getContentType()));
+        headers.setContentDispositionFormData("attachment", format.getFileName());
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
     }
 
-    private void processZipFile(MultipartFile file, List<TestCase> allTestCases, String epic, String feature, String story, String owner) throws IOException {
-        try (InputStream is = file.getInputStream(); ZipInputStream zis = new ZipInputStream(is)) {
-            ZipEntry zipEntry;
-            while ((zipEntry = zis.getNextEntry()) != null) {
-                if (!zipEntry.isDirectory() && zipEntry.getName().toLowerCase().endsWith(".xml")) {
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    byte[] buffer = new byte[1024];
-                    int len;
-                    while ((len = zis.read(buffer)) > 0) {
-                        baos.write(buffer, 0, len);
-                    }
-                    String xmlContent = baos.toString(StandardCharsets.UTF_8.name());
-                    try {
-                        String fileNameOnly = new File(zipEntry.getName()).getName();
-                        allTestCases.addAll(conversionService.convert(xmlContent, fileNameOnly, epic, feature, story, owner));
-                    } catch (Exception e) {
-                        System.err.println("Failed to convert file in zip: " + zipEntry.getName() + " - " + e.getMessage());
+    /**
+     * Потоково конвертирует XML файлы или ZIP-архивы в NDJSON: по одному компактному JSON тест-кейса на строку.
+     * Строки очередного файла передаются клиенту сразу после его конвертации; медленный клиент тормозит конвертацию,
+     * а не накапливает результаты в памяти сервера. Тела моков и запросов остаются в JSON (вложения не выносятся).
+     * Файлы, которые не удалось сконвертировать, пропускаются. Последней строкой передается итог:
+     * {"conversionReport": ...} с отчетом по каждому файлу или {"error": ...}, если конвертация прервалась
+     * после начала передачи ответа (код ответа к этому моменту уже отправлен).
+     * @param files Список файлов (XML и/или ZIP) для конвертации.
+     * @param params Параметры конвертации.
+     * @param request HTTP-запрос (для определения клиента).
+     * @return ResponseEntity с потоком NDJSON или 429, если запрос не допущен.
+     */
+    @Operation(
+            summary = "Потоково конвертирует XML файлы или ZIP-архивы в NDJSON с одним тест-кейсом Allure на строку",
+            description = "Для загрузки результатов в собственное хранилище без ZIP-архива: строки передаются по мере конвертации каждого файла"
+    )
+    @PostMapping(value = "/xml-to-allure-ndjson", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> convertXmlToAllureNdjson(
+            @Parameter(description = "Один или несколько XML файлов и/или ZIP-архивов для конвертации") @RequestPart("files") List<MultipartFile> files,
+            @ParameterObject @ModelAttribute ConversionParams params,
+            HttpServletRequest request) {
+
+        String validationError = params.validationError();
+        if (validationError != null) {
+            StreamingResponseBody error = outputStream -> outputStream.write(errorJson(validationError).getBytes(StandardCharsets.UTF_8));
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(error);
+        }
+        ConversionOptions options = params.toOptions();
+        ConversionAdmission.Permit permit;
+        try {
+            permit = admission.acquire(request, sources(files));
+        } catch (AdmissionRejectedException e) {
+            return tooManyRequests(e);
+        }
+        releaseOnCompletion(request, permit);
+        StreamingResponseBody body = outputStream -> {
+            try (permit; NdjsonResultWriter writer = new NdjsonResultWriter(outputStream)) {
+                try {
+                    ConversionReport report = batchConversionService.convert(files, options, writer);
+                    if (report.getFailedFiles() > 0) {
+                        log.warn("NDJSON conversion skipped {} of {} files", report.getFailedFiles(), report.getTotalFiles());
                     }
+                    writer.writeReport(report);
+                } catch (ConversionLimitException e) {
+                    log.warn("NDJSON conversion rejected - {}", e.getMessage());
+                    writeNdjsonError(writer, limitErrorJson(e), e);
+                } catch (Exception e) {
+                    log.error("NDJSON conversion failed", e);
+                    writeNdjsonError(writer, errorJson("Error during conversion: " + e.getMessage()), e);
                 }
-                zis.closeEntry();
             }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Формирует тело ответа об ошибке превышения лимита: сообщение, имя лимита, источник и значение лимита.
+     * @param e Исключение о превышении лимита.
+     * @return JSON с описанием ошибки.
+     */
+    static String limitErrorJson(ConversionLimitException e) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", e.getMessage());
+        error.put("limit", e.getLimit().getTag());
+        error.put("source", e.getSource());
+        error.put("max", e.getMax());
+        return new Gson().toJson(error);
+    }
+
+
+    /**
+     * Записывает итоговую строку об ошибке в поток NDJSON; если клиент уже отключился, обрывает ответ.
+     * @param writer Writer потока NDJSON.
+     * @param errorJson JSON с описанием ошибки.
+     * @param cause Ошибка, прервавшая конвертацию.
+     * @throws IOException Если строку не удалось записать.
+     */
+    private static void writeNdjsonError(NdjsonResultWriter writer, String errorJson, Exception cause) throws IOException {
+        try {
+            writer.writeError(errorJson);
+        } catch (IOException e) {
+            e.addSuppressed(cause);
+            throw e;
         }
     }
 
     /**
-     * Создает ZIP-архив из списка тест-кейсов.
-     * @param testCases Список тест-кейсов.
-     * @return Массив байтов с ZIP-архивом.
+     * Освобождает разрешение допуска по завершении асинхронной обработки запроса, в том числе по таймауту,
+     * ошибке, отключению клиента или отказу пула выполнить StreamingResponseBody, когда тело ответа так и не
+     * начало записываться. Повторное закрытие разрешения внутри StreamingResponseBody ничего не делает.
+     * @param request HTTP-запрос.
+     * @param permit Разрешение допуска запроса.
+     */
+    private static void releaseOnCompletion(HttpServletRequest request, ConversionAdmission.Permit permit) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(permit, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                permit.close();
+            }
+        });
+    }
+
+    private static ResponseEntity<StreamingResponseBody> tooManyRequests(AdmissionRejectedException e) {
+        StreamingResponseBody error = outputStream -> outputStream.write(errorJson(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(error);
+    }
+
+    private static List<ConversionSource> sources(List<MultipartFile> files) {
+        return files.stream().map(ConversionSource::of).collect(Collectors.toList());
+    }
+
+    private static String errorJson(String message) {
+        return new Gson().toJson(Map.of("error", message));
+    }
+
+    /**
+     * Создает архив из сохраненных сериализованных тест-кейсов и отчета о конвертации.
+     * @param testCases Хранилище сериализованных тест-кейсов.
+     * @param report Отчет о конвертации.
+     * @param format Формат архива.
+     * @param compressionLevel Уровень сжатия ZIP.
+     * @return Массив байтов с архивом.
      * @throws IOException Если произошла ошибка ввода-вывода.
      */
-    private byte[] createZipArchive(List<TestCase> testCases) throws IOException {
+    private byte[] createArchive(ResultStore testCases, ConversionReport report, OutputFormat format, int compressionLevel) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
-            Map<String, Integer> fileNameCounts = new HashMap<>();
-            for (TestCase testCase : testCases) {
-                String baseName = testCase.getName().replaceAll("[^a-zA-Z0-9\\.\\-]", "_");
-                
-                int count = fileNameCounts.getOrDefault(baseName, 0);
-                String finalName = (count == 0) ? baseName : baseName + "-" + count;
-                fileNameCounts.put(baseName, count + 1);
-
-                String entryName = finalName + "-result.json";
-                
-                ZipEntry entry = new ZipEntry(entryName);
-                zos.putNextEntry(entry);
-                
-                String json = gson.toJson(testCase);
-                zos.write(json.getBytes(StandardCharsets.UTF_8));
-                zos.closeEntry();
-            }
+        try (ResultArchiveWriter writer = zipCompressionExecutor.open(format, compressionLevel, baos, metrics)) {
+            testCases.replay(writer);
+            writer.writeFile(ConversionReport.FILE_NAME, BatchConversionService.toJson(report));
         }
         return baos.toByteArray();
     }
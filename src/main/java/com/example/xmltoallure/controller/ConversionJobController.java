@@ -0,0 +1,145 @@
+package com.example.xmltoallure.controller;
+
+import com.example.xmltoallure.model.ConversionJobStatus;
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.model.ConversionReport;
+import com.example.xmltoallure.model.OutputFormat;
+import com.example.xmltoallure.service.ConversionJobService;
+import com.example.xmltoallure.service.JobQueueFullException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Контроллер асинхронной конвертации: создание задачи, опрос статуса, отчет о конвертации и скачивание результата.
+ */
+@RestController
+@RequestMapping("/api/v1/convert/jobs")
+@Tag(name = "XML to Allure ZIP Converter (async jobs)")
+public class ConversionJobController {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversionJobController.class);
+
+    private final ConversionJobService conversionJobService;
+
+    /**
+     * Конструктор для внедрения зависимости ConversionJobService.
+     * @param conversionJobService Сервис асинхронных задач конвертации.
+     */
+    @Autowired
+    public ConversionJobController(ConversionJobService conversionJobService) {
+        this.conversionJobService = conversionJobService;
+    }
+
+    /**
+     * Создает асинхронную задачу конвертации.
+     * @param files Список файлов (XML и/или ZIP) для конвертации.
+     * @param params Параметры конвертации и архива.
+     * @return Статус созданной задачи (202), ошибка 400 при неверном уровне сжатия, шарде или фильтре или 429, если очередь заполнена.
+     */
+    @Operation(
+            summary = "Создает асинхронную задачу конвертации XML файлов или ZIP-архивов",
+            description = "Сразу возвращает идентификатор задачи. Статус доступен по GET /api/v1/convert/jobs/{jobId}, архив - по GET /api/v1/convert/jobs/{jobId}/result"
+    )
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> submitJob(
+            @Parameter(description = "Один или несколько XML файлов и/или ZIP-архивов для конвертации") @RequestPart("files") List<MultipartFile> files,
+            @ParameterObject @ModelAttribute ArchiveConversionParams params) {
+        String validationError = params.validationError();
+        if (validationError != null) {
+            return ResponseEntity.badRequest().body(Map.of("error", validationError));
+        }
+        ConversionOptions options = params.toOptions();
+        try {
+            ConversionJobStatus status = conversionJobService.submit(files, options, params.getFormat(), params.getCompressionLevel());
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/api/v1/convert/jobs/" + status.getId())
+                    .body(status);
+        } catch (JobQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Conversion job submission failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error during job submission: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Возвращает статус задачи конвертации.
+     * @param jobId Идентификатор задачи.
+     * @return Статус задачи или 404, если задача не найдена или срок хранения истек.
+     */
+    @Operation(summary = "Возвращает статус асинхронной задачи конвертации")
+    @GetMapping(value = "/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ConversionJobStatus> getJobStatus(@PathVariable String jobId) {
+        return conversionJobService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Возвращает отчет о конвертации завершенной задачи: результат, время и число тест-кейсов по каждому файлу.
+     * @param jobId Идентификатор задачи.
+     * @return Отчет о конвертации, 409 если задача еще не завершена или завершилась ошибкой, 404 если задача не найдена.
+     */
+    @Operation(summary = "Возвращает отчет о конвертации завершенной задачи по каждому файлу")
+    @GetMapping(value = "/{jobId}/report", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getJobReport(@PathVariable String jobId) {
+        Optional<ConversionJobStatus> status = conversionJobService.getStatus(jobId);
+        if (status.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<ConversionReport> report = conversionJobService.getReport(jobId);
+        if (report.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(status.get());
+        }
+        return ResponseEntity.ok(report.get());
+    }
+
+    /**
+     * Возвращает архив с результатами завершенной задачи.
+     * @param jobId Идентификатор задачи.
+     * @return Архив в формате, выбранном при создании задачи, 409 если задача еще не завершена или завершилась ошибкой, 404 если задача не найдена.
+     */
+    @Operation(summary = "Скачивает архив с Allure JSON результатами завершенной задачи")
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<?> getJobResult(@PathVariable String jobId) {
+        Optional<ConversionJobStatus> status = conversionJobService.getStatus(jobId);
+        if (status.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<Path> result = conversionJobService.getResult(jobId);
+        if (result.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(status.get());
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        OutputFormat format = status.get().getFormat();
+        headers.setContentType(MediaType.parseMediaType(format.getContentType()));
+        headers.setContentDispositionFormData("attachment", format.getFileName());
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new FileSystemResource(result.get()));
+    }
+}
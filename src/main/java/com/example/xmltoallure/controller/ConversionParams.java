@@ -0,0 +1,109 @@
+package com.example.xmltoallure.controller;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.service.TestCaseSelector;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * Параметры запроса на конвертацию, общие для всех эндпоинтов: метки Allure, шардирование и фильтры.
+ * Связываются из параметров запроса (@ModelAttribute), значения по умолчанию заданы в полях.
+ */
+@Data
+public class ConversionParams {
+
+    private static final String DEFAULT_EPIC = "JAICP";
+
+    /**
+     * Epic для Allure отчета.
+     */
+    @Parameter(description = "Epic для Allure отчета. По умолчанию 'JAICP'.", schema = @Schema(defaultValue = DEFAULT_EPIC))
+    private String epic = DEFAULT_EPIC;
+    /**
+     * Feature для Allure отчета.
+     */
+    @Parameter(description = "Feature для Allure отчета")
+    private String feature;
+    /**
+     * Story для Allure отчета.
+     */
+    @Parameter(description = "Story для Allure отчета (если не указано, используется имя файла)")
+    private String story;
+    /**
+     * Владелец тест-кейса.
+     */
+    @Parameter(description = "Owner - u_логин владельца")
+    private String owner;
+    /**
+     * Номер шарда.
+     */
+    @Parameter(description = "Номер шарда от 0 до shardCount - 1: конвертируются только тест-кейсы, попавшие в этот шард по хешу имени файла и id.",
+            schema = @Schema(defaultValue = "0"))
+    private int shardIndex;
+    /**
+     * Число шардов.
+     */
+    @Parameter(description = "Число шардов, на которые делится конвертация; 1 - без шардирования.", schema = @Schema(defaultValue = "1"))
+    private int shardCount = 1;
+    /**
+     * Регулярное выражение для id конвертируемых тест-кейсов.
+     */
+    @Parameter(description = "Регулярное выражение для id тест-кейсов, которые нужно конвертировать")
+    private String includeTestCases;
+    /**
+     * Регулярное выражение для id пропускаемых тест-кейсов.
+     */
+    @Parameter(description = "Регулярное выражение для id тест-кейсов, которые нужно пропустить")
+    private String excludeTestCases;
+    /**
+     * Регулярное выражение для имен конвертируемых XML файлов.
+     */
+    @Parameter(description = "Регулярное выражение для имен XML файлов (в том числе внутри ZIP-архивов), которые нужно конвертировать")
+    private String includeFiles;
+    /**
+     * Регулярное выражение для имен пропускаемых XML файлов.
+     */
+    @Parameter(description = "Регулярное выражение для имен XML файлов, которые нужно пропустить")
+    private String excludeFiles;
+
+    /**
+     * Собирает параметры конвертации: JSON без отступов, тела моков и запросов не выносятся во вложения.
+     * @return Параметры конвертации.
+     */
+    public ConversionOptions toOptions() {
+        return optionsBuilder().build();
+    }
+
+    /**
+     * Проверяет параметры шардирования и регулярные выражения фильтров.
+     * @return Сообщение об ошибке или null, если параметры корректны.
+     */
+    public String validationError() {
+        try {
+            TestCaseSelector.of(toOptions());
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Заполняет построитель параметров конвертации общими параметрами запроса.
+     * @return Построитель параметров конвертации.
+     */
+    protected ConversionOptions.ConversionOptionsBuilder optionsBuilder() {
+        return ConversionOptions.builder()
+                // пустое значение, как и отсутствующее, означает epic по умолчанию
+                .epic(epic == null || epic.isEmpty() ? DEFAULT_EPIC : epic)
+                .feature(feature)
+                .story(story)
+                .owner(owner)
+                .shardIndex(shardIndex)
+                .shardCount(shardCount)
+                .includeTestCases(includeTestCases)
+                .excludeTestCases(excludeTestCases)
+                .includeFiles(includeFiles)
+                .excludeFiles(excludeFiles);
+    }
+}
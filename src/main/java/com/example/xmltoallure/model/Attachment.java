@@ -0,0 +1,24 @@
+package com.example.xmltoallure.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Модель данных для вложения шага Allure.
+ */
+@Data
+@Builder
+public class Attachment {
+    /**
+     * Имя вложения.
+     */
+    private String name;
+    /**
+     * Имя файла вложения в каталоге результатов.
+     */
+    private String source;
+    /**
+     * MIME-тип содержимого.
+     */
+    private String type;
+}
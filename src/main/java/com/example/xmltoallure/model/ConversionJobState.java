@@ -0,0 +1,23 @@
+package com.example.xmltoallure.model;
+
+/**
+ * Состояние асинхронной задачи конвертации.
+ */
+public enum ConversionJobState {
+    /**
+     * Задача ожидает свободного обработчика.
+     */
+    QUEUED,
+    /**
+     * Задача выполняется.
+     */
+    RUNNING,
+    /**
+     * Конвертация завершена, архив готов к скачиванию.
+     */
+    COMPLETED,
+    /**
+     * Конвертация завершилась с ошибкой.
+     */
+    FAILED
+}
@@ -0,0 +1,54 @@
+package com.example.xmltoallure.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Модель данных для статуса асинхронной задачи конвертации.
+ */
+@Data
+@Builder
+public class ConversionJobStatus {
+    /**
+     * Идентификатор задачи.
+     */
+    private String id;
+    /**
+     * Состояние задачи.
+     */
+    private ConversionJobState state;
+    /**
+     * Формат архива с результатами.
+     */
+    private OutputFormat format;
+    /**
+     * Количество обработанных XML файлов (включая файлы из ZIP-архивов).
+     */
+    private long filesProcessed;
+    /**
+     * Количество сконвертированных тест-кейсов.
+     */
+    private long testCasesProcessed;
+    /**
+     * Количество файлов, которые не удалось сконвертировать (известно после завершения задачи).
+     */
+    private long filesFailed;
+    /**
+     * Сообщение об ошибке, если задача завершилась с ошибкой.
+     */
+    private String error;
+    /**
+     * Время создания задачи.
+     */
+    private Instant createdAt;
+    /**
+     * Время завершения задачи.
+     */
+    private Instant finishedAt;
+    /**
+     * Время, после которого результат задачи будет удален.
+     */
+    private Instant expiresAt;
+}
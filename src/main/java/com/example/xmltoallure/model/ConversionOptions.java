@@ -0,0 +1,60 @@
+package com.example.xmltoallure.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Модель данных для параметров конвертации, общих для всех файлов запроса.
+ */
+@Data
+@Builder
+public class ConversionOptions {
+    /**
+     * Epic для Allure отчета.
+     */
+    private String epic;
+    /**
+     * Feature для Allure отчета.
+     */
+    private String feature;
+    /**
+     * Story для Allure отчета (если не указано, используется имя файла).
+     */
+    private String story;
+    /**
+     * Владелец тест-кейса.
+     */
+    private String owner;
+    /**
+     * Форматировать ли JSON результатов с отступами.
+     */
+    private boolean prettyPrinting;
+    /**
+     * Размер тела мока или запроса в байтах UTF-8, начиная с которого оно выносится во вложение; 0 - не выносится.
+     */
+    private int attachmentThreshold;
+    /**
+     * Номер шарда от 0 до shardCount - 1.
+     */
+    private int shardIndex;
+    /**
+     * Число шардов; 0 или 1 - без шардирования.
+     */
+    private int shardCount;
+    /**
+     * Регулярное выражение для id тест-кейсов, которые нужно конвертировать.
+     */
+    private String includeTestCases;
+    /**
+     * Регулярное выражение для id тест-кейсов, которые нужно пропустить.
+     */
+    private String excludeTestCases;
+    /**
+     * Регулярное выражение для имен XML файлов, которые нужно конвертировать.
+     */
+    private String includeFiles;
+    /**
+     * Регулярное выражение для имен XML файлов, которые нужно пропустить.
+     */
+    private String excludeFiles;
+}
@@ -0,0 +1,36 @@
+package com.example.xmltoallure.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Модель данных для отчета о пакетной конвертации: итоги и результат по каждому файлу.
+ * Добавляется в архив с результатами файлом conversion-report.json, который Allure игнорирует.
+ */
+@Data
+@Builder
+public class ConversionReport {
+    /**
+     * Имя файла отчета в архиве или каталоге результатов.
+     */
+    public static final String FILE_NAME = "conversion-report.json";
+
+    /**
+     * Количество обработанных файлов.
+     */
+    private int totalFiles;
+    /**
+     * Количество файлов, которые не удалось сконвертировать.
+     */
+    private int failedFiles;
+    /**
+     * Количество сконвертированных тест-кейсов.
+     */
+    private long testCases;
+    /**
+     * Результаты по файлам в порядке обработки.
+     */
+    private List<FileConversionResult> files;
+}
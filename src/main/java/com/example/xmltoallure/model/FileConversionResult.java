@@ -0,0 +1,36 @@
+package com.example.xmltoallure.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Модель данных для результата конвертации одного XML файла (в том числе записи ZIP-архива).
+ */
+@Data
+@Builder
+public class FileConversionResult {
+    /**
+     * Имя файла; для записей архива - "архив.zip!/путь/файл.xml".
+     */
+    private String fileName;
+    /**
+     * Результат конвертации.
+     */
+    private FileConversionStatus status;
+    /**
+     * Время конвертации в миллисекундах.
+     */
+    private long durationMs;
+    /**
+     * Количество сконвертированных тест-кейсов.
+     */
+    private int testCases;
+    /**
+     * Сообщение об ошибке, если файл не удалось сконвертировать.
+     */
+    private String error;
+    /**
+     * Имя превышенного лимита XML (xml_depth, xml_elements), если файл отклонен по лимиту.
+     */
+    private String limit;
+}
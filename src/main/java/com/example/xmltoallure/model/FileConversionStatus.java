@@ -0,0 +1,23 @@
+package com.example.xmltoallure.model;
+
+/**
+ * Результат конвертации одного исходного файла.
+ */
+public enum FileConversionStatus {
+    /**
+     * Файл сконвертирован.
+     */
+    CONVERTED,
+    /**
+     * Результаты взяты из кеша без повторной конвертации.
+     */
+    CACHED,
+    /**
+     * Файл не удалось сконвертировать; он пропущен, остальные файлы обработаны.
+     */
+    FAILED,
+    /**
+     * Файл не является XML или ZIP или исключен фильтром по имени файла и не обрабатывался.
+     */
+    SKIPPED
+}
@@ -1,12 +1,12 @@
 package com.example.xmltoallure.model;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
 
 /**
- * Модель данных для метки.
+ * Неизменяемая модель данных для метки; экземпляры разделяются между тест-кейсами запроса.
  */
-@Data
+@Value
 @Builder
 public class Labels {
     /**
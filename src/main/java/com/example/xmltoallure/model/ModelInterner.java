@@ -0,0 +1,107 @@
+package com.example.xmltoallure.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Канонические экземпляры повторяющихся строк, листовых шагов и параметров.
+ * Тест-кейсы одного XML файла часто содержат одинаковые ожидаемые ответы, даты, URL моков и тела запросов;
+ * с общим экземпляром такие значения хранятся в памяти один раз.
+ * <p>
+ * Возвращенные экземпляры неизменяемы (TestStep и Parameter не имеют сеттеров) и разделяются между тест-кейсами.
+ * Размер каждой таблицы ограничен, сверх лимита значения возвращаются без дедупликации.
+ * Экземпляр не является потокобезопасным, кроме NONE.
+ */
+public class ModelInterner {
+
+    /**
+     * Интернер без дедупликации: каждый вызов возвращает новый экземпляр. Потокобезопасен.
+     */
+    public static final ModelInterner NONE = new ModelInterner(0);
+
+    private static final int DEFAULT_MAX_ENTRIES = 8192;
+
+    private final int maxEntries;
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<Pair, TestStep> leafSteps = new HashMap<>();
+    private final Map<Pair, Parameter> parameters = new HashMap<>();
+
+    /**
+     * Создает интернер с лимитом по умолчанию.
+     */
+    public ModelInterner() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Создает интернер.
+     * @param maxEntries Максимальное число значений в каждой таблице; 0 - дедупликация выключена.
+     */
+    public ModelInterner(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Возвращает канонический экземпляр строки.
+     * @param value Строка или null.
+     * @return Равная строка, ранее переданная в интернер, или сама value.
+     */
+    public String string(String value) {
+        if (value == null || maxEntries == 0) {
+            return value;
+        }
+        String canonical = strings.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (strings.size() < maxEntries) {
+            strings.put(value, value);
+        }
+        return value;
+    }
+
+    /**
+     * Возвращает общий шаг без вложенных шагов и параметров.
+     * @param name Имя шага.
+     * @param status Статус шага или null.
+     * @return Шаг с заданными именем и статусом.
+     */
+    public TestStep leafStep(String name, String status) {
+        if (maxEntries == 0) {
+            return TestStep.builder().name(name).status(status).build();
+        }
+        Pair key = new Pair(name, status);
+        TestStep step = leafSteps.get(key);
+        if (step == null) {
+            step = TestStep.builder().name(string(name)).status(status).build();
+            if (leafSteps.size() < maxEntries) {
+                leafSteps.put(key, step);
+            }
+        }
+        return step;
+    }
+
+    /**
+     * Возвращает общий параметр шага.
+     * @param name Имя параметра.
+     * @param value Значение параметра.
+     * @return Параметр с заданными именем и значением.
+     */
+    public Parameter parameter(String name, String value) {
+        if (maxEntries == 0) {
+            return Parameter.builder().name(name).value(value).build();
+        }
+        Pair key = new Pair(name, value);
+        Parameter parameter = parameters.get(key);
+        if (parameter == null) {
+            parameter = Parameter.builder().name(name).value(string(value)).build();
+            if (parameters.size() < maxEntries) {
+                parameters.put(key, parameter);
+            }
+        }
+        return parameter;
+    }
+
+    private record Pair(String first, String second) {
+    }
+}
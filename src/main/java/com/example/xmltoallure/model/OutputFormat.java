@@ -0,0 +1,39 @@
+package com.example.xmltoallure.model;
+
+/**
+ * Формат архива с Allure JSON результатами.
+ */
+public enum OutputFormat {
+    /**
+     * ZIP-архив (уровень сжатия выбирается, 0 - без сжатия, записи STORED).
+     */
+    ZIP("application/zip", "zip"),
+    /**
+     * Несжатый tar-архив.
+     */
+    TAR("application/x-tar", "tar");
+
+    private final String contentType;
+    private final String extension;
+
+    OutputFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    /**
+     * Возвращает MIME-тип архива.
+     * @return MIME-тип.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Возвращает имя файла архива для скачивания.
+     * @return Имя файла, например allure-results.zip.
+     */
+    public String getFileName() {
+        return "allure-results." + extension;
+    }
+}
@@ -1,12 +1,12 @@
 package com.example.xmltoallure.model;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
 
 /**
- * Модель данных для параметра.
+ * Неизменяемая модель данных для параметра; экземпляры разделяются между шагами (см. ModelInterner).
  */
-@Data
+@Value
 @Builder
 public class Parameter {
     /**
@@ -1,15 +1,16 @@
 package com.example.xmltoallure.model;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
 
 import java.util.List;
 
 /**
- * Модель данных для шага тест-кейса.
+ * Неизменяемая модель данных для шага тест-кейса.
+ * Листовые шаги без вложенных шагов разделяются между тест-кейсами (см. ModelInterner).
  */
-@Data
-@Builder
+@Value
+@Builder(toBuilder = true)
 public class TestStep {
 
     /**
@@ -28,5 +29,9 @@ public class TestStep {
      * Список параметров.
      */
     private List<Parameter> parameters;
+    /**
+     * Список вложений.
+     */
+    private List<Attachment> attachments;
 
 }
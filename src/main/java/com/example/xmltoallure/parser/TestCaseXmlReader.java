@@ -0,0 +1,254 @@
+package com.example.xmltoallure.parser;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Потоковый (StAX) читатель элементов test-case.
+ * Не строит DOM всего документа: каждый дочерний элемент test-case передается обработчику
+ * сразу после чтения его закрывающего тега, поэтому в памяти находится только текущий дочерний элемент
+ * (и дочерние элементы вложенных test-case, которые передаются после закрытия внешнего).
+ */
+public class TestCaseXmlReader {
+
+    private static final String TEST_CASE = "test-case";
+    /**
+     * Элемент, для которого сохраняется структура вложенных элементов (query, response, parameters).
+     * Для остальных дочерних элементов test-case достаточно атрибутов и текстового содержимого.
+     */
+    private static final String MOCK_DATA = "mockData";
+
+    /**
+     * Обработчик событий test-case.
+     */
+    public interface TestCaseListener {
+        /**
+         * Вызывается после чтения открывающего тега test-case.
+         * @param testCaseId Значение атрибута id.
+         * @return true, чтобы прочитать тест-кейс; false - тест-кейс пропускается целиком: дочерние элементы
+         * не создаются, onChild и onEnd для него не вызываются.
+         * @throws Exception Если обработка завершилась с ошибкой.
+         */
+        boolean onStart(String testCaseId) throws Exception;
+
+        /**
+         * Вызывается для каждого дочернего элемента test-case в порядке документа после чтения его закрывающего тега.
+         * @param child Дочерний элемент test-case.
+         * @throws Exception Если обработка завершилась с ошибкой.
+         */
+        void onChild(XmlElement child) throws Exception;
+
+        /**
+         * Вызывается после чтения закрывающего тега test-case.
+         * @throws Exception Если обработка завершилась с ошибкой.
+         */
+        void onEnd() throws Exception;
+    }
+
+    /**
+     * Читает документ до конца и передает события каждого найденного test-case обработчику.
+     * Тест-кейсы передаются в порядке открывающих тегов, как их возвращал getElementsByTagName в прежней реализации
+     * на DOM. Вложенный test-case одновременно остается дочерним элементом внешнего и читается как отдельный
+     * тест-кейс; его дочерние элементы накапливаются и передаются обработчику после закрытия внешнего test-case.
+     * @param reader Источник StAX-событий.
+     * @param listener Обработчик событий test-case.
+     * @throws Exception Если произошла ошибка при чтении XML или в обработчике.
+     */
+    public void read(XMLStreamReader reader, TestCaseListener listener) throws Exception {
+        // Открытые test-case от внешнего к самому вложенному
+        List<Frame> open = new ArrayList<>();
+        // Вложенные test-case текущего внешнего в порядке открывающих тегов
+        List<Frame> nested = new ArrayList<>();
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT: {
+                    String name = qualifiedName(reader);
+                    for (int i = 0; i < open.size(); i++) {
+                        open.get(i).start(reader, name);
+                    }
+                    if (TEST_CASE.equals(name)) {
+                        String testCaseId = attributeValue(reader, "id");
+                        if (open.isEmpty()) {
+                            open.add(new Frame(testCaseId, !listener.onStart(testCaseId), null));
+                        } else {
+                            Frame frame = new Frame(testCaseId, false, new ArrayList<>());
+                            open.add(frame);
+                            nested.add(frame);
+                        }
+                    }
+                    break;
+                }
+                case XMLStreamConstants.END_ELEMENT: {
+                    if (open.isEmpty()) {
+                        break;
+                    }
+                    Frame innermost = open.get(open.size() - 1);
+                    if (innermost.depth == 0) {
+                        open.remove(open.size() - 1);
+                        if (open.isEmpty()) {
+                            if (!innermost.skipping) {
+                                listener.onEnd();
+                            }
+                            replay(nested, listener);
+                            nested.clear();
+                        }
+                    }
+                    for (int i = 0; i < open.size(); i++) {
+                        Frame frame = open.get(i);
+                        XmlElement child = frame.end();
+                        if (child != null) {
+                            if (frame.buffered != null) {
+                                frame.buffered.add(child);
+                            } else {
+                                listener.onChild(child);
+                            }
+                        }
+                    }
+                    break;
+                }
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE: {
+                    for (int i = 0; i < open.size(); i++) {
+                        open.get(i).text(reader);
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Передает обработчику вложенные test-case, дочерние элементы которых были накоплены при чтении внешнего.
+     */
+    private void replay(List<Frame> nested, TestCaseListener listener) throws Exception {
+        for (Frame frame : nested) {
+            if (listener.onStart(frame.testCaseId)) {
+                for (XmlElement child : frame.buffered) {
+                    listener.onChild(child);
+                }
+                listener.onEnd();
+            }
+        }
+    }
+
+    private XmlElement createElement(XMLStreamReader reader, String name) {
+        XmlElement element = new XmlElement(name);
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttribute(qualifiedAttributeName(reader, i), reader.getAttributeValue(i));
+        }
+        return element;
+    }
+
+    private String attributeValue(XMLStreamReader reader, String attributeName) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (attributeName.equals(qualifiedAttributeName(reader, i))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return "";
+    }
+
+    private String qualifiedName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        return prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+    }
+
+    private String qualifiedAttributeName(XMLStreamReader reader, int index) {
+        String prefix = reader.getAttributePrefix(index);
+        String localName = reader.getAttributeLocalName(index);
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    /**
+     * Состояние чтения одного открытого test-case.
+     */
+    private final class Frame {
+
+        private final String testCaseId;
+        /**
+         * Тест-кейс не отобран обработчиком: глубина отслеживается, дочерние элементы не создаются.
+         */
+        private final boolean skipping;
+        /**
+         * Накопленные дочерние элементы вложенного test-case; null для внешнего, элементы которого передаются сразу.
+         */
+        private final List<XmlElement> buffered;
+        private final Deque<XmlElement> path = new ArrayDeque<>();
+        private XmlElement root;
+        private boolean structured;
+        /**
+         * Глубина текущего элемента относительно test-case: 0 - сам test-case, 1 - его дочерний элемент.
+         */
+        private int depth;
+
+        Frame(String testCaseId, boolean skipping, List<XmlElement> buffered) {
+            this.testCaseId = testCaseId;
+            this.skipping = skipping;
+            this.buffered = buffered;
+        }
+
+        void start(XMLStreamReader reader, String name) {
+            depth++;
+            if (skipping) {
+                return;
+            }
+            if (depth == 1) {
+                root = createElement(reader, name);
+                structured = MOCK_DATA.equals(name);
+                path.clear();
+                path.push(root);
+            } else if (structured) {
+                XmlElement element = createElement(reader, name);
+                path.peek().addChild(element);
+                path.push(element);
+            }
+        }
+
+        /**
+         * Обрабатывает закрывающий тег элемента внутри test-case.
+         * @return Прочитанный дочерний элемент test-case, если закрыт именно он, иначе null.
+         */
+        XmlElement end() {
+            if (skipping) {
+                depth--;
+                return null;
+            }
+            if (structured && depth > 1) {
+                path.pop();
+            }
+            depth--;
+            if (depth != 0) {
+                return null;
+            }
+            XmlElement child = root;
+            root = null;
+            path.clear();
+            return child;
+        }
+
+        void text(XMLStreamReader reader) {
+            if (root == null) {
+                return;
+            }
+            if (!structured) {
+                root.appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            } else {
+                // Текст внутри mockData нужен только вложенным элементам (query, response, параметры).
+                for (XmlElement element : path) {
+                    if (element != root) {
+                        element.appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.xmltoallure.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Облегченное представление XML-элемента, прочитанного потоковым парсером.
+ * Хранит имя, атрибуты, текстовое содержимое (аналог getTextContent) и, при необходимости, дочерние элементы.
+ */
+public class XmlElement {
+
+    private final String name;
+    private Map<String, String> attributes = Collections.emptyMap();
+    private final List<XmlElement> children = new ArrayList<>();
+    private StringBuilder textBuilder;
+    private String text;
+
+    /**
+     * Создает элемент с указанным именем.
+     * @param name Имя элемента (с префиксом, если он есть).
+     */
+    public XmlElement(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Возвращает имя элемента.
+     * @return Имя элемента.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Возвращает значение атрибута.
+     * @param attributeName Имя атрибута.
+     * @return Значение атрибута или пустая строка, если атрибут отсутствует.
+     */
+    public String getAttribute(String attributeName) {
+        String value = attributes.get(attributeName);
+        return value != null ? value : "";
+    }
+
+    /**
+     * Возвращает текстовое содержимое элемента и всех его потомков.
+     * @return Текстовое содержимое.
+     */
+    public String getText() {
+        if (text == null) {
+            text = textBuilder != null ? textBuilder.toString() : "";
+            textBuilder = null;
+        }
+        return text;
+    }
+
+    /**
+     * Возвращает список дочерних элементов.
+     * @return Список дочерних элементов.
+     */
+    public List<XmlElement> getChildren() {
+        return children;
+    }
+
+    /**
+     * Ищет первый элемент-потомок с указанным именем в порядке документа (аналог getElementsByTagName(name).item(0)).
+     * @param elementName Имя элемента.
+     * @return Найденный элемент или null.
+     */
+    public XmlElement getFirstDescendant(String elementName) {
+        for (XmlElement child : children) {
+            if (elementName.equals(child.getName())) {
+                return child;
+            }
+            XmlElement found = child.getFirstDescendant(elementName);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    void setAttribute(String attributeName, String value) {
+        if (attributes.isEmpty()) {
+            attributes = new LinkedHashMap<>();
+        }
+        attributes.put(attributeName, value);
+    }
+
+    void appendText(char[] buffer, int start, int length) {
+        if (textBuilder == null) {
+            textBuilder = new StringBuilder(length);
+        }
+        textBuilder.append(buffer, start, length);
+    }
+
+    void addChild(XmlElement child) {
+        children.add(child);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.xmltoallure.service;
+
+/**
+ * Исключение, которое выбрасывается, когда запрос на конвертацию не допущен: исчерпан бюджет памяти
+ * и очередь ожидания заполнена, ожидание истекло или у клиента слишком много одновременных запросов.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final String reason;
+    private final long retryAfterSeconds;
+
+    /**
+     * Создает исключение.
+     * @param message Сообщение об ошибке.
+     * @param reason Причина отказа для метрик: client, queue_full, timeout или interrupted.
+     * @param retryAfterSeconds Через сколько секунд клиенту стоит повторить запрос.
+     */
+    public AdmissionRejectedException(String message, String reason, long retryAfterSeconds) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Возвращает причину отказа.
+     * @return Причина отказа для метрик.
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Возвращает рекомендуемую задержку перед повтором.
+     * @return Задержка в секундах для заголовка Retry-After.
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
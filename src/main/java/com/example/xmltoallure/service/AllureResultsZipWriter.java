@@ -0,0 +1,104 @@
+package com.example.xmltoallure.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Записывает сериализованные тест-кейсы в ZIP-архив с Allure JSON результатами по мере их поступления.
+ * Экземпляр хранит счетчики имен файлов (см. ResultFileNamer) и не является потокобезопасным.
+ */
+public class AllureResultsZipWriter implements ResultArchiveWriter {
+
+    private final ZipOutputStream zos;
+    private final boolean stored;
+    private final ConversionMetrics metrics;
+    private final ResultFileNamer fileNamer = new ResultFileNamer();
+
+    /**
+     * Создает writer поверх выходного потока.
+     * @param outputStream Поток, в который записывается ZIP-архив.
+     * @param metrics Метрики конвертации (время записи в архив).
+     */
+    public AllureResultsZipWriter(OutputStream outputStream, ConversionMetrics metrics) {
+        this(outputStream, Deflater.DEFAULT_COMPRESSION, metrics);
+    }
+
+    /**
+     * Создает writer поверх выходного потока с заданным уровнем сжатия.
+     * При уровне 0 записи сохраняются без сжатия (STORED), что экономит CPU на обеих сторонах.
+     * @param outputStream Поток, в который записывается ZIP-архив.
+     * @param compressionLevel Уровень сжатия от 0 до 9 или -1 (уровень по умолчанию).
+     * @param metrics Метрики конвертации (время записи в архив).
+     */
+    public AllureResultsZipWriter(OutputStream outputStream, int compressionLevel, ConversionMetrics metrics) {
+        this.zos = new ZipOutputStream(outputStream);
+        this.stored = compressionLevel == 0;
+        if (!stored) {
+            zos.setLevel(compressionLevel);
+        }
+        this.metrics = metrics;
+    }
+
+    /**
+     * Записывает тест-кейс отдельным файлом *-result.json, а перед ним - еще не записанные файлы его вложений.
+     * При совпадении имен к имени файла добавляется суффикс -1, -2 и т.д.
+     * @param result Сериализованный тест-кейс.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void handle(SerializedTestCase result) throws IOException {
+        for (AttachmentFile attachment : result.attachments()) {
+            if (fileNamer.claimAttachment(attachment.source())) {
+                writeFile(attachment.source(), attachment.content());
+            }
+        }
+        writeFile(fileNamer.next(result.name()), result.json());
+    }
+
+    /**
+     * Записывает в архив файл с заданным именем.
+     * @param name Имя файла в архиве.
+     * @param content Содержимое файла.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void writeFile(String name, byte[] content) throws IOException {
+        long start = System.nanoTime();
+        ZipEntry entry = new ZipEntry(name);
+        if (stored) {
+            // Для STORED размер и CRC должны быть известны до записи данных
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        zos.putNextEntry(entry);
+        zos.write(content);
+        zos.closeEntry();
+        metrics.recordStage(ConversionMetrics.Stage.ZIP_WRITE, System.nanoTime() - start);
+    }
+
+    /**
+     * Передает уже записанные записи архива в выходной поток.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void flush() throws IOException {
+        zos.flush();
+    }
+
+    /**
+     * Дописывает центральный каталог архива и закрывает выходной поток.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void close() throws IOException {
+        zos.close();
+    }
+}
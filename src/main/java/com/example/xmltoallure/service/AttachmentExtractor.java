@@ -0,0 +1,88 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.Attachment;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Выносит большие тела моков и запросов из результатов во вложения Allure.
+ * Файл вложения называется по SHA-256 содержимого, поэтому одинаковые тела разных тест-кейсов
+ * ссылаются на один файл, а writer архива записывает его один раз.
+ * <p>
+ * Экземпляр используется для одного XML файла и не является потокобезопасным, кроме NONE.
+ */
+public class AttachmentExtractor {
+
+    /**
+     * Экстрактор, который ничего не выносит во вложения. Потокобезопасен.
+     */
+    public static final AttachmentExtractor NONE = new AttachmentExtractor(0);
+
+    private final int threshold;
+    private final Map<String, Attachment> attachments = new HashMap<>();
+    private final List<AttachmentFile> newFiles = new ArrayList<>();
+
+    /**
+     * Создает экстрактор.
+     * @param threshold Размер тела в байтах UTF-8, начиная с которого оно выносится во вложение; 0 - не выносится.
+     */
+    public AttachmentExtractor(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Выносит тело во вложение, если оно не меньше порога.
+     * @param name Имя вложения.
+     * @param body Тело мока или запроса.
+     * @return Вложение или null, если тело остается в результате.
+     */
+    public Attachment extract(String name, String body) {
+        // Байт UTF-8 не больше трех на символ: короткие тела отсекаются без кодирования
+        if (threshold <= 0 || (long) body.length() * 3 < threshold) {
+            return null;
+        }
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        if (content.length < threshold) {
+            return null;
+        }
+        boolean json = body.startsWith("{") || body.startsWith("[");
+        String source = sha256(content) + "-attachment" + (json ? ".json" : ".txt");
+        Attachment attachment = attachments.get(source);
+        if (attachment == null || !attachment.getName().equals(name)) {
+            attachment = Attachment.builder().name(name).source(source).type(json ? "application/json" : "text/plain").build();
+            if (!attachments.containsKey(source)) {
+                newFiles.add(new AttachmentFile(source, content));
+            }
+            attachments.put(source, attachment);
+        }
+        return attachment;
+    }
+
+    /**
+     * Возвращает файлы вложений, впервые созданные с прошлого вызова.
+     * @return Список новых файлов вложений.
+     */
+    public List<AttachmentFile> drainNewFiles() {
+        if (newFiles.isEmpty()) {
+            return List.of();
+        }
+        List<AttachmentFile> files = List.copyOf(newFiles);
+        newFiles.clear();
+        return files;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.xmltoallure.service;
+
+/**
+ * Содержимое файла вложения Allure.
+ * @param source Имя файла вложения, совпадающее с полем source в результате.
+ * @param content Содержимое файла.
+ */
+public record AttachmentFile(String source, byte[] content) {
+}
@@ -0,0 +1,502 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.model.ConversionReport;
+import com.example.xmltoallure.model.FileConversionResult;
+import com.example.xmltoallure.model.FileConversionStatus;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Сервис для конвертации набора загруженных XML файлов и ZIP-архивов.
+ * Файлы конвертируются и сериализуются параллельно в ConversionExecutor, результаты передаются обработчику в исходном порядке.
+ * Уже встречавшиеся XML файлы с теми же параметрами берутся из ConversionCache без повторной конвертации.
+ * ZIP-архивы распаковываются с проверкой ConversionLimits: при превышении лимита конвертация прекращается.
+ * Файл, который не удалось сконвертировать, и поврежденный архив пропускаются, остальные файлы обрабатываются;
+ * результат по каждому файлу попадает в ConversionReport.
+ * XML файлы, исключенные фильтрами по имени, не читаются, а тест-кейсы отбираются TestCaseSelector (фильтры по id и шард).
+ */
+@Service
+public class BatchConversionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchConversionService.class);
+    private static final int MAX_INITIAL_ENTRY_BUFFER = 64 * 1024 * 1024;
+    private static final Gson REPORT_GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    private final ConversionService conversionService;
+    private final ConversionExecutor conversionExecutor;
+    private final ConversionCache conversionCache;
+    private final ConversionMetrics metrics;
+    private final ConversionLimits limits;
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     * @param conversionService Сервис для конвертации.
+     * @param conversionExecutor Пул потоков для конвертации.
+     * @param conversionCache Кеш результатов конвертации.
+     * @param metrics Метрики конвертации.
+     * @param limits Лимиты на распаковку ZIP-архивов.
+     */
+    @Autowired
+    public BatchConversionService(ConversionService conversionService, ConversionExecutor conversionExecutor,
+                                  ConversionCache conversionCache, ConversionMetrics metrics, ConversionLimits limits) {
+        this.conversionService = conversionService;
+        this.conversionExecutor = conversionExecutor;
+        this.conversionCache = conversionCache;
+        this.metrics = metrics;
+        this.limits = limits;
+    }
+
+    /**
+     * Конвертирует загруженные XML файлы и XML файлы из загруженных ZIP-архивов.
+     * @param files Список файлов (XML и/или ZIP) для конвертации.
+     * @param options Параметры конвертации.
+     * @param handler Обработчик сериализованных тест-кейсов.
+     * @return Отчет о конвертации по каждому файлу.
+     * @throws Exception Если не удалось записать результат.
+     * @throws ConversionLimitException Если ZIP-архив превышает лимиты.
+     */
+    public ConversionReport convert(List<MultipartFile> files, ConversionOptions options, ResultHandler handler) throws Exception {
+        return convertSources(files.stream().map(ConversionSource::of).collect(Collectors.toList()), options, handler);
+    }
+
+    /**
+     * Конвертирует XML файлы и XML файлы из ZIP-архивов.
+     * Порядок тест-кейсов совпадает с порядком файлов и записей архивов, как при последовательной обработке.
+     * После всех тест-кейсов очередного XML файла у обработчика вызывается flush(), в том числе для файла,
+     * который не удалось сконвертировать или который исключен фильтром имен. В отчете каждому XML файлу (и каждой XML записи архива) соответствует
+     * одна запись в том же порядке; для поврежденного архива добавляется запись с именем архива.
+     * XML файл, превысивший лимит глубины или числа элементов, получает статус FAILED с именем лимита;
+     * конвертацию всего запроса прекращают только лимиты архива (число записей, объем распаковки, степень сжатия).
+     * @param sources Список исходных файлов (XML и/или ZIP) для конвертации.
+     * @param options Параметры конвертации.
+     * @param handler Обработчик сериализованных тест-кейсов.
+     * @return Отчет о конвертации по каждому файлу.
+     * @throws Exception Если не удалось записать результат.
+     * @throws ConversionLimitException Если ZIP-архив превышает лимиты.
+     * @throws IllegalArgumentException Если параметры шардирования или фильтры некорректны.
+     */
+    public ConversionReport convertSources(List<ConversionSource> sources, ConversionOptions options, ResultHandler handler) throws Exception {
+        TestCaseSelector selector = TestCaseSelector.of(options);
+        // Метки создаются один раз на запрос и разделяются всеми тест-кейсами
+        ConversionLabels labels = ConversionLabels.of(options);
+        List<FileConversionResult> files = new ArrayList<>();
+        ConversionExecutor.OrderedBatch batch = conversionExecutor.newBatch(handler);
+        try {
+            for (ConversionSource file : sources) {
+                String originalFileName = file.getFileName();
+                if (originalFileName != null && originalFileName.toLowerCase().endsWith(".zip")) {
+                    processZipFile(file, batch, options, labels, selector, files);
+                } else if (originalFileName != null && originalFileName.toLowerCase().endsWith(".xml")) {
+                    processXmlFile(file, batch, options, labels, selector, files);
+                } else {
+                    files.add(FileConversionResult.builder().fileName(originalFileName).status(FileConversionStatus.SKIPPED).build());
+                }
+            }
+            batch.finish();
+        } finally {
+            batch.cancel();
+        }
+        return ConversionReport.builder()
+                .totalFiles(files.size())
+                .failedFiles((int) files.stream().filter(file -> file.getStatus() == FileConversionStatus.FAILED).count())
+                .testCases(files.stream().mapToLong(FileConversionResult::getTestCases).sum())
+                .files(files)
+                .build();
+    }
+
+    /**
+     * Сериализует отчет о конвертации в JSON (UTF-8) для записи в архив или каталог результатов.
+     * @param report Отчет о конвертации.
+     * @return Содержимое файла conversion-report.json.
+     */
+    public static byte[] toJson(ConversionReport report) {
+        return REPORT_GSON.toJson(report).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void processXmlFile(ConversionSource file, ConversionExecutor.OrderedBatch batch, ConversionOptions options,
+                                ConversionLabels labels, TestCaseSelector selector, List<FileConversionResult> report) throws Exception {
+        if (!selector.acceptsFile(file.getFileName())) {
+            skipped(file.getFileName(), batch, report);
+            return;
+        }
+        FileConversionResult fileResult = FileConversionResult.builder().fileName(file.getFileName()).build();
+        report.add(fileResult);
+        batch.submit(file.getSize(), () -> {
+            long start = System.nanoTime();
+            try {
+                String key = cacheKey(file.getFileName(), () -> {
+                    try (InputStream is = file.openStream()) {
+                        return conversionCache.key(is, file.getFileName(), options);
+                    }
+                });
+                List<SerializedTestCase> cached = cachedResults(key, file.getFileName());
+                if (cached != null) {
+                    metrics.recordFile(file.getSize(), System.nanoTime() - start, true);
+                    return completed(fileResult, FileConversionStatus.CACHED, start, cached);
+                }
+                List<SerializedTestCase> results;
+                try (InputStream is = file.openStream()) {
+                    results = convertAndSerialize(is, file.getFileName(), options, labels, selector);
+                }
+                cacheResults(key, file.getFileName(), results);
+                metrics.recordFile(file.getSize(), System.nanoTime() - start, false);
+                return completed(fileResult, FileConversionStatus.CONVERTED, start, results);
+            } catch (ConversionLimitException e) {
+                log.warn("Rejected file: {} - {}", file.getFileName(), e.getMessage());
+                metrics.recordFailedFile(e);
+                return rejected(fileResult, start, e);
+            } catch (Exception e) {
+                log.warn("Failed to convert file: {} - {}", file.getFileName(), e.getMessage());
+                metrics.recordFailedFile(e);
+                return failed(fileResult, start, e);
+            }
+        });
+    }
+
+    private void processZipFile(ConversionSource file, ConversionExecutor.OrderedBatch batch, ConversionOptions options,
+                                ConversionLabels labels, TestCaseSelector selector, List<FileConversionResult> report) throws Exception {
+        long archiveStart = System.nanoTime();
+        try (InputStream is = file.openStream();
+             CountingInputStream compressed = new CountingInputStream(is);
+             ZipInputStream zis = new ZipInputStream(compressed)) {
+            ZipEntry zipEntry;
+            long entries = 0;
+            long totalInflated = 0;
+            while ((zipEntry = nextEntry(zis, ++entries, file.getFileName())) != null) {
+                boolean xml = !zipEntry.isDirectory() && zipEntry.getName().toLowerCase().endsWith(".xml");
+                if (!xml || !selector.acceptsFile(new File(zipEntry.getName()).getName())) {
+                    if (xml) {
+                        skipped(file.getFileName() + "!/" + zipEntry.getName(), batch, report);
+                    }
+                    // Пропускаемая запись все равно распаковывается, поэтому проверяется теми же лимитами
+                    try {
+                        totalInflated += drainEntry(zis, zipEntry.getSize(), compressed, totalInflated,
+                                file.getFileName() + "!/" + zipEntry.getName());
+                    } catch (ConversionLimitException e) {
+                        log.warn("Rejected zip archive {} - {}", file.getFileName(), e.getMessage());
+                        metrics.recordFailedFile(e);
+                        throw e;
+                    }
+                } else {
+                    String entryName = zipEntry.getName();
+                    long inflateStart = System.nanoTime();
+                    EntryContent content;
+                    try {
+                        content = readEntry(zis, zipEntry.getSize(), compressed, totalInflated, file.getFileName() + "!/" + entryName);
+                    } catch (ConversionLimitException e) {
+                        log.warn("Rejected zip archive {} - {}", file.getFileName(), e.getMessage());
+                        metrics.recordFailedFile(e);
+                        throw e;
+                    }
+                    totalInflated += content.length();
+                    metrics.recordStage(ConversionMetrics.Stage.INFLATE, System.nanoTime() - inflateStart);
+                    String fileNameOnly = new File(entryName).getName();
+                    FileConversionResult fileResult = FileConversionResult.builder()
+                            .fileName(file.getFileName() + "!/" + entryName)
+                            .build();
+                    report.add(fileResult);
+                    batch.submit(content.length(), () -> {
+                        long start = System.nanoTime();
+                        try {
+                            String key = cacheKey(fileResult.getFileName(),
+                                    () -> conversionCache.key(content.bytes(), 0, content.length(), fileNameOnly, options));
+                            List<SerializedTestCase> cached = cachedResults(key, fileResult.getFileName());
+                            if (cached != null) {
+                                metrics.recordFile(content.length(), System.nanoTime() - start, true);
+                                return completed(fileResult, FileConversionStatus.CACHED, start, cached);
+                            }
+                            List<SerializedTestCase> results = convertAndSerialize(
+                                    new ByteArrayInputStream(content.bytes(), 0, content.length()), fileNameOnly, options, labels, selector);
+                            cacheResults(key, fileResult.getFileName(), results);
+                            metrics.recordFile(content.length(), System.nanoTime() - start, false);
+                            return completed(fileResult, FileConversionStatus.CONVERTED, start, results);
+                        } catch (ConversionLimitException e) {
+                            log.warn("Rejected file in zip: {} - {}", entryName, e.getMessage());
+                            metrics.recordFailedFile(e);
+                            return rejected(fileResult, start, e);
+                        } catch (Exception e) {
+                            log.warn("Failed to convert file in zip: {} - {}", entryName, e.getMessage());
+                            metrics.recordFailedFile(e);
+                            return failed(fileResult, start, e);
+                        }
+                    });
+                }
+                zis.closeEntry();
+            }
+            if (entries == 1) {
+                // ZipInputStream не отличает пустой архив от файла, который вовсе не является ZIP
+                log.warn("No entries found in zip archive {}", file.getFileName());
+                report.add(archiveFailure(file, archiveStart, "No entries found in zip archive"));
+            }
+        } catch (ZipException | EOFException e) {
+            // Записи, прочитанные до повреждения, уже поставлены в очередь и попадут в результат
+            log.warn("Failed to read zip archive {} - {}", file.getFileName(), e.getMessage());
+            metrics.recordFailedFile(e);
+            report.add(archiveFailure(file, archiveStart, "Corrupt zip archive: " + errorMessage(e)));
+        }
+    }
+
+    /**
+     * Добавляет в отчет XML файл, исключенный фильтром имен. Пустая задача ставится в очередь, чтобы flush()
+     * по-прежнему вызывался ровно один раз на каждую XML запись отчета.
+     */
+    private static void skipped(String fileName, ConversionExecutor.OrderedBatch batch, List<FileConversionResult> report)
+            throws Exception {
+        report.add(FileConversionResult.builder().fileName(fileName).status(FileConversionStatus.SKIPPED).build());
+        batch.submit(0, List::of);
+    }
+
+    /**
+     * Вычисляет ключ кеша. Ошибка кеша не должна приводить к ошибке файла: файл просто конвертируется заново.
+     * @return Ключ или null, если кеш выключен или ключ вычислить не удалось.
+     */
+    private String cacheKey(String fileName, Callable<String> key) {
+        if (!conversionCache.isEnabled()) {
+            return null;
+        }
+        try {
+            return key.call();
+        } catch (Exception e) {
+            log.warn("Failed to compute conversion cache key for {} - {}", fileName, e.toString());
+            return null;
+        }
+    }
+
+    private List<SerializedTestCase> cachedResults(String key, String fileName) {
+        if (key == null) {
+            return null;
+        }
+        try {
+            return conversionCache.get(key);
+        } catch (RuntimeException e) {
+            log.warn("Failed to read conversion cache for {} - {}", fileName, e.toString());
+            return null;
+        }
+    }
+
+    private void cacheResults(String key, String fileName, List<SerializedTestCase> results) {
+        if (key == null) {
+            return;
+        }
+        try {
+            conversionCache.put(key, results);
+        } catch (RuntimeException e) {
+            log.warn("Failed to store conversion cache for {} - {}", fileName, e.toString());
+        }
+    }
+
+    private static FileConversionResult archiveFailure(ConversionSource file, long start, String error) {
+        return FileConversionResult.builder()
+                .fileName(file.getFileName())
+                .status(FileConversionStatus.FAILED)
+                .durationMs((System.nanoTime() - start) / 1_000_000)
+                .error(error)
+                .build();
+    }
+
+    private static List<SerializedTestCase> completed(FileConversionResult fileResult, FileConversionStatus status, long start,
+                                                      List<SerializedTestCase> results) {
+        fileResult.setStatus(status);
+        fileResult.setDurationMs((System.nanoTime() - start) / 1_000_000);
+        fileResult.setTestCases(results.size());
+        return results;
+    }
+
+    private static List<SerializedTestCase> failed(FileConversionResult fileResult, long start, Exception e) {
+        fileResult.setStatus(FileConversionStatus.FAILED);
+        fileResult.setDurationMs((System.nanoTime() - start) / 1_000_000);
+        fileResult.setError(errorMessage(e));
+        return List.of();
+    }
+
+    private static List<SerializedTestCase> rejected(FileConversionResult fileResult, long start, ConversionLimitException e) {
+        fileResult.setLimit(e.getLimit().getTag());
+        return failed(fileResult, start, e);
+    }
+
+    private static String errorMessage(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    /**
+     * Конвертирует XML и сериализует каждый тест-кейс в JSON в текущем потоке.
+     * При шардировании и фильтрации имя файла результата не зависит от шарда (см. TestCaseSelector.resultName).
+     * @param is Поток с содержимым XML.
+     * @param fileName Имя файла.
+     * @param options Параметры конвертации.
+     * @param labels Метки запроса.
+     * @param selector Фильтры и шард тест-кейсов.
+     * @return Неизменяемый список сериализованных тест-кейсов.
+     * @throws Exception Если не удалось сконвертировать XML файл.
+     */
+    private List<SerializedTestCase> convertAndSerialize(InputStream is, String fileName, ConversionOptions options,
+                                                         ConversionLabels labels, TestCaseSelector selector) throws Exception {
+        TestCaseJsonWriter jsonWriter = new TestCaseJsonWriter(options.isPrettyPrinting());
+        AttachmentExtractor attachments = options.getAttachmentThreshold() > 0
+                ? new AttachmentExtractor(options.getAttachmentThreshold())
+                : AttachmentExtractor.NONE;
+        List<SerializedTestCase> results = new ArrayList<>();
+        conversionService.convert(is, fileName, labels.forFile(fileName), attachments, selector, testCase -> {
+            long start = System.nanoTime();
+            byte[] json = jsonWriter.toBytes(testCase);
+            metrics.recordStage(ConversionMetrics.Stage.SERIALIZE, System.nanoTime() - start);
+            metrics.recordBytesOut(json.length);
+            // Файлы вложений передаются с первым тест-кейсом, который на них ссылается
+            List<AttachmentFile> newAttachments = attachments.drainNewFiles();
+            for (AttachmentFile attachment : newAttachments) {
+                metrics.recordBytesOut(attachment.content().length);
+            }
+            String name = selector.isActive() ? selector.resultName(fileName, testCase.getName()) : testCase.getName();
+            results.add(new SerializedTestCase(name, json, newAttachments));
+        });
+        return List.copyOf(results);
+    }
+
+    /**
+     * Переходит к следующей записи архива, проверяя лимит на число записей.
+     * @param zis Поток ZIP-архива.
+     * @param entryNumber Номер следующей записи, начиная с 1.
+     * @param archive Имя архива.
+     * @return Следующая запись или null, если записей больше нет.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    private ZipEntry nextEntry(ZipInputStream zis, long entryNumber, String archive) throws IOException {
+        ZipEntry entry = zis.getNextEntry();
+        if (entry != null) {
+            try {
+                limits.checkEntries(entryNumber, archive);
+            } catch (ConversionLimitException e) {
+                log.warn("Rejected zip archive {} - {}", archive, e.getMessage());
+                metrics.recordFailedFile(e);
+                throw e;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Читает текущую запись архива в массив без промежуточных копий.
+     * Если размер записи известен из заголовка, массив выделяется сразу нужного размера (но не больше 64 МБ).
+     * Лимиты на размер записи, суммарный объем архива и степень сжатия проверяются после каждого чтения.
+     * @param zis Поток ZIP-архива, установленный на начало записи.
+     * @param declaredSize Размер записи из заголовка или -1.
+     * @param compressed Счетчик прочитанных сжатых байт архива.
+     * @param inflatedBefore Распаковано байт предыдущих записей архива.
+     * @param entryName Имя записи для сообщения об ошибке.
+     * @return Массив с содержимым записи и число заполненных байт.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     * @throws ConversionLimitException Если запись превышает лимиты.
+     */
+    private EntryContent readEntry(ZipInputStream zis, long declaredSize, CountingInputStream compressed,
+                                   long inflatedBefore, String entryName) throws IOException {
+        limits.checkDeclaredEntrySize(declaredSize, entryName);
+        long compressedStart = compressed.getCount();
+        // Размер из заголовка не проверен, поэтому начальный буфер ограничен; дальше он растет по мере чтения
+        int capacity = declaredSize >= 0 ? (int) Math.min(declaredSize + 1, MAX_INITIAL_ENTRY_BUFFER) : 8192;
+        byte[] buffer = new byte[Math.max(capacity, 1)];
+        int length = 0;
+        int read;
+        while ((read = zis.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+            limits.checkEntry(length, compressed.getCount() - compressedStart, inflatedBefore + length, entryName);
+            if (length == buffer.length) {
+                if (buffer.length >= Integer.MAX_VALUE - 8) {
+                    throw new IOException("Zip entry is too large");
+                }
+                buffer = Arrays.copyOf(buffer, (int) Math.min(Integer.MAX_VALUE - 8L, buffer.length * 2L));
+            }
+        }
+        return new EntryContent(buffer, length);
+    }
+
+    /**
+     * Распаковывает текущую запись архива без сохранения содержимого, проверяя те же лимиты, что и readEntry.
+     * @param zis Поток ZIP-архива, установленный на начало записи.
+     * @param declaredSize Размер записи из заголовка или -1.
+     * @param compressed Счетчик прочитанных сжатых байт архива.
+     * @param inflatedBefore Распаковано байт предыдущих записей архива.
+     * @param entryName Имя записи для сообщения об ошибке.
+     * @return Число распакованных байт записи.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     * @throws ConversionLimitException Если запись превышает лимиты.
+     */
+    private long drainEntry(ZipInputStream zis, long declaredSize, CountingInputStream compressed,
+                            long inflatedBefore, String entryName) throws IOException {
+        limits.checkDeclaredEntrySize(declaredSize, entryName);
+        long compressedStart = compressed.getCount();
+        byte[] buffer = new byte[8192];
+        long length = 0;
+        int read;
+        while ((read = zis.read(buffer, 0, buffer.length)) != -1) {
+            length += read;
+            limits.checkEntry(length, compressed.getCount() - compressedStart, inflatedBefore + length, entryName);
+        }
+        return length;
+    }
+
+    private record EntryContent(byte[] bytes, int length) {
+    }
+
+    /**
+     * Считает байты, прочитанные из исходного (сжатого) потока архива.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.xmltoallure.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Допуск запросов на конвертацию по оценке потребляемой памяти.
+ * Каждый запрос резервирует из общего бюджета байтов оценку своей стоимости: размер XML файлов и распакованный
+ * размер XML записей ZIP-архивов (по центральному каталогу), умноженный на коэффициент. Если бюджета не хватает,
+ * запрос ждет в очереди (в порядке поступления, не дольше queue-timeout), а при заполненной очереди или по истечении
+ * ожидания отклоняется. Если задан заголовок с идентификатором клиента, дополнительно ограничено число одновременных
+ * (в том числе ожидающих) запросов одного клиента. Адрес клиента для этого не используется: за балансировщиком
+ * у всех запросов он один и тот же.
+ * Запрос, оценка которого больше всего бюджета, резервирует весь бюджет и выполняется один.
+ */
+@Component
+public class ConversionAdmission implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversionAdmission.class);
+
+    private final boolean enabled;
+    private final long budgetBytes;
+    private final double memoryPerXmlByte;
+    private final int maxQueued;
+    private final long queueTimeoutNanos;
+    private final int maxConcurrentPerClient;
+    private final String clientHeader;
+    private final long retryAfterSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Deque<Object> queue = new ArrayDeque<>();
+    private final Map<String, Integer> requestsByClient = new HashMap<>();
+    private final Map<String, AtomicLong> rejections = new HashMap<>();
+    private long usedBytes;
+    private int active;
+
+    /**
+     * Создает контроль допуска.
+     * @param enabled Включен ли контроль допуска.
+     * @param budgetBytes Общий бюджет памяти в байтах (0 - половина максимального размера кучи).
+     * @param memoryPerXmlByte Оценка потребляемой памяти на байт XML.
+     * @param maxQueued Максимальное число запросов, ожидающих бюджета.
+     * @param queueTimeoutMs Максимальное время ожидания бюджета в миллисекундах.
+     * @param maxConcurrentPerClient Максимальное число одновременных запросов одного клиента (0 - без ограничения).
+     * @param clientHeader Заголовок с идентификатором клиента (пусто - число запросов клиента не ограничивается).
+     * @param retryAfterSeconds Значение заголовка Retry-After при отказе.
+     */
+    public ConversionAdmission(@Value("${converter.admission.enabled:true}") boolean enabled,
+                               @Value("${converter.admission.memory-budget-bytes:0}") long budgetBytes,
+                               @Value("${converter.admission.memory-per-xml-byte:3}") double memoryPerXmlByte,
+                               @Value("${converter.admission.max-queued:16}") int maxQueued,
+                               @Value("${converter.admission.queue-timeout-ms:30000}") long queueTimeoutMs,
+                               @Value("${converter.admission.max-concurrent-per-client:2}") int maxConcurrentPerClient,
+                               @Value("${converter.admission.client-header:}") String clientHeader,
+                               @Value("${converter.admission.retry-after-seconds:10}") long retryAfterSeconds) {
+        this.enabled = enabled;
+        this.budgetBytes = budgetBytes > 0 ? budgetBytes : Runtime.getRuntime().maxMemory() / 2;
+        this.memoryPerXmlByte = memoryPerXmlByte;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        this.maxConcurrentPerClient = maxConcurrentPerClient;
+        this.clientHeader = clientHeader;
+        this.retryAfterSeconds = retryAfterSeconds;
+        for (String reason : List.of("client", "queue_full", "timeout", "interrupted")) {
+            rejections.put(reason, new AtomicLong());
+        }
+    }
+
+    /**
+     * Допускает запрос к конвертации: резервирует оценку его стоимости из бюджета, при необходимости дожидаясь ее.
+     * @param request HTTP-запрос, по которому определяется клиент.
+     * @param sources Загруженные файлы запроса.
+     * @return Разрешение, которое нужно закрыть после окончания конвертации.
+     * @throws AdmissionRejectedException Если запрос не допущен.
+     */
+    public Permit acquire(HttpServletRequest request, List<ConversionSource> sources) {
+        if (!enabled) {
+            return new Permit(null, 0, false);
+        }
+        return acquire(clientId(request), estimate(sources));
+    }
+
+    /**
+     * Допускает запрос с заданной оценкой стоимости.
+     * @param client Идентификатор клиента или null, если клиент неизвестен.
+     * @param estimatedBytes Оценка потребляемой памяти в байтах.
+     * @return Разрешение, которое нужно закрыть после окончания конвертации.
+     * @throws AdmissionRejectedException Если запрос не допущен.
+     */
+    public Permit acquire(String client, long estimatedBytes) {
+        long bytes = Math.max(0, Math.min(estimatedBytes, budgetBytes));
+        lock.lock();
+        try {
+            int clientRequests = client != null ? requestsByClient.getOrDefault(client, 0) : 0;
+            if (maxConcurrentPerClient > 0 && clientRequests >= maxConcurrentPerClient) {
+                throw reject("client", "Too many concurrent conversions for client " + client
+                        + ", limit is " + maxConcurrentPerClient);
+            }
+            if (!queue.isEmpty() || usedBytes + bytes > budgetBytes) {
+                if (queue.size() >= maxQueued) {
+                    throw reject("queue_full", "Conversion memory budget is exhausted and the admission queue is full");
+                }
+                incrementClient(client);
+                try {
+                    await(bytes);
+                } catch (AdmissionRejectedException e) {
+                    decrementClient(client);
+                    throw e;
+                }
+            } else {
+                incrementClient(client);
+            }
+            usedBytes += bytes;
+            active++;
+            return new Permit(client, bytes, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ждет, пока запрос окажется первым в очереди и бюджета станет достаточно. Вызывается под блокировкой.
+     */
+    private void await(long bytes) {
+        Object ticket = new Object();
+        queue.addLast(ticket);
+        long remaining = queueTimeoutNanos;
+        try {
+            while (queue.peekFirst() != ticket || usedBytes + bytes > budgetBytes) {
+                if (remaining <= 0) {
+                    throw reject("timeout", "Timed out waiting for conversion memory budget");
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("interrupted", "Interrupted while waiting for conversion memory budget");
+        } finally {
+            queue.remove(ticket);
+            // Следующий в очереди мог ждать только того, чтобы этот запрос ее покинул
+            released.signalAll();
+        }
+    }
+
+    private AdmissionRejectedException reject(String reason, String message) {
+        rejections.get(reason).incrementAndGet();
+        log.warn("Conversion rejected - {}", message);
+        return new AdmissionRejectedException(message, reason, retryAfterSeconds);
+    }
+
+    private void release(String client, long bytes) {
+        lock.lock();
+        try {
+            usedBytes -= bytes;
+            active--;
+            decrementClient(client);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void incrementClient(String client) {
+        if (client != null) {
+            requestsByClient.merge(client, 1, Integer::sum);
+        }
+    }
+
+    private void decrementClient(String client) {
+        if (client != null) {
+            requestsByClient.computeIfPresent(client, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Оценивает потребление памяти конвертацией загруженных файлов.
+     * Для ZIP-архива, центральный каталог которого не удалось прочитать, берется размер архива,
+     * умноженный на 10 (типичная степень сжатия XML).
+     * @param sources Загруженные файлы.
+     * @return Оценка в байтах.
+     */
+    long estimate(List<ConversionSource> sources) {
+        long xmlBytes = 0;
+        for (ConversionSource source : sources) {
+            try {
+                long size = source.getSize();
+                String name = source.getFileName() != null ? source.getFileName().toLowerCase() : "";
+                if (name.endsWith(".zip")) {
+                    long inflated = ZipEntrySizes.inflatedXmlBytes(source);
+                    xmlBytes += inflated >= 0 ? inflated : size * 10;
+                } else {
+                    xmlBytes += size;
+                }
+            } catch (IOException e) {
+                log.debug("Failed to estimate size of {} - {}", source.getFileName(), e.getMessage());
+            }
+        }
+        return (long) (xmlBytes * memoryPerXmlByte);
+    }
+
+    private String clientId(HttpServletRequest request) {
+        if (clientHeader.isEmpty()) {
+            return null;
+        }
+        String value = request.getHeader(clientHeader);
+        return value != null && !value.isBlank() ? value.trim() : null;
+    }
+
+    /**
+     * Возвращает зарезервированный объем бюджета.
+     * @return Размер в байтах.
+     */
+    public long getUsedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает число запросов, ожидающих бюджета.
+     * @return Длина очереди.
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает число допущенных и еще не завершенных запросов.
+     * @return Число запросов.
+     */
+    public int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Регистрирует метрики допуска: бюджет, его использование, длину очереди, число выполняемых запросов и отказы.
+     * @param registry Реестр метрик.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("converter.admission.budget", this, admission -> admission.budgetBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("converter.admission.budget.used", this, ConversionAdmission::getUsedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("converter.admission.queue.depth", this, ConversionAdmission::getQueueDepth)
+                .register(registry);
+        Gauge.builder("converter.admission.active", this, ConversionAdmission::getActive)
+                .register(registry);
+        rejections.forEach((reason, count) -> FunctionCounter.builder("converter.admission.rejected", count, AtomicLong::get)
+                .tag("reason", reason)
+                .register(registry));
+    }
+
+    /**
+     * Разрешение на конвертацию: при закрытии возвращает зарезервированный объем в бюджет.
+     * Повторное закрытие ничего не делает.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final String client;
+        private final long bytes;
+        private boolean closed;
+
+        private Permit(String client, long bytes, boolean reserved) {
+            this.client = client;
+            this.bytes = bytes;
+            this.closed = !reserved;
+        }
+
+        /**
+         * Возвращает зарезервированный объем в бюджет.
+         */
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            release(client, bytes);
+        }
+    }
+}
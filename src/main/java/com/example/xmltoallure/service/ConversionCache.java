@@ -0,0 +1,402 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кеш результатов конвертации с адресацией по содержимому.
+ * Ключ - SHA-256 от исходных байтов XML и параметров, влияющих на результат (имя файла, метки, форматирование, шард и фильтры тест-кейсов).
+ * Значение - уже сериализованные тест-кейсы, поэтому попадание в кеш пропускает и парсинг, и сериализацию.
+ * В памяти хранится LRU-набор записей, ограниченный суммарным размером; дополнительно можно включить дисковый уровень.
+ */
+@Component
+public class ConversionCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversionCache.class);
+
+    /**
+     * Версия формата результатов: входит в ключ, чтобы изменения конвертера не возвращали устаревшие записи.
+     */
+    private static final int FORMAT_VERSION = 2;
+    private static final String DISK_FILE_SUFFIX = ".bin";
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    private final boolean enabled;
+    private final long maxMemoryBytes;
+    private final Path diskDirectory;
+    private final long maxDiskBytes;
+
+    private final LinkedHashMap<String, CachedResult> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskBytes;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Создает кеш.
+     * @param enabled Включен ли кеш.
+     * @param maxMemoryBytes Максимальный суммарный размер записей в памяти.
+     * @param diskDirectory Каталог дискового уровня (пусто - дисковый уровень выключен).
+     * @param maxDiskBytes Максимальный суммарный размер файлов дискового уровня.
+     * @throws IOException Если не удалось подготовить каталог дискового уровня.
+     */
+    public ConversionCache(@Value("${converter.cache.enabled:true}") boolean enabled,
+                           @Value("${converter.cache.max-memory-bytes:134217728}") long maxMemoryBytes,
+                           @Value("${converter.cache.disk-directory:}") String diskDirectory,
+                           @Value("${converter.cache.max-disk-bytes:1073741824}") long maxDiskBytes) throws IOException {
+        this.enabled = enabled;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.diskDirectory = enabled && !diskDirectory.isEmpty() ? Paths.get(diskDirectory) : null;
+        if (this.diskDirectory != null) {
+            Files.createDirectories(this.diskDirectory);
+            loadDiskIndex();
+        }
+    }
+
+    /**
+     * Проверяет, включен ли кеш.
+     * @return true, если кеш включен.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Вычисляет ключ для XML, находящегося в памяти.
+     * @param content Массив с содержимым XML.
+     * @param offset Начало содержимого в массиве.
+     * @param length Длина содержимого.
+     * @param fileName Имя файла.
+     * @param options Параметры конвертации.
+     * @return Ключ кеша.
+     */
+    public String key(byte[] content, int offset, int length, String fileName, ConversionOptions options) {
+        MessageDigest digest = newDigest(fileName, options);
+        digest.update(content, offset, length);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Вычисляет ключ для XML, читая поток до конца. Поток не закрывается.
+     * @param content Поток с содержимым XML.
+     * @param fileName Имя файла.
+     * @param options Параметры конвертации.
+     * @return Ключ кеша.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    public String key(InputStream content, String fileName, ConversionOptions options) throws IOException {
+        MessageDigest digest = newDigest(fileName, options);
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Возвращает сохраненный результат конвертации.
+     * @param key Ключ кеша.
+     * @return Сериализованные тест-кейсы или null, если записи нет.
+     */
+    public List<SerializedTestCase> get(String key) {
+        synchronized (memory) {
+            CachedResult cached = memory.get(key);
+            if (cached != null) {
+                memoryHits.increment();
+                return cached.results();
+            }
+        }
+        List<SerializedTestCase> fromDisk = readFromDisk(key);
+        if (fromDisk != null) {
+            diskHits.increment();
+            putInMemory(key, fromDisk);
+            return fromDisk;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Сохраняет результат конвертации.
+     * @param key Ключ кеша.
+     * @param results Сериализованные тест-кейсы.
+     */
+    public void put(String key, List<SerializedTestCase> results) {
+        putInMemory(key, results);
+        writeToDisk(key, results);
+    }
+
+    /**
+     * Возвращает число попаданий в кеш в памяти.
+     * @return Число попаданий.
+     */
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    /**
+     * Возвращает число попаданий в дисковый уровень кеша.
+     * @return Число попаданий.
+     */
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    /**
+     * Возвращает число промахов кеша.
+     * @return Число промахов.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Возвращает число записей, вытесненных из памяти и с диска.
+     * @return Число вытеснений.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Возвращает суммарный размер записей в памяти.
+     * @return Размер в байтах.
+     */
+    public long getMemoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    /**
+     * Регистрирует метрики кеша: попадания по уровням, промахи, вытеснения и размер в памяти.
+     * @param registry Реестр метрик.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("converter.cache.requests", this, ConversionCache::getMemoryHits)
+                .tag("result", "memory_hit")
+                .register(registry);
+        FunctionCounter.builder("converter.cache.requests", this, ConversionCache::getDiskHits)
+                .tag("result", "disk_hit")
+                .register(registry);
+        FunctionCounter.builder("converter.cache.requests", this, ConversionCache::getMisses)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("converter.cache.evictions", this, ConversionCache::getEvictions)
+                .register(registry);
+        Gauge.builder("converter.cache.memory.size", this, ConversionCache::getMemoryBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private void putInMemory(String key, List<SerializedTestCase> results) {
+        long weight = weigh(results);
+        if (weight > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            CachedResult previous = memory.put(key, new CachedResult(results, weight));
+            memoryBytes += weight - (previous != null ? previous.weight() : 0);
+            Iterator<CachedResult> eldest = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().weight();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private long weigh(List<SerializedTestCase> results) {
+        long weight = ENTRY_OVERHEAD_BYTES;
+        for (SerializedTestCase result : results) {
+            weight += ENTRY_OVERHEAD_BYTES + result.json().length + 2L * result.name().length();
+            for (AttachmentFile attachment : result.attachments()) {
+                weight += ENTRY_OVERHEAD_BYTES + attachment.content().length;
+            }
+        }
+        return weight;
+    }
+
+    private List<SerializedTestCase> readFromDisk(String key) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        synchronized (diskIndex) {
+            if (diskIndex.get(key) == null) {
+                return null;
+            }
+        }
+        Path file = diskDirectory.resolve(key + DISK_FILE_SUFFIX);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupted cache entry: negative test case count " + count);
+            }
+            List<SerializedTestCase> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                results.add(SerializedTestCase.readFrom(in));
+            }
+            return results;
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            // Поврежденная запись (например, с неверной длиной) удаляется и считается промахом
+            log.warn("Failed to read conversion cache entry {} - {}", file, e.toString());
+            removeFromDisk(key);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, List<SerializedTestCase> results) {
+        if (diskDirectory == null) {
+            return;
+        }
+        Path file = diskDirectory.resolve(key + DISK_FILE_SUFFIX);
+        Path temp = diskDirectory.resolve(key + DISK_FILE_SUFFIX + ".tmp-" + Thread.currentThread().getId());
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(results.size());
+                for (SerializedTestCase result : results) {
+                    result.writeTo(out);
+                }
+            }
+            long size = Files.size(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            List<String> evicted = new ArrayList<>();
+            synchronized (diskIndex) {
+                Long previous = diskIndex.put(key, size);
+                diskBytes += size - (previous != null ? previous : 0);
+                Iterator<Map.Entry<String, Long>> eldest = diskIndex.entrySet().iterator();
+                while (diskBytes > maxDiskBytes && eldest.hasNext()) {
+                    Map.Entry<String, Long> entry = eldest.next();
+                    if (entry.getKey().equals(key)) {
+                        continue;
+                    }
+                    diskBytes -= entry.getValue();
+                    evicted.add(entry.getKey());
+                    eldest.remove();
+                }
+            }
+            for (String evictedKey : evicted) {
+                Files.deleteIfExists(diskDirectory.resolve(evictedKey + DISK_FILE_SUFFIX));
+                evictions.increment();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write conversion cache entry {} - {}", file, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // файл будет перезаписан при следующей попытке
+            }
+        }
+    }
+
+    private void removeFromDisk(String key) {
+        synchronized (diskIndex) {
+            Long size = diskIndex.remove(key);
+            if (size != null) {
+                diskBytes -= size;
+            }
+        }
+        try {
+            Files.deleteIfExists(diskDirectory.resolve(key + DISK_FILE_SUFFIX));
+        } catch (IOException e) {
+            log.warn("Failed to delete conversion cache entry {} - {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Восстанавливает индекс дискового уровня после перезапуска (старые файлы вытесняются первыми).
+     */
+    private void loadDiskIndex() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(diskDirectory, "*" + DISK_FILE_SUFFIX)) {
+            entries.forEach(files::add);
+        }
+        files.sort(Comparator.comparing(file -> file.toFile().lastModified()));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            diskIndex.put(name.substring(0, name.length() - DISK_FILE_SUFFIX.length()), size);
+            diskBytes += size;
+        }
+    }
+
+    private MessageDigest newDigest(String fileName, ConversionOptions options) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update((byte) FORMAT_VERSION);
+        digest.update((byte) (options.isPrettyPrinting() ? 1 : 0));
+        updateInt(digest, options.getAttachmentThreshold());
+        updateString(digest, fileName);
+        updateString(digest, options.getEpic());
+        updateString(digest, options.getFeature());
+        updateString(digest, options.getStory());
+        updateString(digest, options.getOwner());
+        // Фильтры по имени файла не входят в ключ: исключенный файл не конвертируется и в кеш не попадает
+        updateInt(digest, options.getShardIndex());
+        updateInt(digest, options.getShardCount());
+        updateString(digest, options.getIncludeTestCases());
+        updateString(digest, options.getExcludeTestCases());
+        return digest;
+    }
+
+    private void updateInt(MessageDigest digest, int value) {
+        digest.update(new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+    }
+
+    private void updateString(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update(new byte[]{-1, -1, -1, -1});
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        updateInt(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    /**
+     * Запись кеша в памяти вместе с ее оценочным размером.
+     */
+    private record CachedResult(List<SerializedTestCase> results, long weight) {
+    }
+}
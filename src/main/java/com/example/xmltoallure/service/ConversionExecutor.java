@@ -0,0 +1,208 @@
+package com.example.xmltoallure.service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул потоков для параллельной конвертации XML файлов.
+ * Объем одновременно обрабатываемых данных ограничен общим для всех запросов бюджетом байтов,
+ * а результаты передаются обработчику строго в порядке постановки задач.
+ */
+@Component
+public class ConversionExecutor implements DisposableBean {
+
+    /**
+     * Размер одного разрешения семафора в байтах: позволяет задавать бюджет больше Integer.MAX_VALUE байт.
+     */
+    private static final int PERMIT_BYTES = 1024;
+
+    private final ExecutorService executor;
+    private final Semaphore inFlightPermits;
+    private final int maxPermits;
+    private final int maxPendingTasks;
+
+    /**
+     * Создает пул конвертации.
+     * @param threads Количество потоков (0 - по числу доступных процессоров).
+     * @param maxInFlightBytes Максимальный суммарный размер XML, конвертируемых одновременно.
+     */
+    public ConversionExecutor(@Value("${converter.executor.threads:0}") int threads,
+                              @Value("${converter.executor.max-in-flight-bytes:268435456}") long maxInFlightBytes) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "conversion-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxInFlightBytes / PERMIT_BYTES));
+        this.inFlightPermits = new Semaphore(maxPermits, true);
+        this.maxPendingTasks = poolSize * 2;
+    }
+
+    /**
+     * Создает пакет задач, результаты которого передаются обработчику в порядке постановки.
+     * @param handler Обработчик сериализованных тест-кейсов.
+     * @return Новый пакет задач.
+     */
+    public OrderedBatch newBatch(ResultHandler handler) {
+        return new OrderedBatch(handler);
+    }
+
+    /**
+     * Останавливает пул потоков при завершении приложения.
+     */
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private int permitsFor(long sizeBytes) {
+        long permits = (sizeBytes + PERMIT_BYTES - 1) / PERMIT_BYTES;
+        return (int) Math.max(1, Math.min(maxPermits, permits));
+    }
+
+    /**
+     * Пакет задач конвертации одного запроса. Используется из одного потока.
+     */
+    public class OrderedBatch {
+
+        private final ResultHandler handler;
+        private final Deque<PendingTask> pending = new ArrayDeque<>();
+
+        private OrderedBatch(ResultHandler handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * Ставит задачу конвертации в очередь пула.
+         * Если бюджет байтов исчерпан или пакет накопил слишком много незабранных задач,
+         * сначала дожидается и передает обработчику результаты предыдущих задач.
+         * @param sizeBytes Размер исходного XML в байтах.
+         * @param task Задача конвертации.
+         * @throws Exception Если одна из предыдущих задач или обработчик завершились с ошибкой.
+         */
+        public void submit(long sizeBytes, Callable<List<SerializedTestCase>> task) throws Exception {
+            while (pending.size() >= maxPendingTasks) {
+                drainHead();
+            }
+            int permits = permitsFor(sizeBytes);
+            // tryAcquire с таймаутом, в отличие от tryAcquire(permits), соблюдает очередь справедливого семафора
+            while (!inFlightPermits.tryAcquire(permits, 0, TimeUnit.NANOSECONDS)) {
+                if (pending.isEmpty()) {
+                    inFlightPermits.acquire(permits);
+                    break;
+                }
+                drainHead();
+            }
+            BudgetedTask budgeted = new BudgetedTask(task, permits);
+            Future<List<SerializedTestCase>> future;
+            try {
+                future = executor.submit(budgeted);
+            } catch (RejectedExecutionException e) {
+                budgeted.releaseIfNotStarted();
+                throw e;
+            }
+            pending.addLast(new PendingTask(future, budgeted));
+            while (!pending.isEmpty() && pending.peekFirst().future().isDone()) {
+                drainHead();
+            }
+        }
+
+        /**
+         * Дожидается завершения всех задач и передает их результаты обработчику.
+         * @throws Exception Если задача или обработчик завершились с ошибкой.
+         */
+        public void finish() throws Exception {
+            while (!pending.isEmpty()) {
+                drainHead();
+            }
+        }
+
+        /**
+         * Отменяет незавершенные задачи. Бюджет задачи, которая уже выполняется, освобождается,
+         * когда она фактически завершится, а не в момент отмены.
+         */
+        public void cancel() {
+            PendingTask task;
+            while ((task = pending.pollFirst()) != null) {
+                task.future().cancel(true);
+                task.budgeted().releaseIfNotStarted();
+            }
+        }
+
+        private void drainHead() throws Exception {
+            PendingTask head = pending.pollFirst();
+            try {
+                for (SerializedTestCase result : head.future().get()) {
+                    handler.handle(result);
+                }
+                handler.flush();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Задача конвертации, которая освобождает свою часть бюджета сразу по завершении,
+     * не дожидаясь, пока результаты будут переданы обработчику.
+     */
+    private final class BudgetedTask implements Callable<List<SerializedTestCase>> {
+
+        private final Callable<List<SerializedTestCase>> task;
+        private final int permits;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private BudgetedTask(Callable<List<SerializedTestCase>> task, int permits) {
+            this.task = task;
+            this.permits = permits;
+        }
+
+        @Override
+        public List<SerializedTestCase> call() throws Exception {
+            if (!started.compareAndSet(false, true)) {
+                return List.of();
+            }
+            try {
+                return task.call();
+            } finally {
+                inFlightPermits.release(permits);
+            }
+        }
+
+        /**
+         * Освобождает бюджет задачи, которая так и не начала выполняться.
+         */
+        private void releaseIfNotStarted() {
+            if (started.compareAndSet(false, true)) {
+                inFlightPermits.release(permits);
+            }
+        }
+    }
+
+    private record PendingTask(Future<List<SerializedTestCase>> future, BudgetedTask budgeted) {
+    }
+}
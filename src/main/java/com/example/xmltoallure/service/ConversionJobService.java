@@ -0,0 +1,307 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.ConversionJobState;
+import com.example.xmltoallure.model.ConversionJobStatus;
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.model.ConversionReport;
+import com.example.xmltoallure.model.OutputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Сервис асинхронных задач конвертации.
+ * Загруженные файлы копируются во временный каталог задачи, задача ставится в ограниченную очередь,
+ * а готовый архив (ZIP или tar) и отчет о конвертации хранятся до истечения срока хранения.
+ */
+@Service
+public class ConversionJobService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversionJobService.class);
+    private final BatchConversionService batchConversionService;
+    private final ConversionMetrics metrics;
+    private final ZipCompressionExecutor zipCompressionExecutor;
+    private final ThreadPoolExecutor workers;
+    private final Path jobsDirectory;
+    private final Duration ttl;
+    private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор для внедрения зависимостей и настроек.
+     * @param batchConversionService Сервис для конвертации набора файлов.
+     * @param metrics Метрики конвертации.
+     * @param zipCompressionExecutor Пул параллельного сжатия ZIP-архива.
+     * @param workerCount Количество одновременно выполняемых задач.
+     * @param queueCapacity Максимальное число задач, ожидающих выполнения.
+     * @param ttl Срок хранения результата после завершения задачи.
+     * @param directory Каталог для файлов задач (по умолчанию во временном каталоге системы).
+     * @throws IOException Если не удалось создать каталог задач.
+     */
+    @Autowired
+    public ConversionJobService(BatchConversionService batchConversionService,
+                                ConversionMetrics metrics,
+                                ZipCompressionExecutor zipCompressionExecutor,
+                                @Value("${converter.jobs.workers:2}") int workerCount,
+                                @Value("${converter.jobs.queue-capacity:16}") int queueCapacity,
+                                @Value("${converter.jobs.ttl:1h}") Duration ttl,
+                                @Value("${converter.jobs.directory:}") String directory) throws IOException {
+        this.batchConversionService = batchConversionService;
+        this.metrics = metrics;
+        this.zipCompressionExecutor = zipCompressionExecutor;
+        this.ttl = ttl;
+        this.jobsDirectory = directory.isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "xml-to-allure-jobs")
+                : Paths.get(directory);
+        Files.createDirectories(jobsDirectory);
+        deleteStaleJobDirectories();
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "conversion-job-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Создает задачу конвертации и ставит ее в очередь.
+     * @param files Список файлов (XML и/или ZIP) для конвертации.
+     * @param options Параметры конвертации.
+     * @param format Формат архива с результатами.
+     * @param compressionLevel Уровень сжатия ZIP от 0 до 9 или -1 (по умолчанию).
+     * @return Статус созданной задачи.
+     * @throws IOException Если не удалось сохранить загруженные файлы.
+     * @throws JobQueueFullException Если очередь задач заполнена.
+     */
+    public ConversionJobStatus submit(List<MultipartFile> files, ConversionOptions options, OutputFormat format, int compressionLevel)
+            throws IOException {
+        if (workers.getQueue().remainingCapacity() == 0) {
+            throw new JobQueueFullException("Conversion job queue is full");
+        }
+
+        ConversionJob job = new ConversionJob(UUID.randomUUID().toString(), jobsDirectory, format);
+        Path inputDirectory = Files.createDirectories(job.directory.resolve("input"));
+        List<ConversionSource> sources = new ArrayList<>();
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                MultipartFile file = files.get(i);
+                Path target = inputDirectory.resolve(Integer.toString(i));
+                file.transferTo(target.toFile());
+                sources.add(ConversionSource.of(target, file.getOriginalFilename()));
+            }
+            jobs.put(job.id, job);
+            workers.execute(() -> run(job, sources, options, compressionLevel));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            deleteRecursively(job.directory);
+            throw new JobQueueFullException("Conversion job queue is full");
+        } catch (IOException | RuntimeException e) {
+            jobs.remove(job.id);
+            deleteRecursively(job.directory);
+            throw e;
+        }
+        return job.toStatus(ttl);
+    }
+
+    /**
+     * Возвращает статус задачи.
+     * @param jobId Идентификатор задачи.
+     * @return Статус задачи или пустое значение, если задача не найдена или уже удалена.
+     */
+    public Optional<ConversionJobStatus> getStatus(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(job -> job.toStatus(ttl));
+    }
+
+    /**
+     * Возвращает путь к готовому архиву задачи.
+     * @param jobId Идентификатор задачи.
+     * @return Путь к архиву или пустое значение, если задача не найдена или еще не завершена успешно.
+     */
+    public Optional<Path> getResult(String jobId) {
+        ConversionJob job = jobs.get(jobId);
+        if (job == null || job.state != ConversionJobState.COMPLETED) {
+            return Optional.empty();
+        }
+        return Optional.of(job.directory.resolve(job.format.getFileName()));
+    }
+
+    /**
+     * Возвращает отчет о конвертации завершенной задачи.
+     * @param jobId Идентификатор задачи.
+     * @return Отчет или пустое значение, если задача не найдена или еще не завершена успешно.
+     */
+    public Optional<ConversionReport> getReport(String jobId) {
+        ConversionJob job = jobs.get(jobId);
+        if (job == null || job.state != ConversionJobState.COMPLETED) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(job.report);
+    }
+
+    /**
+     * Удаляет задачи, срок хранения результатов которых истек.
+     */
+    @Scheduled(fixedDelayString = "${converter.jobs.cleanup-interval-ms:60000}")
+    public void expireJobs() {
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> {
+            Instant finishedAt = job.finishedAt;
+            if (finishedAt == null || finishedAt.plus(ttl).isAfter(now)) {
+                return false;
+            }
+            deleteRecursively(job.directory);
+            return true;
+        });
+    }
+
+    /**
+     * Останавливает обработчики задач при завершении приложения.
+     */
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+
+    private void run(ConversionJob job, List<ConversionSource> sources, ConversionOptions options, int compressionLevel) {
+        job.state = ConversionJobState.RUNNING;
+        Path partial = job.directory.resolve(job.format.getFileName() + ".part");
+        try {
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(partial));
+                 ResultArchiveWriter writer = zipCompressionExecutor.open(job.format, compressionLevel, os, metrics)) {
+                ConversionReport report = batchConversionService.convertSources(sources, options, new ResultHandler() {
+                    @Override
+                    public void handle(SerializedTestCase result) throws IOException {
+                        writer.handle(result);
+                        job.testCasesProcessed.increment();
+                    }
+
+                    @Override
+                    public void flush() {
+                        job.filesProcessed.increment();
+                    }
+                });
+                writer.writeFile(ConversionReport.FILE_NAME, BatchConversionService.toJson(report));
+                job.report = report;
+            }
+            Files.move(partial, job.directory.resolve(job.format.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            job.state = ConversionJobState.COMPLETED;
+        } catch (Exception e) {
+            log.error("Conversion job {} failed", job.id, e);
+            job.error = "Error during conversion: " + e.getMessage();
+            job.state = ConversionJobState.FAILED;
+            deleteRecursively(partial);
+        } finally {
+            deleteRecursively(job.directory.resolve("input"));
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    /**
+     * Удаляет каталоги задач, оставшиеся от предыдущего запуска приложения.
+     */
+    private void deleteStaleJobDirectories() throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(jobsDirectory)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry) && isJobId(entry.getFileName().toString())) {
+                    deleteRecursively(entry);
+                }
+            }
+        }
+    }
+
+    private boolean isJobId(String name) {
+        try {
+            return UUID.fromString(name).toString().equals(name);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    log.warn("Failed to delete {} - {}", p, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to delete {} - {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Внутреннее состояние задачи конвертации.
+     */
+    private static class ConversionJob {
+
+        private final String id;
+        private final Path directory;
+        private final OutputFormat format;
+        private final Instant createdAt = Instant.now();
+        private final LongAdder filesProcessed = new LongAdder();
+        private final LongAdder testCasesProcessed = new LongAdder();
+        private volatile ConversionJobState state = ConversionJobState.QUEUED;
+        private volatile String error;
+        private volatile ConversionReport report;
+        private volatile Instant finishedAt;
+
+        ConversionJob(String id, Path jobsDirectory, OutputFormat format) {
+            this.id = id;
+            this.directory = jobsDirectory.resolve(id);
+            this.format = format;
+        }
+
+        ConversionJobStatus toStatus(Duration ttl) {
+            Instant finished = finishedAt;
+            ConversionReport finishedReport = report;
+            return ConversionJobStatus.builder()
+                    .id(id)
+                    .state(state)
+                    .format(format)
+                    .filesProcessed(filesProcessed.sum())
+                    .testCasesProcessed(testCasesProcessed.sum())
+                    .filesFailed(finishedReport != null ? finishedReport.getFailedFiles() : 0)
+                    .error(error)
+                    .createdAt(createdAt)
+                    .finishedAt(finished)
+                    .expiresAt(finished != null ? finished.plus(ttl) : null)
+                    .build();
+        }
+    }
+}
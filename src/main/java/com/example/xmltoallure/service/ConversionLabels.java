@@ -0,0 +1,98 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.model.Labels;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Метки Allure для всех тест-кейсов одного запроса.
+ * Экземпляры Labels создаются один раз на запрос. Если story задана, все тест-кейсы получают один общий список;
+ * иначе story берется из имени файла без расширения, и для каждого такого значения собирается один общий список.
+ * Возвращаемые списки неизменяемы. Потокобезопасен.
+ */
+public final class ConversionLabels {
+
+    private final Labels epic;
+    private final Labels feature;
+    private final Labels owner;
+    /**
+     * Общий список, если story задана; иначе null.
+     */
+    private final List<Labels> fixed;
+    /**
+     * Список без story для файла без имени.
+     */
+    private final List<Labels> withoutStory;
+    private final Map<String, List<Labels>> byStory = new ConcurrentHashMap<>();
+
+    private ConversionLabels(String epic, String feature, String story, String owner) {
+        this.epic = label("epic", epic);
+        this.feature = label("feature", feature);
+        this.owner = label("owner", owner);
+        Labels storyLabel = label("story", story);
+        this.fixed = storyLabel != null ? create(storyLabel) : null;
+        this.withoutStory = create(null);
+    }
+
+    /**
+     * Создает метки запроса по параметрам конвертации.
+     * @param options Параметры конвертации.
+     * @return Метки запроса.
+     */
+    public static ConversionLabels of(ConversionOptions options) {
+        return new ConversionLabels(options.getEpic(), options.getFeature(), options.getStory(), options.getOwner());
+    }
+
+    /**
+     * Создает метки запроса.
+     * @param epic Epic для Allure отчета.
+     * @param feature Feature для Allure отчета.
+     * @param story Story для Allure отчета (если не указана, используется имя файла).
+     * @param owner Владелец тест-кейса.
+     * @return Метки запроса.
+     */
+    public static ConversionLabels of(String epic, String feature, String story, String owner) {
+        return new ConversionLabels(epic, feature, story, owner);
+    }
+
+    /**
+     * Возвращает метки тест-кейсов файла.
+     * @param fileName Имя XML файла.
+     * @return Неизменяемый список меток, общий для файлов с тем же значением story.
+     */
+    public List<Labels> forFile(String fileName) {
+        if (fixed != null) {
+            return fixed;
+        }
+        if (fileName == null || fileName.isEmpty()) {
+            return withoutStory;
+        }
+        return byStory.computeIfAbsent(fileName.replaceFirst("[.][^.]+$", ""),
+                story -> create(Labels.builder().name("story").value(story).build()));
+    }
+
+    private List<Labels> create(Labels story) {
+        List<Labels> labels = new ArrayList<>(4);
+        if (epic != null) {
+            labels.add(epic);
+        }
+        if (feature != null) {
+            labels.add(feature);
+        }
+        if (story != null) {
+            labels.add(story);
+        }
+        if (owner != null) {
+            labels.add(owner);
+        }
+        return List.copyOf(labels);
+    }
+
+    private static Labels label(String name, String value) {
+        return value != null && !value.isEmpty() ? Labels.builder().name(name).value(value).build() : null;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.xmltoallure.service;
+
+/**
+ * Исключение, которое выбрасывается, когда входные данные превышают один из лимитов ConversionLimits.
+ * Превышение лимита архива (число записей, объем распаковки, степень сжатия) прекращает конвертацию всего запроса;
+ * XML файл, превысивший лимит глубины или числа элементов, отмечается в отчете как FAILED, остальные файлы конвертируются.
+ */
+public class ConversionLimitException extends RuntimeException {
+
+    /**
+     * Ограничиваемые параметры входных данных.
+     */
+    public enum Limit {
+        /**
+         * Суммарный объем распакованных записей одного ZIP-архива.
+         */
+        TOTAL_INFLATED_BYTES("total_inflated_bytes"),
+        /**
+         * Объем одной распакованной записи ZIP-архива.
+         */
+        ENTRY_BYTES("entry_bytes"),
+        /**
+         * Число записей в ZIP-архиве.
+         */
+        ENTRIES("entries"),
+        /**
+         * Степень сжатия записи ZIP-архива.
+         */
+        COMPRESSION_RATIO("compression_ratio"),
+        /**
+         * Глубина вложенности элементов XML.
+         */
+        XML_DEPTH("xml_depth"),
+        /**
+         * Число элементов в одном XML файле.
+         */
+        XML_ELEMENTS("xml_elements");
+
+        private final String tag;
+
+        Limit(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * Возвращает имя лимита для ответов API и тегов метрик.
+         * @return Имя лимита.
+         */
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final Limit limit;
+    private final String source;
+    private final long max;
+
+    /**
+     * Создает исключение.
+     * @param limit Превышенный лимит.
+     * @param source Файл или запись архива, в которой превышен лимит.
+     * @param max Значение лимита.
+     */
+    public ConversionLimitException(Limit limit, String source, long max) {
+        super("Limit exceeded: " + limit.getTag() + " > " + max + " in " + source);
+        this.limit = limit;
+        this.source = source;
+        this.max = max;
+    }
+
+    /**
+     * Возвращает превышенный лимит.
+     * @return Лимит.
+     */
+    public Limit getLimit() {
+        return limit;
+    }
+
+    /**
+     * Возвращает файл или запись архива, в которой превышен лимит.
+     * @return Имя источника.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Возвращает значение лимита.
+     * @return Значение лимита.
+     */
+    public long getMax() {
+        return max;
+    }
+}
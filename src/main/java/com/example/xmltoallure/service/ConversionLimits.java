@@ -0,0 +1,149 @@
+package com.example.xmltoallure.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * Лимиты на входные данные: защищают пул конвертации от ZIP-бомб и чрезмерно больших или глубоких XML.
+ * Лимиты проверяются по мере распаковки и чтения, поэтому некорректный ввод отклоняется до того,
+ * как будет прочитан целиком. Значение 0 или меньше отключает лимит.
+ */
+@Component
+public class ConversionLimits {
+
+    /**
+     * Степень сжатия проверяется только после распаковки этого объема: маленькие записи с однотипным текстом
+     * сжимаются очень сильно и не опасны.
+     */
+    private static final long MIN_RATIO_CHECK_BYTES = 1024 * 1024;
+
+    private static final long DEFAULT_MAX_TOTAL_INFLATED_BYTES = 8L * 1024 * 1024 * 1024;
+    private static final long DEFAULT_MAX_ENTRY_BYTES = 512L * 1024 * 1024;
+    private static final long DEFAULT_MAX_ENTRIES = 100_000;
+    private static final long DEFAULT_MAX_COMPRESSION_RATIO = 100;
+    private static final int DEFAULT_MAX_XML_DEPTH = 128;
+    private static final long DEFAULT_MAX_XML_ELEMENTS = 10_000_000;
+
+    private final long maxTotalInflatedBytes;
+    private final long maxEntryBytes;
+    private final long maxEntries;
+    private final long maxCompressionRatio;
+    private final int maxXmlDepth;
+    private final long maxXmlElements;
+
+    /**
+     * Создает набор лимитов.
+     * @param maxTotalInflatedBytes Максимальный суммарный объем распакованных записей одного ZIP-архива.
+     * @param maxEntryBytes Максимальный объем одной распакованной записи.
+     * @param maxEntries Максимальное число записей в ZIP-архиве.
+     * @param maxCompressionRatio Максимальное отношение распакованного объема записи к сжатому.
+     * @param maxXmlDepth Максимальная глубина вложенности элементов XML.
+     * @param maxXmlElements Максимальное число элементов в одном XML файле.
+     */
+    public ConversionLimits(@Value("${converter.limits.max-total-inflated-bytes:8589934592}") long maxTotalInflatedBytes,
+                            @Value("${converter.limits.max-entry-bytes:536870912}") long maxEntryBytes,
+                            @Value("${converter.limits.max-entries:100000}") long maxEntries,
+                            @Value("${converter.limits.max-compression-ratio:100}") long maxCompressionRatio,
+                            @Value("${converter.limits.max-xml-depth:128}") int maxXmlDepth,
+                            @Value("${converter.limits.max-xml-elements:10000000}") long maxXmlElements) {
+        this.maxTotalInflatedBytes = maxTotalInflatedBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.maxEntries = maxEntries;
+        this.maxCompressionRatio = maxCompressionRatio;
+        this.maxXmlDepth = maxXmlDepth;
+        this.maxXmlElements = maxXmlElements;
+    }
+
+    /**
+     * Создает лимиты со значениями по умолчанию (как в application.properties).
+     * @return Лимиты по умолчанию.
+     */
+    public static ConversionLimits defaults() {
+        return new ConversionLimits(DEFAULT_MAX_TOTAL_INFLATED_BYTES, DEFAULT_MAX_ENTRY_BYTES, DEFAULT_MAX_ENTRIES,
+                DEFAULT_MAX_COMPRESSION_RATIO, DEFAULT_MAX_XML_DEPTH, DEFAULT_MAX_XML_ELEMENTS);
+    }
+
+    /**
+     * Проверяет число записей ZIP-архива.
+     * @param entries Число уже встреченных записей, включая текущую.
+     * @param archive Имя архива.
+     * @throws ConversionLimitException Если лимит превышен.
+     */
+    public void checkEntries(long entries, String archive) {
+        if (maxEntries > 0 && entries > maxEntries) {
+            throw new ConversionLimitException(ConversionLimitException.Limit.ENTRIES, archive, maxEntries);
+        }
+    }
+
+    /**
+     * Проверяет распаковываемую запись ZIP-архива; вызывается по мере чтения записи.
+     * @param entryBytes Распаковано байт текущей записи.
+     * @param compressedBytes Прочитано сжатых байт текущей записи (приблизительно, с учетом буферизации).
+     * @param totalBytes Распаковано байт всех записей архива, включая текущую.
+     * @param entry Имя записи.
+     * @throws ConversionLimitException Если лимит превышен.
+     */
+    public void checkEntry(long entryBytes, long compressedBytes, long totalBytes, String entry) {
+        if (maxEntryBytes > 0 && entryBytes > maxEntryBytes) {
+            throw new ConversionLimitException(ConversionLimitException.Limit.ENTRY_BYTES, entry, maxEntryBytes);
+        }
+        if (maxTotalInflatedBytes > 0 && totalBytes > maxTotalInflatedBytes) {
+            throw new ConversionLimitException(ConversionLimitException.Limit.TOTAL_INFLATED_BYTES, entry, maxTotalInflatedBytes);
+        }
+        if (maxCompressionRatio > 0 && entryBytes > MIN_RATIO_CHECK_BYTES
+                && entryBytes / Math.max(compressedBytes, 1) > maxCompressionRatio) {
+            throw new ConversionLimitException(ConversionLimitException.Limit.COMPRESSION_RATIO, entry, maxCompressionRatio);
+        }
+    }
+
+    /**
+     * Проверяет заявленный в заголовке размер записи до ее распаковки.
+     * @param declaredSize Размер из заголовка записи или -1, если он неизвестен.
+     * @param entry Имя записи.
+     * @throws ConversionLimitException Если лимит превышен.
+     */
+    public void checkDeclaredEntrySize(long declaredSize, String entry) {
+        if (maxEntryBytes > 0 && declaredSize > maxEntryBytes) {
+            throw new ConversionLimitException(ConversionLimitException.Limit.ENTRY_BYTES, entry, maxEntryBytes);
+        }
+    }
+
+    /**
+     * Оборачивает StAX-читатель проверкой глубины вложенности и числа элементов.
+     * @param reader Исходный читатель.
+     * @param source Имя XML файла для сообщения об ошибке.
+     * @return Читатель с проверкой лимитов или исходный читатель, если лимиты XML отключены.
+     */
+    public XMLStreamReader limit(XMLStreamReader reader, String source) {
+        if (maxXmlDepth <= 0 && maxXmlElements <= 0) {
+            return reader;
+        }
+        return new StreamReaderDelegate(reader) {
+            private int depth;
+            private long elements;
+
+            @Override
+            public int next() throws XMLStreamException {
+                int event = super.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    elements++;
+                    if (maxXmlDepth > 0 && depth > maxXmlDepth) {
+                        throw new ConversionLimitException(ConversionLimitException.Limit.XML_DEPTH, source, maxXmlDepth);
+                    }
+                    if (maxXmlElements > 0 && elements > maxXmlElements) {
+                        throw new ConversionLimitException(ConversionLimitException.Limit.XML_ELEMENTS, source, maxXmlElements);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+                return event;
+            }
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.xmltoallure.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики конвертации в Micrometer (доступны через /actuator/prometheus).
+ * Время каждого этапа конвейера пишется в таймер converter.stage с тегом stage,
+ * время конвертации одного файла - в гистограмму converter.file.duration.
+ */
+@Component
+public class ConversionMetrics {
+
+    /**
+     * Этапы конвейера конвертации.
+     */
+    public enum Stage {
+        /**
+         * Распаковка записи ZIP-архива.
+         */
+        INFLATE("inflate"),
+        /**
+         * Чтение XML парсером.
+         */
+        PARSE("parse"),
+        /**
+         * Построение TestCase и шагов по элементам test-case.
+         */
+        BUILD("build"),
+        /**
+         * Сериализация TestCase в JSON.
+         */
+        SERIALIZE("serialize"),
+        /**
+         * Запись JSON в выходной ZIP-архив.
+         */
+        ZIP_WRITE("zip_write");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Timer fileTimer;
+    private final Counter convertedFiles;
+    private final Counter cachedFiles;
+    private final Counter testCases;
+    private final Counter steps;
+    private final Counter bytesIn;
+    private final Counter bytesOut;
+
+    /**
+     * Конструктор для внедрения зависимости MeterRegistry.
+     * @param registry Реестр метрик.
+     */
+    @Autowired
+    public ConversionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("converter.stage")
+                    .description("Time spent in a conversion pipeline stage")
+                    .tag("stage", stage.tag)
+                    .register(registry));
+        }
+        this.fileTimer = Timer.builder("converter.file.duration")
+                .description("Time to convert and serialize a single XML file")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.convertedFiles = Counter.builder("converter.files")
+                .description("XML files processed")
+                .tag("source", "conversion")
+                .register(registry);
+        this.cachedFiles = Counter.builder("converter.files")
+                .description("XML files processed")
+                .tag("source", "cache")
+                .register(registry);
+        this.testCases = Counter.builder("converter.test.cases")
+                .description("Test cases converted")
+                .register(registry);
+        this.steps = Counter.builder("converter.steps")
+                .description("Steps built, including nested mock steps")
+                .register(registry);
+        this.bytesIn = Counter.builder("converter.bytes")
+                .description("XML bytes read and JSON bytes produced")
+                .baseUnit("bytes")
+                .tag("direction", "in")
+                .register(registry);
+        this.bytesOut = Counter.builder("converter.bytes")
+                .description("XML bytes read and JSON bytes produced")
+                .baseUnit("bytes")
+                .tag("direction", "out")
+                .register(registry);
+    }
+
+    /**
+     * Записывает время этапа конвейера.
+     * @param stage Этап.
+     * @param nanos Длительность в наносекундах.
+     */
+    public void recordStage(Stage stage, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Записывает обработанный XML файл.
+     * @param sizeBytes Размер XML в байтах.
+     * @param nanos Время конвертации и сериализации в наносекундах.
+     * @param cached Был ли результат взят из кеша.
+     */
+    public void recordFile(long sizeBytes, long nanos, boolean cached) {
+        fileTimer.record(nanos, TimeUnit.NANOSECONDS);
+        (cached ? cachedFiles : convertedFiles).increment();
+        bytesIn.increment(sizeBytes);
+    }
+
+    /**
+     * Записывает сконвертированный тест-кейс.
+     * @param stepCount Число шагов тест-кейса, включая вложенные.
+     */
+    public void recordTestCase(int stepCount) {
+        testCases.increment();
+        steps.increment(stepCount);
+    }
+
+    /**
+     * Записывает объем сериализованного JSON.
+     * @param sizeBytes Размер JSON в байтах.
+     */
+    public void recordBytesOut(long sizeBytes) {
+        bytesOut.increment(sizeBytes);
+    }
+
+    /**
+     * Увеличивает счетчик файлов, которые не удалось сконвертировать,
+     * а при превышении лимита - счетчик converter.limits.exceeded с тегом limit.
+     * @param cause Причина ошибки.
+     */
+    public void recordFailedFile(Throwable cause) {
+        registry.counter("converter.files.failed", "reason", failureReason(cause)).increment();
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof ConversionLimitException) {
+                registry.counter("converter.limits.exceeded", "limit", ((ConversionLimitException) t).getLimit().getTag()).increment();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Определяет тег reason по исключению: ограниченный набор значений, чтобы не раздувать число временных рядов.
+     * @param cause Причина ошибки.
+     * @return Значение тега reason.
+     */
+    static String failureReason(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof ConversionLimitException) {
+                return "limit";
+            }
+            if (t instanceof XMLStreamException) {
+                return "malformed_xml";
+            }
+            if (t instanceof IOException) {
+                return "io";
+            }
+        }
+        return "other";
+    }
+}
@@ -1,26 +1,20 @@
 package com.example.xmltoallure.service;
 
 import com.example.xmltoallure.model.Labels;
-import com.example.xmltoallure.model.Parameter;
+import com.example.xmltoallure.model.ModelInterner;
 import com.example.xmltoallure.model.TestCase;
 import com.example.xmltoallure.model.TestStep;
-import org.apache.commons.text.StringEscapeUtils;
+import com.example.xmltoallure.parser.TestCaseXmlReader;
+import com.example.xmltoallure.parser.XmlElement;
+import com.example.xmltoallure.parser.XmlParserPool;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Сервис для конвертации XML в объекты TestCase.
@@ -28,6 +22,23 @@ import java.util.regex.Pattern;
 @Service
 public class ConversionService {
 
+    private final XmlParserPool parserPool;
+    private final ConversionMetrics metrics;
+    private final ConversionLimits limits;
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     * @param parserPool Пул StAX-парсеров.
+     * @param metrics Метрики конвертации.
+     * @param limits Лимиты на глубину и число элементов XML.
+     */
+    @Autowired
+    public ConversionService(XmlParserPool parserPool, ConversionMetrics metrics, ConversionLimits limits) {
+        this.parserPool = parserPool;
+        this.metrics = metrics;
+        this.limits = limits;
+    }
+
     /**
      * Конвертирует содержимое XML в список объектов TestCase.
      * @param xmlContent Содержимое XML файла.
@@ -38,365 +49,115 @@ public class ConversionService {
      * @param owner Владелец тест-кейса.
      * @return Список объектов TestCase.
      * @throws Exception Если произошла ошибка при парсинге XML.
+     * @throws ConversionLimitException Если XML превышает лимиты глубины или числа элементов.
      */
     public List<TestCase> convert(String xmlContent, String fileName, String epic, String feature, String story, String owner) throws Exception {
-        Document doc = loadXMLFromString(xmlContent);
-        doc.getDocumentElement().normalize();
-
         List<TestCase> testCases = new ArrayList<>();
-        NodeList testCaseNodes = doc.getElementsByTagName("test-case");
-
-        for (int i = 0; i < testCaseNodes.getLength(); i++) {
-            Node testCaseNode = testCaseNodes.item(i);
-            if (testCaseNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element testCaseElement = (Element) testCaseNode;
-                testCases.add(parseTestCase(testCaseElement, fileName, epic, feature, story, owner));
-            }
-        }
+        convert(parserPool.createReader(new StringReader(xmlContent)), fileName,
+                ConversionLabels.of(epic, feature, story, owner).forFile(fileName), AttachmentExtractor.NONE, TestCaseSelector.ALL, testCases::add);
         return testCases;
     }
 
     /**
-     * Парсит элемент test-case и создает объект TestCase.
-     * @param testCaseElement Элемент test-case.
+     * Потоково конвертирует XML и передает каждый TestCase обработчику сразу после чтения закрывающего тега test-case.
+     * Весь документ в памяти не хранится, поэтому потребление памяти не зависит от размера входного файла.
+     * Байты читаются парсером напрямую, без промежуточной строки; кодировка определяется по XML-прологу.
+     * Поток не закрывается.
+     * @param xmlStream Поток байтов XML.
      * @param fileName Имя файла.
      * @param epic Epic для Allure отчета.
      * @param feature Feature для Allure отчета.
      * @param story Story для Allure отчета.
      * @param owner Владелец тест-кейса.
-     * @return Объект TestCase.
+     * @param handler Обработчик сконвертированных тест-кейсов.
+     * @throws Exception Если произошла ошибка при парсинге XML или в обработчике.
+     * @throws ConversionLimitException Если XML превышает лимиты глубины или числа элементов.
      */
-    private TestCase parseTestCase(Element testCaseElement, String fileName, String epic, String feature, String story, String owner) {
-        String testCaseName = testCaseElement.getAttribute("id");
-
-        // --- Pass 1: Analyze dateTime structure for this specific test case ---
-        int dateTimeCount = 0;
-        int firstDateTimeIndex = -1;
-        int firstRequestIndex = -1;
-        NodeList allNodes = testCaseElement.getChildNodes();
-        for (int i = 0; i < allNodes.getLength(); i++) {
-            Node node = allNodes.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                String tagName = ((Element) node).getTagName();
-                if ("dateTime".equals(tagName)) {
-                    dateTimeCount++;
-                    if (firstDateTimeIndex == -1) {
-                        firstDateTimeIndex = i;
-                    }
-                }
-                if (firstRequestIndex == -1 && ("request".equals(tagName) || "q".equals(tagName) || "event".equals(tagName))) {
-                    firstRequestIndex = i;
-                }
-            }
-        }
-
-        boolean singleDateTimeAtStart = dateTimeCount == 1 && (firstRequestIndex == -1 || firstDateTimeIndex < firstRequestIndex);
-        String description = "";
-        if (singleDateTimeAtStart) {
-            description = "Установить дату и время\n" + ((Element) allNodes.item(firstDateTimeIndex)).getTextContent().trim();
-        }
-
-        // --- Pass 2: Build TestCase ---
-        List<Labels> labels = createLabels(fileName, epic, feature, story, owner);
-        List<TestStep> regularSteps = new ArrayList<>();
-        List<TestStep> mockSubSteps = new ArrayList<>();
-        String pendingDateTime = null;
-        String pendingRequestData = null;
-
-        for (int i = 0; i < allNodes.getLength(); i++) {
-            Node node = allNodes.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element element = (Element) node;
-                String tagName = element.getTagName();
-
-                if ("dateTime".equals(tagName)) {
-                    if (!singleDateTimeAtStart) {
-                        pendingDateTime = element.getTextContent().trim();
-                    }
-                    continue;
-                }
-                
-                if ("requestData".equals(tagName)) {
-                    pendingRequestData = element.getTextContent().trim();
-                    continue;
-                }
-
-                if ("mockData".equals(tagName)) {
-                    mockSubSteps.add(parseSingleMockSubStep(element));
-                } else if ("request".equals(tagName)) {
-                    i = parseRequestStep(regularSteps, allNodes, i, pendingDateTime, null);
-                    pendingDateTime = null;
-                    pendingRequestData = null;
-                } else if ("q".equals(tagName)) {
-                    i = parseQStep(regularSteps, allNodes, i, pendingDateTime, pendingRequestData);
-                    pendingDateTime = null;
-                    pendingRequestData = null;
-                } else if ("event".equals(tagName)) {
-                    i = parseEventStep(regularSteps, allNodes, i, pendingDateTime, pendingRequestData);
-                    pendingDateTime = null;
-                    pendingRequestData = null;
-                }
-            }
-        }
-
-        List<TestStep> finalSteps = new ArrayList<>();
-        if (!mockSubSteps.isEmpty()) {
-            finalSteps.add(TestStep.builder()
-                .name("Создать моки")
-                .status("passed")
-                .steps(mockSubSteps)
-                .build());
-        }
-        finalSteps.addAll(regularSteps);
-
-        return TestCase.builder()
-                .name(testCaseName)
-                .fullName(testCaseName)
-                .description(description)
-                .status("passed")
-                .labels(labels)
-                .steps(finalSteps)
-                .build();
+    public void convert(InputStream xmlStream, String fileName, String epic, String feature, String story, String owner, TestCaseHandler handler) throws Exception {
+        convert(parserPool.createReader(xmlStream), fileName, ConversionLabels.of(epic, feature, story, owner).forFile(fileName),
+                AttachmentExtractor.NONE, TestCaseSelector.ALL, handler);
     }
 
     /**
-     * Создает список меток для Allure отчета.
+     * Потоково конвертирует XML с метками запроса, вынося большие тела моков и запросов во вложения.
+     * Тест-кейсы, которые не отобраны селектором, пропускаются парсером без построения шагов.
+     * Поток не закрывается.
+     * @param xmlStream Поток байтов XML.
      * @param fileName Имя файла.
-     * @param epic Epic для Allure отчета.
-     * @param feature Feature для Allure отчета.
-     * @param story Story для Allure отчета.
-     * @param owner Владелец тест-кейса.
-     * @return Список меток.
-     */
-    private List<Labels> createLabels(String fileName, String epic, String feature, String story, String owner) {
-        List<Labels> labels = new ArrayList<>();
-        if (epic != null && !epic.isEmpty()) {
-            labels.add(Labels.builder().name("epic").value(epic).build());
-        }
-        if (feature != null && !feature.isEmpty()) {
-            labels.add(Labels.builder().name("feature").value(feature).build());
-        }
-        if (story != null && !story.isEmpty()) {
-            labels.add(Labels.builder().name("story").value(story).build());
-        } else if (fileName != null && !fileName.isEmpty()) {
-            labels.add(Labels.builder().name("story").value(fileName.replaceFirst("[.][^.]+$", "")).build());
-        }
-        if (owner != null && !owner.isEmpty()) {
-            labels.add(Labels.builder().name("owner").value(owner).build());
-        }
-        return labels;
-    }
-
-    /**
-     * Загружает XML из строки с защитой от XXE-атак.
-     * @param xml Строка с XML.
-     * @return Объект Document.
-     * @throws Exception Если произошла ошибка при парсинге.
-     */
-    private Document loadXMLFromString(String xml) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        InputSource is = new InputSource(new StringReader(xml));
-        return builder.parse(is);
-    }
-
-    /**
-     * Парсит один подшаг мока.
-     * @param mockDataElement Элемент mockData.
-     * @return Объект TestStep.
+     * @param labels Метки тест-кейсов файла (см. ConversionLabels); список общий для всех тест-кейсов и не изменяется.
+     * @param attachments Экстрактор вложений этого файла.
+     * @param selector Фильтры и шард тест-кейсов.
+     * @param handler Обработчик сконвертированных тест-кейсов.
+     * @throws Exception Если произошла ошибка при парсинге XML или в обработчике.
+     * @throws ConversionLimitException Если XML превышает лимиты глубины или числа элементов.
      */
-    private TestStep parseSingleMockSubStep(Element mockDataElement) {
-        Element queryElement = (Element) mockDataElement.getElementsByTagName("query").item(0);
-        Element responseElement = (Element) mockDataElement.getElementsByTagName("response").item(0);
-        Element paramsElement = (Element) mockDataElement.getElementsByTagName("parameters").item(0);
-
-        String urlTemplate = queryElement.getTextContent().trim();
-        String finalUrl = replaceParameters(urlTemplate, paramsElement);
-        String methodName = getMethodNameFromUrl(finalUrl);
-
-        List<Parameter> parameters = new ArrayList<>();
-        parameters.add(Parameter.builder().name("Method").value(queryElement.getAttribute("method").toUpperCase()).build());
-        parameters.add(Parameter.builder().name("URL").value(finalUrl).build());
-        parameters.add(Parameter.builder().name("Status").value(responseElement.getAttribute("status")).build());
-        parameters.add(Parameter.builder().name("Body").value(StringEscapeUtils.escapeJson(responseElement.getTextContent().trim())).build());
-
-        return TestStep.builder()
-                .name(methodName)
-                .status("passed")
-                .parameters(parameters)
-                .build();
+    public void convert(InputStream xmlStream, String fileName, List<Labels> labels, AttachmentExtractor attachments,
+                        TestCaseSelector selector, TestCaseHandler handler) throws Exception {
+        convert(parserPool.createReader(xmlStream), fileName, labels, attachments, selector, handler);
     }
 
-    /**
-     * Парсит шаг запроса.
-     * @param mainSteps Список основных шагов.
-     * @param nodes Список узлов.
-     * @param currentIndex Текущий индекс.
-     * @param pendingDateTime Ожидаемая дата и время.
-     * @param pendingRequestData Ожидаемые данные запроса.
-     * @return Следующий индекс.
-     */
-    private int parseRequestStep(List<TestStep> mainSteps, NodeList nodes, int currentIndex, String pendingDateTime, String pendingRequestData) {
-        return parseGenericStep(mainSteps, nodes, currentIndex, pendingDateTime, pendingRequestData, body -> "Отправить запрос:", true);
-    }
-
-    /**
-     * Парсит шаг "q".
-     * @param mainSteps Список основных шагов.
-     * @param nodes Список узлов.
-     * @param currentIndex Текущий индекс.
-     * @param pendingDateTime Ожидаемая дата и время.
-     * @param pendingRequestData Ожидаемые данные запроса.
-     * @return Следующий индекс.
-     */
-    private int parseQStep(List<TestStep> mainSteps, NodeList nodes, int currentIndex, String pendingDateTime, String pendingRequestData) {
-        return parseGenericStep(mainSteps, nodes, currentIndex, pendingDateTime, pendingRequestData, body -> "Отправить текст в бота:\n" + body, false);
-    }
-
-    /**
-     * Парсит шаг события.
-     * @param mainSteps Список основных шагов.
-     * @param nodes Список узлов.
-     * @param currentIndex Текущий индекс.
-     * @param pendingDateTime Ожидаемая дата и время.
-     * @param pendingRequestData Ожидаемые данные запроса.
-     * @return Следующий индекс.
-     */
-    private int parseEventStep(List<TestStep> mainSteps, NodeList nodes, int currentIndex, String pendingDateTime, String pendingRequestData) {
-        return parseGenericStep(mainSteps, nodes, currentIndex, pendingDateTime, pendingRequestData, body -> "Вызвать ивент:\n" + body, false);
-    }
-
-    /**
-     * Парсит общий шаг.
-     * @param mainSteps Список основных шагов.
-     * @param nodes Список узлов.
-     * @param currentIndex Текущий индекс.
-     * @param pendingDateTime Ожидаемая дата и время.
-     * @param pendingRequestData Ожидаемые данные запроса.
-     * @param stepNameFormatter Форматтер имени шага.
-     * @param isRequest Является ли шаг запросом.
-     * @return Следующий индекс.
-     */
-    private int parseGenericStep(List<TestStep> mainSteps, NodeList nodes, int currentIndex, String pendingDateTime, String pendingRequestData, Function<String, String> stepNameFormatter, boolean isRequest) {
-        Element element = (Element) nodes.item(currentIndex);
-        String body = element.getTextContent().trim();
-
-        List<TestStep> subSteps = new ArrayList<>();
-        List<Parameter> mainParameters = new ArrayList<>();
-
-        if (pendingDateTime != null) {
-            subSteps.add(TestStep.builder().name("Перед шагом установить дату и время\n" + pendingDateTime).status("passed").build());
-            mainParameters.add(Parameter.builder().name("DateTime").value(pendingDateTime).build());
-        }
-        
-        if (pendingRequestData != null) {
-            subSteps.add(TestStep.builder().name("Установить значение\n" + pendingRequestData).status("passed").build());
-            mainParameters.add(Parameter.builder().name("RequestData").value(pendingRequestData).build());
-        }
-
-        if (isRequest) {
-            mainParameters.add(Parameter.builder().name("Body").value(body).build());
-            TestStep bodySubStep = TestStep.builder().name(body).status("passed").build();
-            TestStep requestBodyStep = TestStep.builder().name("Тело запроса:").status("passed").steps(List.of(bodySubStep)).build();
-            subSteps.add(requestBodyStep);
-        }
-
-        List<TestStep> expectedResultSteps = new ArrayList<>();
-        int nextIndex = collectExpectedResults(nodes, currentIndex + 1, expectedResultSteps);
-
-        if (!expectedResultSteps.isEmpty()) {
-            TestStep expectedResultStep = TestStep.builder().name("Expected Result").steps(expectedResultSteps).build();
-            subSteps.add(expectedResultStep);
-        }
-
-        TestStep mainStep = TestStep.builder()
-                .name(stepNameFormatter.apply(body))
-                .status("passed")
-                .steps(subSteps)
-                .parameters(mainParameters)
-                .build();
-
-        mainSteps.add(mainStep);
-        return nextIndex - 1;
-    }
+    private void convert(XMLStreamReader parser, String fileName, List<Labels> labels, AttachmentExtractor attachments,
+                         TestCaseSelector selector, TestCaseHandler handler) throws Exception {
+        XMLStreamReader reader = limits.limit(parser, fileName);
+        // Время чтения XML = общее время минус построение тест-кейсов и работа обработчика
+        long start = System.nanoTime();
+        long[] excludedNanos = new long[1];
+        // Повторяющиеся значения шагов дедуплицируются в пределах файла
+        ModelInterner interner = new ModelInterner();
+        try {
+            new TestCaseXmlReader().read(reader, new TestCaseXmlReader.TestCaseListener() {
+                private TestCaseBuilder builder;
+                private long buildNanos;
+
+                @Override
+                public boolean onStart(String testCaseId) {
+                    if (!selector.accepts(fileName, testCaseId)) {
+                        return false;
+                    }
+                    builder = new TestCaseBuilder(testCaseId, labels, interner, attachments);
+                    buildNanos = 0;
+                    return true;
+                }
 
-    /**
-     * Собирает ожидаемые результаты.
-     * @param nodes Список узлов.
-     * @param startIndex Начальный индекс.
-     * @param expectedResultSteps Список шагов с ожидаемыми результатами.
-     * @return Следующий индекс.
-     */
-    private int collectExpectedResults(NodeList nodes, int startIndex, List<TestStep> expectedResultSteps) {
-        for (int i = startIndex; i < nodes.getLength(); i++) {
-            Node node = nodes.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element element = (Element) node;
-                if ("a".equals(element.getTagName())) {
-                    String state = element.getAttribute("state");
-                    String text = element.getTextContent().trim();
-                    TestStep aStep = TestStep.builder().name("state = '" + state + "' " + text).build();
-                    expectedResultSteps.add(aStep);
-                } else if ("responseData".equals(element.getTagName())) {
-                    String field = element.getAttribute("field");
-                    String text = element.getTextContent().trim();
-                    String stepName;
+                @Override
+                public void onChild(XmlElement child) {
+                    long childStart = System.nanoTime();
+                    builder.accept(child);
+                    buildNanos += System.nanoTime() - childStart;
+                }
 
-                    if ("replies".equals(field)) {
-                        stepName = "Ожидаемое тело:\n" + text;
-                    } else if (text.isEmpty()) {
-                        stepName = "Ключ " + field + " не равен NULL/существует в ответе";
-                    } else {
-                        stepName = "Элемент тела\n" + field + "\nимеет значение\n" + text;
-                    }
-                    
-                    TestStep responseDataStep = TestStep.builder().name(stepName).build();
-                    expectedResultSteps.add(responseDataStep);
-                } else {
-                    return i;
+                @Override
+                public void onEnd() throws Exception {
+                    long buildStart = System.nanoTime();
+                    TestCase testCase = builder.build();
+                    builder = null;
+                    buildNanos += System.nanoTime() - buildStart;
+                    metrics.recordStage(ConversionMetrics.Stage.BUILD, buildNanos);
+                    metrics.recordTestCase(countSteps(testCase.getSteps()));
+                    long handlerStart = System.nanoTime();
+                    handler.handle(testCase);
+                    excludedNanos[0] += buildNanos + System.nanoTime() - handlerStart;
                 }
-            }
+            });
+        } finally {
+            reader.close();
+            metrics.recordStage(ConversionMetrics.Stage.PARSE, System.nanoTime() - start - excludedNanos[0]);
         }
-        return nodes.getLength();
     }
 
     /**
-     * Заменяет параметры в URL.
-     * @param urlTemplate Шаблон URL.
-     * @param paramsElement Элемент с параметрами.
-     * @return URL с замененными параметрами.
+     * Считает шаги вместе с вложенными.
+     * @param steps Список шагов.
+     * @return Число шагов.
      */
-    private String replaceParameters(String urlTemplate, Element paramsElement) {
-        if (paramsElement == null) return urlTemplate;
-        String result = urlTemplate;
-        NodeList paramNodes = paramsElement.getChildNodes();
-        for (int i = 0; i < paramNodes.getLength(); i++) {
-            Node node = paramNodes.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element param = (Element) node;
-                String key = param.getTagName();
-                String value = param.getTextContent().trim();
-                result = result.replace("${" + key + "}", value);
-            }
+    private int countSteps(List<TestStep> steps) {
+        if (steps == null) {
+            return 0;
         }
-        return result;
-    }
-
-    /**
-     * Извлекает имя метода из URL.
-     * @param url URL.
-     * @return Имя метода.
-     */
-    private String getMethodNameFromUrl(String url) {
-        try {
-            Pattern pattern = Pattern.compile(".*/(.*?)(?:\\?.*)?$");
-            Matcher matcher = pattern.matcher(url);
-            if (matcher.find()) {
-                return matcher.group(1);
-            }
-        } catch (Exception e) {
-            // ignore
+        int count = steps.size();
+        for (TestStep step : steps) {
+            count += countSteps(step.getSteps());
         }
-        return "unknown_method";
+        return count;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.example.xmltoallure.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Исходный файл для конвертации: XML или ZIP-архив с XML файлами.
+ */
+public interface ConversionSource {
+
+    /**
+     * Возвращает имя файла, по расширению которого определяется способ обработки.
+     * @return Имя файла.
+     */
+    String getFileName();
+
+    /**
+     * Возвращает размер файла в байтах.
+     * @return Размер файла.
+     * @throws IOException Если размер не удалось определить.
+     */
+    long getSize() throws IOException;
+
+    /**
+     * Открывает поток для чтения содержимого. Может вызываться из другого потока.
+     * @return Новый поток; его нужно закрыть после чтения.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * Создает источник из загруженного файла.
+     * @param file Загруженный файл.
+     * @return Источник.
+     */
+    static ConversionSource of(MultipartFile file) {
+        return new ConversionSource() {
+            @Override
+            public String getFileName() {
+                return file.getOriginalFilename();
+            }
+
+            @Override
+            public long getSize() {
+                return file.getSize();
+            }
+
+            @Override
+            public InputStream openStream() throws IOException {
+                return file.getInputStream();
+            }
+        };
+    }
+
+    /**
+     * Создает источник из файла на диске.
+     * @param path Путь к файлу.
+     * @param fileName Имя файла, которое используется вместо имени на диске.
+     * @return Источник.
+     */
+    static ConversionSource of(Path path, String fileName) {
+        return new ConversionSource() {
+            @Override
+            public String getFileName() {
+                return fileName;
+            }
+
+            @Override
+            public long getSize() throws IOException {
+                return Files.size(path);
+            }
+
+            @Override
+            public InputStream openStream() throws IOException {
+                return Files.newInputStream(path);
+            }
+        };
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.xmltoallure.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Записывает сериализованные тест-кейсы отдельными файлами *-result.json в каталог (формат allure-results).
+ * Имена файлов совпадают с именами записей в ZIP-архиве AllureResultsZipWriter.
+ * При включенной синхронизации fsync выполняется пачками: после каждого исходного файла (flush)
+ * или каждые MAX_PENDING_SYNCS записанных файлов, и один раз для каталога при закрытии.
+ * Экземпляр не является потокобезопасным.
+ */
+public class DirectoryResultWriter implements ResultHandler, Closeable {
+
+    private static final int MAX_PENDING_SYNCS = 64;
+
+    private final Path directory;
+    private final boolean sync;
+    private final ResultFileNamer fileNamer;
+    private final List<FileChannel> pendingSyncs = new ArrayList<>();
+
+    /**
+     * Создает writer для каталога без fsync; каталог создается, если его нет.
+     * @param directory Каталог результатов.
+     * @throws IOException Если не удалось создать каталог.
+     */
+    public DirectoryResultWriter(Path directory) throws IOException {
+        this(directory, false);
+    }
+
+    /**
+     * Создает writer для каталога; каталог создается, если его нет.
+     * @param directory Каталог результатов.
+     * @param sync Сбрасывать ли записанные файлы на диск (fsync).
+     * @throws IOException Если не удалось создать каталог.
+     */
+    public DirectoryResultWriter(Path directory, boolean sync) throws IOException {
+        this(directory, sync, new ResultFileNamer());
+    }
+
+    /**
+     * Создает writer для каталога с заданным счетчиком имен; каталог создается, если его нет.
+     * @param directory Каталог результатов.
+     * @param sync Сбрасывать ли записанные файлы на диск (fsync).
+     * @param fileNamer Счетчик имен файлов результатов.
+     * @throws IOException Если не удалось создать каталог.
+     */
+    public DirectoryResultWriter(Path directory, boolean sync, ResultFileNamer fileNamer) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.sync = sync;
+        this.fileNamer = fileNamer;
+    }
+
+    /**
+     * Записывает тест-кейс отдельным файлом, перезаписывая существующий файл с тем же именем.
+     * @param result Сериализованный тест-кейс.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void handle(SerializedTestCase result) throws IOException {
+        write(result);
+    }
+
+    /**
+     * Записывает тест-кейс отдельным файлом и возвращает имя этого файла; еще не записанные файлы вложений пишутся перед ним.
+     * @param result Сериализованный тест-кейс.
+     * @return Имя файла результата в каталоге.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    public String write(SerializedTestCase result) throws IOException {
+        for (AttachmentFile attachment : result.attachments()) {
+            if (fileNamer.claimAttachment(attachment.source())) {
+                writeFile(attachment.source(), attachment.content());
+            }
+        }
+        String fileName = fileNamer.next(result.name());
+        writeFile(fileName, result.json());
+        return fileName;
+    }
+
+    /**
+     * Записывает в каталог файл с заданным именем, например отчет о конвертации.
+     * @param fileName Имя файла в каталоге.
+     * @param content Содержимое файла.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    public void writeFile(String fileName, byte[] content) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (!sync) {
+            channel.close();
+            return;
+        }
+        pendingSyncs.add(channel);
+        if (pendingSyncs.size() >= MAX_PENDING_SYNCS) {
+            syncPending();
+        }
+    }
+
+    /**
+     * Сбрасывает на диск файлы, записанные с прошлого вызова.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void flush() throws IOException {
+        syncPending();
+    }
+
+    /**
+     * Сбрасывает на диск оставшиеся файлы и сам каталог.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void close() throws IOException {
+        syncPending();
+        if (sync) {
+            try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+                dir.force(true);
+            } catch (IOException e) {
+                // Не все платформы позволяют открыть каталог как файл; файлы уже сброшены на диск
+            }
+        }
+    }
+
+    private void syncPending() throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : pendingSyncs) {
+            try (channel) {
+                channel.force(false);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        pendingSyncs.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.xmltoallure.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Хранилище результатов в памяти.
+ */
+public class InMemoryResultStore implements ResultStore {
+
+    private final List<SerializedTestCase> results = new ArrayList<>();
+
+    /**
+     * Сохраняет очередной результат.
+     * @param result Сериализованный тест-кейс.
+     */
+    @Override
+    public void handle(SerializedTestCase result) {
+        results.add(result);
+    }
+
+    /**
+     * Передает все сохраненные результаты обработчику в исходном порядке.
+     * @param target Обработчик результатов.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void replay(ResultHandler target) throws IOException {
+        for (SerializedTestCase result : results) {
+            target.handle(result);
+        }
+    }
+
+    /**
+     * Возвращает число сохраненных результатов.
+     * @return Число результатов.
+     */
+    @Override
+    public long size() {
+        return results.size();
+    }
+
+    /**
+     * Освобождает память.
+     */
+    @Override
+    public void close() {
+        results.clear();
+    }
+}
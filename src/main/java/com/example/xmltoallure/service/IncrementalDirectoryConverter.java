@@ -0,0 +1,354 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.model.ConversionReport;
+import com.example.xmltoallure.model.FileConversionResult;
+import com.example.xmltoallure.model.FileConversionStatus;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Инкрементальная конвертация в каталог allure-results.
+ * В манифесте сохраняются путь, размер, время изменения и SHA-256 каждого исходного файла вместе с именами
+ * полученных файлов результатов. При следующем запуске конвертируются только новые и измененные файлы,
+ * результаты удаленных и измененных файлов удаляются, а файлы неизмененных XML сохраняют свои имена.
+ * Если параметры конвертации изменились, все файлы конвертируются заново.
+ * Файлы вложений общие для разных исходных файлов, поэтому удаляются только после записи манифеста,
+ * когда на них не ссылается ни один исходный файл.
+ * Файлы, которые не удалось сконвертировать, пропускаются и конвертируются повторно при следующем запуске;
+ * отчет о конвертации измененных файлов записывается в каталог результатов (conversion-report.json).
+ * Если конвертация завершилась ошибкой записи или превышением лимитов, манифест не обновляется.
+ */
+public class IncrementalDirectoryConverter {
+
+    /**
+     * Имя файла манифеста по умолчанию в каталоге результатов.
+     */
+    public static final String DEFAULT_MANIFEST_NAME = ".xml-to-allure-manifest.json";
+
+    private static final Logger log = LoggerFactory.getLogger(IncrementalDirectoryConverter.class);
+
+    /**
+     * Версия формата манифеста и результатов: при ее изменении все файлы конвертируются заново.
+     */
+    private static final int MANIFEST_VERSION = 1;
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    private final BatchConversionService batchConversionService;
+    private final Path outputDirectory;
+    private final Path manifestFile;
+    private final boolean sync;
+
+    /**
+     * Создает инкрементальный конвертер.
+     * @param batchConversionService Сервис для конвертации набора файлов.
+     * @param outputDirectory Каталог результатов.
+     * @param manifestFile Файл манифеста.
+     * @param sync Сбрасывать ли записанные файлы на диск (fsync).
+     */
+    public IncrementalDirectoryConverter(BatchConversionService batchConversionService, Path outputDirectory,
+                                         Path manifestFile, boolean sync) {
+        this.batchConversionService = batchConversionService;
+        this.outputDirectory = outputDirectory;
+        this.manifestFile = manifestFile;
+        this.sync = sync;
+    }
+
+    /**
+     * Итог инкрементальной конвертации.
+     * @param converted Число сконвертированных новых и измененных файлов.
+     * @param unchanged Число пропущенных неизмененных файлов.
+     * @param removed Число удаленных исходных файлов, результаты которых были удалены.
+     * @param failed Число XML файлов (в том числе в архивах), которые не удалось сконвертировать.
+     * @param testCases Число записанных тест-кейсов.
+     */
+    public record Summary(int converted, int unchanged, int removed, int failed, long testCases) {
+    }
+
+    /**
+     * Конвертирует новые и измененные файлы и обновляет манифест.
+     * @param files XML файлы и ZIP-архивы в порядке конвертации; файлы с другими расширениями пропускаются.
+     * @param options Параметры конвертации.
+     * @return Итог конвертации.
+     * @throws Exception Если не удалось сконвертировать файл, записать результат или манифест.
+     */
+    public Summary convert(List<Path> sourceFiles, ConversionOptions options) throws Exception {
+        List<Path> files = sourceFiles.stream().filter(file -> isZip(file) || isXml(file)).collect(Collectors.toList());
+        Manifest previous = readManifest();
+        boolean reusable = previous != null && previous.version == MANIFEST_VERSION && options.equals(previous.options);
+        Map<String, ManifestEntry> previousEntries = new HashMap<>();
+        if (previous != null && previous.files != null) {
+            for (ManifestEntry entry : previous.files) {
+                previousEntries.put(entry.path, entry);
+            }
+        }
+
+        ManifestEntry[] entries = new ManifestEntry[files.size()];
+        List<Integer> changed = new ArrayList<>();
+        Set<String> currentPaths = new HashSet<>();
+        Set<String> changedPaths = new HashSet<>();
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            ManifestEntry entry = new ManifestEntry();
+            entry.path = file.toAbsolutePath().normalize().toString();
+            entry.size = Files.size(file);
+            entry.lastModified = Files.getLastModifiedTime(file).toMillis();
+            currentPaths.add(entry.path);
+
+            ManifestEntry old = reusable ? previousEntries.get(entry.path) : null;
+            if (old != null && old.size == entry.size && old.lastModified == entry.lastModified) {
+                entries[i] = old;
+                continue;
+            }
+            entry.sha256 = sha256(file);
+            if (old != null && old.size == entry.size && entry.sha256.equals(old.sha256)) {
+                entry.results = old.results;
+                entry.attachments = old.attachments;
+                entries[i] = entry;
+                continue;
+            }
+            entries[i] = entry;
+            changed.add(i);
+            changedPaths.add(entry.path);
+        }
+
+        int removed = 0;
+        for (ManifestEntry old : previousEntries.values()) {
+            boolean deleted = !currentPaths.contains(old.path);
+            if (deleted) {
+                removed++;
+            }
+            if (deleted || !reusable || changedPaths.contains(old.path)) {
+                deleteResults(old);
+            }
+        }
+
+        Set<String> reservedNames = new HashSet<>();
+        for (ManifestEntry entry : entries) {
+            if (entry.results != null) {
+                reservedNames.addAll(entry.results);
+            }
+            if (entry.attachments != null) {
+                reservedNames.addAll(entry.attachments);
+            }
+        }
+
+        long[] testCases = new long[1];
+        List<FileConversionResult> reportFiles = new ArrayList<>();
+        try (DirectoryResultWriter writer = new DirectoryResultWriter(outputDirectory, sync, new ResultFileNamer(reservedNames))) {
+            // Подряд идущие XML файлы конвертируются одним пакетом: flush() вызывается ровно один раз на XML файл.
+            // ZIP-архив дает flush() на каждую запись, поэтому архивы конвертируются по одному.
+            int start = 0;
+            while (start < changed.size()) {
+                int end = start + 1;
+                if (!isZip(files.get(changed.get(start)))) {
+                    while (end < changed.size() && !isZip(files.get(changed.get(end)))) {
+                        end++;
+                    }
+                }
+                ConversionReport report = convertChanged(changed.subList(start, end), files, entries, options, writer, testCases);
+                reportFiles.addAll(report.getFiles());
+                start = end;
+            }
+            writer.writeFile(ConversionReport.FILE_NAME, BatchConversionService.toJson(ConversionReport.builder()
+                    .totalFiles(reportFiles.size())
+                    .failedFiles(failedFiles(reportFiles))
+                    .testCases(testCases[0])
+                    .files(reportFiles)
+                    .build()));
+        }
+
+        writeManifest(options, entries);
+        deleteUnusedAttachments(previousEntries.values(), entries);
+        return new Summary(changed.size(), files.size() - changed.size(), removed, failedFiles(reportFiles), testCases[0]);
+    }
+
+    private ConversionReport convertChanged(List<Integer> indexes, List<Path> files, ManifestEntry[] entries, ConversionOptions options,
+                                            DirectoryResultWriter writer, long[] testCases) throws Exception {
+        List<ConversionSource> sources = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            Path file = files.get(index);
+            sources.add(ConversionSource.of(file, file.getFileName().toString()));
+            entries[index].results = new ArrayList<>();
+            entries[index].attachments = new ArrayList<>();
+        }
+        boolean zip = sources.size() == 1 && isZip(files.get(indexes.get(0)));
+        int[] reportIndex = new int[1];
+        // Для XML файлов flush() вызывается ровно один раз на запись отчета (и для файлов, исключенных фильтром),
+        // поэтому число вызовов flush() - индекс текущей записи отчета и файла в indexes
+        ConversionReport report = batchConversionService.convertSources(sources, options, new ResultHandler() {
+            @Override
+            public void handle(SerializedTestCase result) throws IOException {
+                ManifestEntry entry = entries[indexes.get(zip ? 0 : reportIndex[0])];
+                entry.results.add(writer.write(result));
+                for (AttachmentFile attachment : result.attachments()) {
+                    entry.attachments.add(attachment.source());
+                }
+                testCases[0]++;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writer.flush();
+                reportIndex[0]++;
+            }
+        });
+        if (!zip && (reportIndex[0] != indexes.size() || report.getFiles().size() != indexes.size())) {
+            throw new IllegalStateException("Expected " + indexes.size() + " converted files, got " + reportIndex[0]
+                    + " flushes and " + report.getFiles().size() + " report entries");
+        }
+
+        // Для XML файлов в отчете по одной записи на файл в том же порядке, для архива - записи его XML файлов
+        for (int i = 0; i < indexes.size(); i++) {
+            boolean failed = zip ? report.getFailedFiles() > 0 : report.getFiles().get(i).getStatus() == FileConversionStatus.FAILED;
+            if (failed) {
+                // Запись остается в манифесте, чтобы записанные результаты удалились, но файл считается измененным
+                entries[indexes.get(i)].size = -1;
+                entries[indexes.get(i)].sha256 = null;
+            }
+        }
+        return report;
+    }
+
+    private static int failedFiles(List<FileConversionResult> reportFiles) {
+        return (int) reportFiles.stream().filter(file -> file.getStatus() == FileConversionStatus.FAILED).count();
+    }
+
+    private void deleteResults(ManifestEntry entry) throws IOException {
+        if (entry.results == null) {
+            return;
+        }
+        for (String result : entry.results) {
+            Path file = outputDirectory.resolve(result).normalize();
+            // Имена берутся из манифеста, поэтому удаляются только файлы внутри каталога результатов
+            if (file.startsWith(outputDirectory.normalize())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void deleteUnusedAttachments(Collection<ManifestEntry> previousEntries, ManifestEntry[] entries) throws IOException {
+        Set<String> used = new HashSet<>();
+        for (ManifestEntry entry : entries) {
+            if (entry.attachments != null) {
+                used.addAll(entry.attachments);
+            }
+        }
+        for (ManifestEntry entry : previousEntries) {
+            if (entry.attachments == null) {
+                continue;
+            }
+            for (String attachment : entry.attachments) {
+                Path file = outputDirectory.resolve(attachment).normalize();
+                if (!used.contains(attachment) && file.startsWith(outputDirectory.normalize())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Manifest readManifest() {
+        if (!Files.isRegularFile(manifestFile)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, Manifest.class);
+        } catch (IOException | JsonParseException e) {
+            log.warn("Ignoring unreadable manifest {} - {}", manifestFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Записывает манифест во временный файл и атомарно заменяет им старый.
+     */
+    private void writeManifest(ConversionOptions options, ManifestEntry[] entries) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.version = MANIFEST_VERSION;
+        manifest.options = options;
+        manifest.files = List.of(entries);
+
+        Path parent = manifestFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path partial = parent.resolve(manifestFile.getFileName() + ".part");
+        try (Writer writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+            GSON.toJson(manifest, writer);
+        }
+        try {
+            Files.move(partial, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean isZip(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".zip");
+    }
+
+    private static boolean isXml(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".xml");
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream is = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Манифест инкрементальной конвертации.
+     */
+    private static class Manifest {
+        private int version;
+        private ConversionOptions options;
+        private List<ManifestEntry> files;
+    }
+
+    /**
+     * Исходный файл и полученные из него файлы результатов и вложений.
+     */
+    private static class ManifestEntry {
+        private String path;
+        private long size;
+        private long lastModified;
+        private String sha256;
+        private List<String> results;
+        private List<String> attachments;
+    }
+}
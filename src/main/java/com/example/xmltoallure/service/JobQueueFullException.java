@@ -0,0 +1,15 @@
+package com.example.xmltoallure.service;
+
+/**
+ * Исключение, которое выбрасывается, когда очередь асинхронных задач конвертации заполнена.
+ */
+public class JobQueueFullException extends RuntimeException {
+
+    /**
+     * Создает исключение с сообщением.
+     * @param message Сообщение об ошибке.
+     */
+    public JobQueueFullException(String message) {
+        super(message);
+    }
+}
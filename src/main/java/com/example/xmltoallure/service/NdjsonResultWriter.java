@@ -0,0 +1,94 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.ConversionReport;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Записывает сериализованные тест-кейсы в поток NDJSON: по одному компактному JSON TestCase на строку.
+ * Поток сбрасывается клиенту после всех тест-кейсов каждого исходного файла (flush), поэтому получатель начинает
+ * обрабатывать результаты до окончания конвертации. Запись блокируется, пока клиент не примет данные,
+ * а вместе с ней останавливается и выдача результатов из ConversionExecutor.
+ * Тест-кейсы должны быть сериализованы без отступов и без вложений.
+ * Последняя строка потока - итог конвертации: {"conversionReport": ...} или {"error": ...}, если конвертация
+ * прервалась; по ее отсутствию клиент определяет, что ответ оборван.
+ * Экземпляр не является потокобезопасным.
+ */
+public class NdjsonResultWriter implements ResultHandler, Closeable {
+
+    /**
+     * Имя поля строки с отчетом о конвертации; в JSON тест-кейса такого поля нет.
+     */
+    public static final String REPORT_FIELD = "conversionReport";
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final OutputStream outputStream;
+
+    /**
+     * Создает writer поверх выходного потока.
+     * @param outputStream Поток ответа.
+     */
+    public NdjsonResultWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Записывает тест-кейс отдельной строкой.
+     * @param result Сериализованный тест-кейс.
+     * @throws IOException Если произошла ошибка ввода-вывода (в том числе клиент закрыл соединение).
+     */
+    @Override
+    public void handle(SerializedTestCase result) throws IOException {
+        outputStream.write(result.json());
+        outputStream.write('\n');
+    }
+
+    /**
+     * Записывает итоговую строку с отчетом о конвертации и передает ее клиенту.
+     * @param report Отчет о конвертации по каждому файлу.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    public void writeReport(ConversionReport report) throws IOException {
+        writeLine(GSON.toJson(Map.of(REPORT_FIELD, report)));
+    }
+
+    /**
+     * Записывает итоговую строку об ошибке, прервавшей конвертацию, и передает ее клиенту.
+     * @param errorJson JSON-объект ошибки в одну строку.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    public void writeError(String errorJson) throws IOException {
+        writeLine(errorJson);
+    }
+
+    private void writeLine(String json) throws IOException {
+        outputStream.write(json.getBytes(StandardCharsets.UTF_8));
+        outputStream.write('\n');
+        outputStream.flush();
+    }
+
+    /**
+     * Передает клиенту строки, записанные для очередного файла.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+
+    /**
+     * Сбрасывает и закрывает выходной поток.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.xmltoallure.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Записывает сериализованные тест-кейсы в ZIP-архив, сжимая записи параллельно на пуле потоков.
+ * Каждая запись сжимается независимо в свой буфер (как в pigz), готовые записи дописываются в архив
+ * в порядке поступления, а центральный каталог - при закрытии. Размеры и CRC известны до записи заголовка,
+ * поэтому архив не содержит data descriptor; при более чем 65535 записях или смещениях больше 4 ГБ
+ * используется ZIP64. Экземпляр не является потокобезопасным.
+ */
+public class ParallelZipWriter implements ResultArchiveWriter {
+
+    /**
+     * Максимальный объем несжатого JSON в записях, ожидающих сжатия или записи.
+     */
+    private static final long MAX_PENDING_BYTES = 64L * 1024 * 1024;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int ZIP64_END = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int END = 0x06054b50;
+    private static final short VERSION = 20;
+    private static final short VERSION_ZIP64 = 45;
+    private static final short UTF8_FLAG = 0x0800;
+    private static final short DEFLATED = 8;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final OutputStream outputStream;
+    private final ExecutorService executor;
+    private final int level;
+    private final int maxPendingEntries;
+    private final ConversionMetrics metrics;
+    private final ResultFileNamer fileNamer = new ResultFileNamer();
+    private final Deque<PendingEntry> pending = new ArrayDeque<>();
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+    private final short dosTime;
+    private final short dosDate;
+    private long pendingBytes;
+    private long written;
+    private long entries;
+
+    /**
+     * Создает writer поверх выходного потока.
+     * @param outputStream Поток, в который записывается ZIP-архив.
+     * @param compressionLevel Уровень сжатия от 1 до 9 или -1 (уровень по умолчанию).
+     * @param executor Пул потоков для сжатия записей.
+     * @param parallelism Число потоков пула: определяет, сколько записей может ожидать сжатия.
+     * @param metrics Метрики конвертации (время сжатия и записи в архив).
+     */
+    public ParallelZipWriter(OutputStream outputStream, int compressionLevel, ExecutorService executor, int parallelism,
+                             ConversionMetrics metrics) {
+        this.outputStream = outputStream;
+        this.level = compressionLevel;
+        this.executor = executor;
+        this.maxPendingEntries = Math.max(1, parallelism) * 4;
+        this.metrics = metrics;
+        LocalDateTime now = LocalDateTime.now();
+        this.dosTime = (short) (now.getHour() << 11 | now.getMinute() << 5 | now.getSecond() >> 1);
+        this.dosDate = (short) ((Math.max(now.getYear(), 1980) - 1980) << 9 | now.getMonthValue() << 5 | now.getDayOfMonth());
+    }
+
+    /**
+     * Отправляет на сжатие тест-кейс отдельным файлом *-result.json, а перед ним - еще не записанные файлы его вложений.
+     * Если сжатия ожидает слишком много записей, сначала дописывает в архив самые ранние из них.
+     * @param result Сериализованный тест-кейс.
+     * @throws IOException Если сжатие или запись предыдущей записи завершились ошибкой.
+     */
+    @Override
+    public void handle(SerializedTestCase result) throws IOException {
+        for (AttachmentFile attachment : result.attachments()) {
+            if (fileNamer.claimAttachment(attachment.source())) {
+                writeFile(attachment.source(), attachment.content());
+            }
+        }
+        writeFile(fileNamer.next(result.name()), result.json());
+    }
+
+    /**
+     * Отправляет на сжатие файл с заданным именем.
+     * @param name Имя файла в архиве.
+     * @param content Содержимое файла.
+     * @throws IOException Если сжатие или запись предыдущей записи завершились ошибкой.
+     */
+    @Override
+    public void writeFile(String name, byte[] content) throws IOException {
+        pending.addLast(new PendingEntry(name.getBytes(StandardCharsets.UTF_8), content.length, executor.submit(() -> compress(content))));
+        pendingBytes += content.length;
+        while (pending.size() > maxPendingEntries || pendingBytes > MAX_PENDING_BYTES) {
+            writeHead();
+        }
+        writeCompleted();
+    }
+
+    /**
+     * Дописывает уже сжатые записи и передает их в выходной поток, не дожидаясь остальных.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeCompleted();
+        outputStream.flush();
+    }
+
+    /**
+     * Дожидается сжатия всех записей, дописывает центральный каталог и закрывает выходной поток.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            while (!pending.isEmpty()) {
+                writeHead();
+            }
+            writeEnd();
+        } finally {
+            PendingEntry entry;
+            while ((entry = pending.pollFirst()) != null) {
+                entry.future().cancel(true);
+            }
+            Deflater deflater;
+            while ((deflater = deflaters.poll()) != null) {
+                deflater.end();
+            }
+            outputStream.close();
+        }
+    }
+
+    private CompressedEntry compress(byte[] json) {
+        long start = System.nanoTime();
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        }
+        try {
+            deflater.setInput(json);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+            byte[] buffer = new byte[Math.min(64 * 1024, json.length + 64)];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return new CompressedEntry(out.toByteArray(), crc.getValue());
+        } finally {
+            deflater.reset();
+            deflaters.offer(deflater);
+            metrics.recordStage(ConversionMetrics.Stage.ZIP_WRITE, System.nanoTime() - start);
+        }
+    }
+
+    private void writeCompleted() throws IOException {
+        while (!pending.isEmpty() && pending.peekFirst().future().isDone()) {
+            writeHead();
+        }
+    }
+
+    private void writeHead() throws IOException {
+        PendingEntry entry = pending.pollFirst();
+        pendingBytes -= entry.size();
+        CompressedEntry compressed;
+        try {
+            compressed = entry.future().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing " + new String(entry.name(), StandardCharsets.UTF_8));
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress " + new String(entry.name(), StandardCharsets.UTF_8), e.getCause());
+        }
+
+        long offset = written;
+        ByteBuffer header = buffer(30 + entry.name().length);
+        header.putInt(LOCAL_HEADER).putShort(VERSION).putShort(UTF8_FLAG).putShort(DEFLATED)
+                .putShort(dosTime).putShort(dosDate).putInt((int) compressed.crc())
+                .putInt(compressed.data().length).putInt(entry.size())
+                .putShort((short) entry.name().length).putShort((short) 0).put(entry.name());
+        write(header.array());
+        write(compressed.data());
+
+        boolean zip64 = offset >= ZIP64_MAGIC;
+        ByteBuffer central = buffer(46 + entry.name().length + (zip64 ? 12 : 0));
+        central.putInt(CENTRAL_HEADER).putShort(zip64 ? VERSION_ZIP64 : VERSION).putShort(zip64 ? VERSION_ZIP64 : VERSION)
+                .putShort(UTF8_FLAG).putShort(DEFLATED).putShort(dosTime).putShort(dosDate).putInt((int) compressed.crc())
+                .putInt(compressed.data().length).putInt(entry.size())
+                .putShort((short) entry.name().length).putShort((short) (zip64 ? 12 : 0)).putShort((short) 0)
+                .putShort((short) 0).putShort((short) 0).putInt(0)
+                .putInt((int) (zip64 ? ZIP64_MAGIC : offset)).put(entry.name());
+        if (zip64) {
+            central.putShort((short) 0x0001).putShort((short) 8).putLong(offset);
+        }
+        centralDirectory.write(central.array());
+        entries++;
+    }
+
+    private void writeEnd() throws IOException {
+        long centralOffset = written;
+        long centralSize = centralDirectory.size();
+        centralDirectory.writeTo(outputStream);
+        written += centralSize;
+
+        boolean zip64 = entries >= 0xFFFF || centralOffset >= ZIP64_MAGIC;
+        if (zip64) {
+            long zip64EndOffset = written;
+            ByteBuffer end = buffer(56 + 20);
+            end.putInt(ZIP64_END).putLong(44).putShort(VERSION_ZIP64).putShort(VERSION_ZIP64).putInt(0).putInt(0)
+                    .putLong(entries).putLong(entries).putLong(centralSize).putLong(centralOffset);
+            end.putInt(ZIP64_LOCATOR).putInt(0).putLong(zip64EndOffset).putInt(1);
+            write(end.array());
+        }
+        ByteBuffer end = buffer(22);
+        end.putInt(END).putShort((short) 0).putShort((short) 0)
+                .putShort((short) (zip64 ? 0xFFFF : entries)).putShort((short) (zip64 ? 0xFFFF : entries))
+                .putInt((int) centralSize).putInt((int) (zip64 ? ZIP64_MAGIC : centralOffset)).putShort((short) 0);
+        write(end.array());
+    }
+
+    private void write(byte[] data) throws IOException {
+        outputStream.write(data);
+        written += data.length;
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private record PendingEntry(byte[] name, int size, Future<CompressedEntry> future) {
+    }
+
+    private record CompressedEntry(byte[] data, long crc) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.OutputFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Архив с Allure JSON результатами, который пишется в поток по мере поступления тест-кейсов.
+ * close() дописывает окончание архива и закрывает поток.
+ */
+public interface ResultArchiveWriter extends ResultHandler, Closeable {
+
+    /**
+     * Записывает в архив служебный файл с заданным именем, например отчет о конвертации.
+     * @param name Имя файла в архиве.
+     * @param content Содержимое файла.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    void writeFile(String name, byte[] content) throws IOException;
+
+    /**
+     * Дописывает окончание архива и закрывает выходной поток.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Создает writer архива нужного формата.
+     * @param format Формат архива.
+     * @param compressionLevel Уровень сжатия ZIP от 0 (без сжатия) до 9 или -1 (по умолчанию); для tar не используется.
+     * @param outputStream Поток, в который записывается архив.
+     * @param metrics Метрики конвертации.
+     * @return Writer архива.
+     */
+    static ResultArchiveWriter open(OutputFormat format, int compressionLevel, OutputStream outputStream, ConversionMetrics metrics) {
+        switch (format) {
+            case TAR:
+                return new TarResultWriter(outputStream, metrics);
+            case ZIP:
+            default:
+                return new AllureResultsZipWriter(outputStream, compressionLevel, metrics);
+        }
+    }
+}
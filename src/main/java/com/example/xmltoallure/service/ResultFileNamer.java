@@ -0,0 +1,63 @@
+package com.example.xmltoallure.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Выдает имена файлов *-result.json для тест-кейсов в порядке их записи.
+ * Недопустимые символы имени заменяются на _, при совпадении имен добавляется суффикс -1, -2 и т.д.
+ * Также помнит уже записанные файлы вложений, чтобы общее вложение попало в набор результатов один раз.
+ * Экземпляр хранит счетчики имен одного набора результатов и не является потокобезопасным.
+ */
+public class ResultFileNamer {
+
+    private final Map<String, Integer> fileNameCounts = new HashMap<>();
+    private final Set<String> writtenAttachments = new HashSet<>();
+    private final Set<String> reservedNames;
+
+    /**
+     * Создает счетчик имен для нового набора результатов.
+     */
+    public ResultFileNamer() {
+        this(Set.of());
+    }
+
+    /**
+     * Создает счетчик имен, который не выдает уже занятые имена файлов.
+     * Используется при инкрементальной конвертации, чтобы файлы неизмененных XML сохранили свои имена.
+     * @param reservedNames Занятые имена файлов результатов.
+     */
+    public ResultFileNamer(Set<String> reservedNames) {
+        this.reservedNames = reservedNames;
+    }
+
+    /**
+     * Возвращает имя файла для очередного тест-кейса.
+     * @param testCaseName Имя тест-кейса.
+     * @return Имя файла результата.
+     */
+    public String next(String testCaseName) {
+        String baseName = testCaseName.replaceAll("[^a-zA-Z0-9\\.\\-]", "_");
+
+        String fileName;
+        do {
+            int count = fileNameCounts.getOrDefault(baseName, 0);
+            String finalName = (count == 0) ? baseName : baseName + "-" + count;
+            fileNameCounts.put(baseName, count + 1);
+            fileName = finalName + "-result.json";
+        } while (reservedNames.contains(fileName));
+
+        return fileName;
+    }
+
+    /**
+     * Отмечает файл вложения как записанный.
+     * @param source Имя файла вложения.
+     * @return true, если вложение нужно записать: оно еще не записано и не входит в занятые имена.
+     */
+    public boolean claimAttachment(String source) {
+        return !reservedNames.contains(source) && writtenAttachments.add(source);
+    }
+}
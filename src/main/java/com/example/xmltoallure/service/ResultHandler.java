@@ -0,0 +1,24 @@
+package com.example.xmltoallure.service;
+
+import java.io.IOException;
+
+/**
+ * Обработчик сериализованных результатов пакетной конвертации.
+ */
+@FunctionalInterface
+public interface ResultHandler {
+
+    /**
+     * Обрабатывает очередной сериализованный тест-кейс.
+     * @param result Сериализованный тест-кейс.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    void handle(SerializedTestCase result) throws IOException;
+
+    /**
+     * Вызывается после передачи всех тест-кейсов очередного файла.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    default void flush() throws IOException {
+    }
+}
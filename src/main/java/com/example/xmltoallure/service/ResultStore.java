@@ -0,0 +1,31 @@
+package com.example.xmltoallure.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Хранилище сериализованных результатов конвертации до сборки итогового архива.
+ * Результаты воспроизводятся в том порядке, в котором были получены.
+ */
+public interface ResultStore extends ResultHandler, Closeable {
+
+    /**
+     * Передает все сохраненные результаты обработчику в исходном порядке.
+     * @param target Обработчик результатов.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    void replay(ResultHandler target) throws IOException;
+
+    /**
+     * Возвращает число сохраненных результатов.
+     * @return Число результатов.
+     */
+    long size();
+
+    /**
+     * Освобождает ресурсы хранилища (в том числе временные файлы).
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,40 @@
+package com.example.xmltoallure.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Создает хранилища результатов для запросов, которые собирают архив после окончания конвертации.
+ */
+@Component
+public class ResultStoreFactory {
+
+    private final long spillThresholdBytes;
+    private final Path directory;
+
+    /**
+     * Создает фабрику.
+     * @param spillThresholdBytes Объем JSON в памяти, после которого результаты переносятся на диск (меньше 0 - только память).
+     * @param directory Каталог для временных файлов (пусто - временный каталог системы).
+     */
+    public ResultStoreFactory(@Value("${converter.result-store.spill-threshold-bytes:67108864}") long spillThresholdBytes,
+                              @Value("${converter.result-store.directory:}") String directory) {
+        this.spillThresholdBytes = spillThresholdBytes;
+        this.directory = directory.isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "xml-to-allure-results")
+                : Paths.get(directory);
+    }
+
+    /**
+     * Создает новое хранилище результатов; его нужно закрыть после использования.
+     * @return Хранилище результатов.
+     */
+    public ResultStore create() {
+        return spillThresholdBytes < 0
+                ? new InMemoryResultStore()
+                : new SpillingResultStore(directory, spillThresholdBytes);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.xmltoallure.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тест-кейс, уже сериализованный в Allure JSON (UTF-8).
+ * @param name Имя тест-кейса, из которого строится имя файла результата.
+ * @param json Содержимое файла *-result.json.
+ * @param attachments Файлы вложений, на которые впервые в своем XML файле ссылается этот тест-кейс.
+ */
+public record SerializedTestCase(String name, byte[] json, List<AttachmentFile> attachments) {
+
+    /**
+     * Создает тест-кейс без вложений.
+     * @param name Имя тест-кейса.
+     * @param json Содержимое файла *-result.json.
+     */
+    public SerializedTestCase(String name, byte[] json) {
+        this(name, json, List.of());
+    }
+
+    /**
+     * Записывает тест-кейс в двоичном виде (длина и байты имени, длина и байты JSON, число вложений,
+     * затем имя и содержимое каждого вложения).
+     * @param out Поток для записи.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        writeBytes(out, name.getBytes(StandardCharsets.UTF_8));
+        writeBytes(out, json);
+        out.writeInt(attachments.size());
+        for (AttachmentFile attachment : attachments) {
+            writeBytes(out, attachment.source().getBytes(StandardCharsets.UTF_8));
+            writeBytes(out, attachment.content());
+        }
+    }
+
+    /**
+     * Читает тест-кейс, записанный методом writeTo.
+     * @param in Поток для чтения.
+     * @return Тест-кейс.
+     * @throws IOException Если произошла ошибка ввода-вывода или данные повреждены.
+     */
+    public static SerializedTestCase readFrom(DataInput in) throws IOException {
+        String name = new String(readBytes(in), StandardCharsets.UTF_8);
+        byte[] json = readBytes(in);
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupted serialized test case: negative attachment count " + count);
+        }
+        if (count == 0) {
+            return new SerializedTestCase(name, json);
+        }
+        List<AttachmentFile> attachments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            attachments.add(new AttachmentFile(new String(readBytes(in), StandardCharsets.UTF_8), readBytes(in)));
+        }
+        return new SerializedTestCase(name, json, List.copyOf(attachments));
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted serialized test case: negative length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
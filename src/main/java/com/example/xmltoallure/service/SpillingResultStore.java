@@ -0,0 +1,126 @@
+package com.example.xmltoallure.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Хранилище результатов, которое держит их в памяти до достижения порога,
+ * а затем переносит все результаты во временный файл и дописывает туда следующие.
+ * При воспроизведении файл читается последовательно, поэтому в памяти одновременно находится один результат.
+ * Экземпляр не является потокобезопасным.
+ */
+public class SpillingResultStore implements ResultStore {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final long thresholdBytes;
+    private final List<SerializedTestCase> memory = new ArrayList<>();
+    private long memoryBytes;
+    private long count;
+    private Path spillFile;
+    private DataOutputStream spillOut;
+
+    /**
+     * Создает хранилище.
+     * @param directory Каталог для временного файла.
+     * @param thresholdBytes Объем JSON в памяти, после которого результаты переносятся на диск.
+     */
+    public SpillingResultStore(Path directory, long thresholdBytes) {
+        this.directory = directory;
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    /**
+     * Сохраняет очередной результат.
+     * @param result Сериализованный тест-кейс.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void handle(SerializedTestCase result) throws IOException {
+        count++;
+        if (spillOut != null) {
+            result.writeTo(spillOut);
+            return;
+        }
+        memory.add(result);
+        memoryBytes += result.json().length;
+        if (memoryBytes > thresholdBytes) {
+            spill();
+        }
+    }
+
+    /**
+     * Передает все сохраненные результаты обработчику в исходном порядке.
+     * @param target Обработчик результатов.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void replay(ResultHandler target) throws IOException {
+        if (spillOut == null) {
+            for (SerializedTestCase result : memory) {
+                target.handle(result);
+            }
+            return;
+        }
+        spillOut.flush();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spillFile), BUFFER_SIZE))) {
+            for (long i = 0; i < count; i++) {
+                target.handle(SerializedTestCase.readFrom(in));
+            }
+        }
+    }
+
+    /**
+     * Возвращает число сохраненных результатов.
+     * @return Число результатов.
+     */
+    @Override
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Проверяет, были ли результаты перенесены на диск.
+     * @return true, если используется временный файл.
+     */
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * Освобождает память и удаляет временный файл.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void close() throws IOException {
+        memory.clear();
+        try {
+            if (spillOut != null) {
+                spillOut.close();
+            }
+        } finally {
+            if (spillFile != null) {
+                Files.deleteIfExists(spillFile);
+            }
+        }
+    }
+
+    private void spill() throws IOException {
+        Files.createDirectories(directory);
+        spillFile = Files.createTempFile(directory, "results-", ".bin");
+        spillOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile), BUFFER_SIZE));
+        for (SerializedTestCase result : memory) {
+            result.writeTo(spillOut);
+        }
+        memory.clear();
+        memoryBytes = 0;
+    }
+}
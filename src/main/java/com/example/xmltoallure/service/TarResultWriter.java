@@ -0,0 +1,160 @@
+package com.example.xmltoallure.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Записывает сериализованные тест-кейсы в несжатый tar-архив (USTAR) по мере их поступления.
+ * Данные не сжимаются, поэтому запись почти не тратит CPU; имена длиннее 100 байт передаются через PAX-заголовок.
+ * Экземпляр не является потокобезопасным.
+ */
+public class TarResultWriter implements ResultArchiveWriter {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int RECORD_SIZE = 20 * BLOCK_SIZE;
+    private static final int NAME_LENGTH = 100;
+
+    private final OutputStream outputStream;
+    private final ConversionMetrics metrics;
+    private final ResultFileNamer fileNamer = new ResultFileNamer();
+    private final long modificationTime = System.currentTimeMillis() / 1000;
+    private long written;
+
+    /**
+     * Создает writer поверх выходного потока.
+     * @param outputStream Поток, в который записывается tar-архив.
+     * @param metrics Метрики конвертации (время записи в архив).
+     */
+    public TarResultWriter(OutputStream outputStream, ConversionMetrics metrics) {
+        this.outputStream = outputStream;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Записывает тест-кейс отдельным файлом *-result.json, а перед ним - еще не записанные файлы его вложений.
+     * @param result Сериализованный тест-кейс.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void handle(SerializedTestCase result) throws IOException {
+        for (AttachmentFile attachment : result.attachments()) {
+            if (fileNamer.claimAttachment(attachment.source())) {
+                writeFile(attachment.source(), attachment.content());
+            }
+        }
+        writeFile(fileNamer.next(result.name()), result.json());
+    }
+
+    /**
+     * Записывает в архив файл с заданным именем.
+     * @param name Имя файла в архиве.
+     * @param content Содержимое файла.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void writeFile(String name, byte[] content) throws IOException {
+        long start = System.nanoTime();
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > NAME_LENGTH) {
+            writeEntry(paxName(nameBytes), paxRecord("path", name), (byte) 'x');
+        }
+        writeEntry(nameBytes, content, (byte) '0');
+        metrics.recordStage(ConversionMetrics.Stage.ZIP_WRITE, System.nanoTime() - start);
+    }
+
+    /**
+     * Передает уже записанные файлы в выходной поток.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+
+    /**
+     * Дописывает два нулевых блока окончания архива, дополняет архив до целой записи и закрывает поток.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            long end = written + 2 * BLOCK_SIZE;
+            long padding = 2 * BLOCK_SIZE + (RECORD_SIZE - end % RECORD_SIZE) % RECORD_SIZE;
+            outputStream.write(new byte[(int) padding]);
+            written += padding;
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void writeEntry(byte[] name, byte[] data, byte type) throws IOException {
+        outputStream.write(header(name, data.length, type));
+        outputStream.write(data);
+        int padding = (BLOCK_SIZE - data.length % BLOCK_SIZE) % BLOCK_SIZE;
+        if (padding > 0) {
+            outputStream.write(new byte[padding]);
+        }
+        written += BLOCK_SIZE + data.length + padding;
+    }
+
+    /**
+     * Формирует заголовок USTAR; имя обрезается до 100 байт (полное имя передается в PAX-заголовке).
+     */
+    private byte[] header(byte[] name, long size, byte type) {
+        byte[] header = new byte[BLOCK_SIZE];
+        System.arraycopy(name, 0, header, 0, Math.min(name.length, NAME_LENGTH));
+        octal(header, 100, 8, 0644);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, modificationTime);
+        header[156] = type;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+        header[263] = '0';
+        header[264] = '0';
+
+        // Контрольная сумма считается с полем checksum, заполненным пробелами
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        octal(header, 148, 7, checksum);
+        header[155] = ' ';
+        return header;
+    }
+
+    /**
+     * Записывает число в восьмеричном виде с ведущими нулями и завершающим NUL.
+     */
+    private static void octal(byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        int width = length - 1;
+        for (int i = 0; i < width; i++) {
+            int digit = i - (width - digits.length());
+            header[offset + i] = digit < 0 ? (byte) '0' : (byte) digits.charAt(digit);
+        }
+        header[offset + width] = 0;
+    }
+
+    private static byte[] paxName(byte[] name) {
+        byte[] prefix = "PaxHeaders/".getBytes(StandardCharsets.US_ASCII);
+        byte[] paxName = Arrays.copyOf(prefix, Math.min(NAME_LENGTH, prefix.length + name.length));
+        System.arraycopy(name, 0, paxName, prefix.length, paxName.length - prefix.length);
+        return paxName;
+    }
+
+    /**
+     * Формирует запись PAX "длина ключ=значение\n", где длина включает саму себя.
+     */
+    private static byte[] paxRecord(String key, String value) {
+        int payload = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int length = payload + Integer.toString(payload).length();
+        if (Integer.toString(length).length() != Integer.toString(payload).length()) {
+            length++;
+        }
+        return (length + " " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
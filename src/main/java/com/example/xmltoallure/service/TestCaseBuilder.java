@@ -0,0 +1,285 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.Attachment;
+import com.example.xmltoallure.model.Labels;
+import com.example.xmltoallure.model.ModelInterner;
+import com.example.xmltoallure.model.Parameter;
+import com.example.xmltoallure.model.TestCase;
+import com.example.xmltoallure.model.TestStep;
+import com.example.xmltoallure.parser.XmlElement;
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Однопроходный построитель TestCase: конечный автомат, который получает дочерние элементы test-case
+ * по одному в порядке документа и не требует ни повторного просмотра, ни буфера всех элементов.
+ * <p>
+ * Решение об описании "Установить дату и время" откладывается до build(): если в тест-кейсе оказался
+ * единственный dateTime перед первым шагом, шаг, который его уже получил, заменяется копией без подшага и параметра DateTime.
+ * <p>
+ * Повторяющиеся строки, листовые шаги и параметры берутся из ModelInterner, который может быть общим
+ * для всех тест-кейсов одного файла; эти неизменяемые экземпляры не копируются. Большие тела моков и запросов AttachmentExtractor выносит во вложения.
+ * <p>
+ * Экземпляр строит один тест-кейс и не является потокобезопасным.
+ */
+public class TestCaseBuilder {
+
+    private final String testCaseName;
+    private final List<Labels> labels;
+    private final ModelInterner interner;
+    private final AttachmentExtractor attachments;
+    private final List<TestStep> regularSteps = new ArrayList<>();
+    private final List<TestStep> mockSubSteps = new ArrayList<>();
+
+    private String pendingDateTime;
+    private String pendingRequestData;
+    private int dateTimeCount;
+    private String firstDateTime;
+    private boolean stepBeforeFirstDateTime;
+
+    /**
+     * Индекс шага, который получил первый dateTime, или -1; при единственном dateTime в начале шаг заменяется копией
+     * без данных о дате.
+     */
+    private int firstDateTimeStepIndex = -1;
+
+    /**
+     * Текущий шаг, к которому относятся идущие следом элементы a и responseData.
+     */
+    private List<TestStep> openSubSteps;
+    private List<TestStep> openExpectedResults;
+
+    /**
+     * Создает построитель тест-кейса.
+     * @param testCaseName Значение атрибута id элемента test-case.
+     * @param labels Метки для Allure отчета.
+     */
+    public TestCaseBuilder(String testCaseName, List<Labels> labels) {
+        this(testCaseName, labels, new ModelInterner());
+    }
+
+    /**
+     * Создает построитель тест-кейса с общим интернером.
+     * @param testCaseName Значение атрибута id элемента test-case.
+     * @param labels Метки для Allure отчета; список может быть общим для тест-кейсов и не изменяется.
+     * @param interner Интернер повторяющихся значений.
+     */
+    public TestCaseBuilder(String testCaseName, List<Labels> labels, ModelInterner interner) {
+        this(testCaseName, labels, interner, AttachmentExtractor.NONE);
+    }
+
+    /**
+     * Создает построитель тест-кейса с общими интернером и экстрактором вложений.
+     * @param testCaseName Значение атрибута id элемента test-case.
+     * @param labels Метки для Allure отчета; список может быть общим для тест-кейсов и не изменяется.
+     * @param interner Интернер повторяющихся значений.
+     * @param attachments Экстрактор вложений для больших тел моков и запросов.
+     */
+    public TestCaseBuilder(String testCaseName, List<Labels> labels, ModelInterner interner, AttachmentExtractor attachments) {
+        this.testCaseName = testCaseName;
+        this.labels = labels;
+        this.interner = interner;
+        this.attachments = attachments;
+    }
+
+    /**
+     * Обрабатывает очередной дочерний элемент test-case.
+     * @param element Дочерний элемент test-case.
+     */
+    public void accept(XmlElement element) {
+        String tagName = element.getName();
+
+        if (openExpectedResults != null) {
+            if ("a".equals(tagName)) {
+                openExpectedResults.add(interner.leafStep(
+                        "state = '" + element.getAttribute("state") + "' " + element.getText().trim(), null));
+                return;
+            }
+            if ("responseData".equals(tagName)) {
+                openExpectedResults.add(interner.leafStep(responseDataStepName(element), null));
+                return;
+            }
+            closeStep();
+        }
+
+        switch (tagName) {
+            case "dateTime":
+                dateTimeCount++;
+                pendingDateTime = interner.string(element.getText().trim());
+                if (dateTimeCount == 1) {
+                    firstDateTime = pendingDateTime;
+                    stepBeforeFirstDateTime = !regularSteps.isEmpty();
+                }
+                break;
+            case "requestData":
+                pendingRequestData = interner.string(element.getText().trim());
+                break;
+            case "mockData":
+                mockSubSteps.add(parseSingleMockSubStep(element));
+                break;
+            case "request":
+                openStep(element, null, "Отправить запрос:", true);
+                break;
+            case "q":
+                openStep(element, pendingRequestData, "Отправить текст в бота:\n", false);
+                break;
+            case "event":
+                openStep(element, pendingRequestData, "Вызвать ивент:\n", false);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Завершает построение тест-кейса.
+     * @return Объект TestCase.
+     */
+    public TestCase build() {
+        if (openExpectedResults != null) {
+            closeStep();
+        }
+
+        boolean singleDateTimeAtStart = dateTimeCount == 1 && !stepBeforeFirstDateTime;
+        String description = "";
+        if (singleDateTimeAtStart) {
+            description = "Установить дату и время\n" + firstDateTime;
+            if (firstDateTimeStepIndex >= 0) {
+                // Подшаг и параметр DateTime всегда добавляются первыми
+                TestStep step = regularSteps.get(firstDateTimeStepIndex);
+                regularSteps.set(firstDateTimeStepIndex, step.toBuilder()
+                        .steps(step.getSteps().subList(1, step.getSteps().size()))
+                        .parameters(step.getParameters().subList(1, step.getParameters().size()))
+                        .build());
+            }
+        }
+
+        List<TestStep> finalSteps = new ArrayList<>(regularSteps.size() + 1);
+        if (!mockSubSteps.isEmpty()) {
+            finalSteps.add(TestStep.builder()
+                .name("Создать моки")
+                .status("passed")
+                .steps(mockSubSteps)
+                .build());
+        }
+        finalSteps.addAll(regularSteps);
+
+        return TestCase.builder()
+                .name(testCaseName)
+                .fullName(testCaseName)
+                .description(description)
+                .status("passed")
+                .labels(labels)
+                .steps(finalSteps)
+                .build();
+    }
+
+    /**
+     * Создает шаг request, q или event и делает его текущим для последующих ожидаемых результатов.
+     * @param element Элемент шага.
+     * @param requestData Данные запроса (для request не используются).
+     * @param namePrefix Начало имени шага.
+     * @param isRequest Является ли шаг запросом.
+     */
+    private void openStep(XmlElement element, String requestData, String namePrefix, boolean isRequest) {
+        String body = element.getText().trim();
+
+        List<TestStep> subSteps = new ArrayList<>();
+        List<Parameter> mainParameters = new ArrayList<>();
+
+        if (pendingDateTime != null) {
+            subSteps.add(interner.leafStep("Перед шагом установить дату и время\n" + pendingDateTime, "passed"));
+            mainParameters.add(interner.parameter("DateTime", pendingDateTime));
+        }
+
+        if (requestData != null) {
+            subSteps.add(interner.leafStep("Установить значение\n" + requestData, "passed"));
+            mainParameters.add(interner.parameter("RequestData", requestData));
+        }
+
+        if (isRequest) {
+            Attachment bodyAttachment = attachments.extract("Body", body);
+            if (bodyAttachment != null) {
+                subSteps.add(TestStep.builder().name("Тело запроса:").status("passed").attachments(List.of(bodyAttachment)).build());
+            } else {
+                mainParameters.add(interner.parameter("Body", body));
+                TestStep bodySubStep = interner.leafStep(body, "passed");
+                subSteps.add(TestStep.builder().name("Тело запроса:").status("passed").steps(List.of(bodySubStep)).build());
+            }
+        }
+
+        TestStep mainStep = TestStep.builder()
+                .name(isRequest ? namePrefix : interner.string(namePrefix + body))
+                .status("passed")
+                .steps(subSteps)
+                .parameters(mainParameters)
+                .build();
+
+        if (pendingDateTime != null && dateTimeCount == 1 && !stepBeforeFirstDateTime) {
+            firstDateTimeStepIndex = regularSteps.size();
+        }
+        regularSteps.add(mainStep);
+        openSubSteps = subSteps;
+        openExpectedResults = new ArrayList<>();
+        pendingDateTime = null;
+        pendingRequestData = null;
+    }
+
+    /**
+     * Закрывает текущий шаг, добавляя к нему собранные ожидаемые результаты.
+     */
+    private void closeStep() {
+        if (!openExpectedResults.isEmpty()) {
+            openSubSteps.add(TestStep.builder().name("Expected Result").steps(openExpectedResults).build());
+        }
+        openSubSteps = null;
+        openExpectedResults = null;
+    }
+
+    private String responseDataStepName(XmlElement element) {
+        String field = element.getAttribute("field");
+        String text = element.getText().trim();
+        if ("replies".equals(field)) {
+            return "Ожидаемое тело:\n" + text;
+        } else if (text.isEmpty()) {
+            return "Ключ " + field + " не равен NULL/существует в ответе";
+        } else {
+            return "Элемент тела\n" + field + "\nимеет значение\n" + text;
+        }
+    }
+
+    /**
+     * Парсит один подшаг мока.
+     * @param mockDataElement Элемент mockData.
+     * @return Объект TestStep.
+     */
+    private TestStep parseSingleMockSubStep(XmlElement mockDataElement) {
+        XmlElement queryElement = mockDataElement.getFirstDescendant("query");
+        XmlElement responseElement = mockDataElement.getFirstDescendant("response");
+        XmlElement paramsElement = mockDataElement.getFirstDescendant("parameters");
+
+        String urlTemplate = queryElement.getText().trim();
+        String finalUrl = UrlTemplate.compile(urlTemplate).expand(paramsElement);
+        String methodName = UrlTemplate.methodName(finalUrl);
+
+        List<Parameter> parameters = new ArrayList<>(4);
+        parameters.add(interner.parameter("Method", queryElement.getAttribute("method").toUpperCase()));
+        parameters.add(interner.parameter("URL", finalUrl));
+        parameters.add(interner.parameter("Status", responseElement.getAttribute("status")));
+        // Во вложение тело пишется как есть, без экранирования
+        String responseBody = responseElement.getText().trim();
+        Attachment bodyAttachment = attachments.extract("Body", responseBody);
+        if (bodyAttachment == null) {
+            parameters.add(interner.parameter("Body", StringEscapeUtils.escapeJson(responseBody)));
+        }
+
+        return TestStep.builder()
+                .name(interner.string(methodName))
+                .status("passed")
+                .parameters(parameters)
+                .attachments(bodyAttachment != null ? List.of(bodyAttachment) : null)
+                .build();
+    }
+}
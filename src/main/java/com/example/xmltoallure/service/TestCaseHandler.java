@@ -0,0 +1,19 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.TestCase;
+
+import java.io.IOException;
+
+/**
+ * Обработчик тест-кейсов, получаемых в процессе потоковой конвертации.
+ */
+@FunctionalInterface
+public interface TestCaseHandler {
+
+    /**
+     * Обрабатывает очередной сконвертированный тест-кейс.
+     * @param testCase Тест-кейс.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    void handle(TestCase testCase) throws IOException;
+}
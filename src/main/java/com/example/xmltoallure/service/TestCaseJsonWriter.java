@@ -0,0 +1,138 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.Attachment;
+import com.example.xmltoallure.model.Labels;
+import com.example.xmltoallure.model.Parameter;
+import com.example.xmltoallure.model.TestCase;
+import com.example.xmltoallure.model.TestStep;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Потоковая сериализация TestCase в Allure JSON через Gson JsonWriter.
+ * Пишет поля в том же порядке и с тем же экранированием, что и Gson с disableHtmlEscaping(),
+ * но без построения промежуточной строки для всего результата.
+ */
+public class TestCaseJsonWriter {
+
+    private final boolean prettyPrinting;
+
+    /**
+     * Создает сериализатор.
+     * @param prettyPrinting Форматировать ли JSON с отступами.
+     */
+    public TestCaseJsonWriter(boolean prettyPrinting) {
+        this.prettyPrinting = prettyPrinting;
+    }
+
+    /**
+     * Записывает тест-кейс в поток символов. Поток сбрасывается, но не закрывается.
+     * @param testCase Тест-кейс.
+     * @param out Поток символов.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    public void write(TestCase testCase, Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.setHtmlSafe(false);
+        if (prettyPrinting) {
+            json.setIndent("  ");
+        }
+        writeTestCase(json, testCase);
+        json.flush();
+    }
+
+    /**
+     * Сериализует тест-кейс в массив байтов UTF-8.
+     * @param testCase Тест-кейс.
+     * @return Содержимое файла *-result.json.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    public byte[] toBytes(TestCase testCase) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        write(testCase, new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+        return buffer.toByteArray();
+    }
+
+    private void writeTestCase(JsonWriter json, TestCase testCase) throws IOException {
+        json.beginObject();
+        writeString(json, "name", testCase.getName());
+        writeString(json, "fullName", testCase.getFullName());
+        writeString(json, "description", testCase.getDescription());
+        writeSteps(json, testCase.getSteps());
+        writeLabels(json, testCase.getLabels());
+        writeString(json, "status", testCase.getStatus());
+        json.endObject();
+    }
+
+    private void writeSteps(JsonWriter json, List<TestStep> steps) throws IOException {
+        if (steps == null) {
+            return;
+        }
+        json.name("steps").beginArray();
+        for (TestStep step : steps) {
+            json.beginObject();
+            writeString(json, "name", step.getName());
+            writeString(json, "status", step.getStatus());
+            writeSteps(json, step.getSteps());
+            writeParameters(json, step.getParameters());
+            writeAttachments(json, step.getAttachments());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private void writeParameters(JsonWriter json, List<Parameter> parameters) throws IOException {
+        if (parameters == null) {
+            return;
+        }
+        json.name("parameters").beginArray();
+        for (Parameter parameter : parameters) {
+            json.beginObject();
+            writeString(json, "name", parameter.getName());
+            writeString(json, "value", parameter.getValue());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private void writeAttachments(JsonWriter json, List<Attachment> attachments) throws IOException {
+        if (attachments == null) {
+            return;
+        }
+        json.name("attachments").beginArray();
+        for (Attachment attachment : attachments) {
+            json.beginObject();
+            writeString(json, "name", attachment.getName());
+            writeString(json, "source", attachment.getSource());
+            writeString(json, "type", attachment.getType());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private void writeLabels(JsonWriter json, List<Labels> labels) throws IOException {
+        if (labels == null) {
+            return;
+        }
+        json.name("labels").beginArray();
+        for (Labels label : labels) {
+            json.beginObject();
+            writeString(json, "name", label.getName());
+            writeString(json, "value", label.getValue());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private void writeString(JsonWriter json, String name, String value) throws IOException {
+        if (value != null) {
+            json.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.ConversionOptions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Отбирает тест-кейсы для конвертации: фильтры по имени XML файла и id тест-кейса (регулярные выражения,
+ * которым должно соответствовать значение целиком) и шард, в который попадает тест-кейс.
+ * Шард определяется стабильным хешем (FNV-1a) имени файла и id, поэтому на разных узлах с одинаковыми
+ * входными данными и числом шардов каждый тест-кейс попадает ровно в один шард, а все тест-кейсы
+ * с одинаковыми именем файла и id - в один и тот же.
+ * Экземпляр неизменяемый и потокобезопасный.
+ */
+public final class TestCaseSelector {
+
+    /**
+     * Отбирает все тест-кейсы всех файлов.
+     */
+    public static final TestCaseSelector ALL = new TestCaseSelector(0, 1, null, null, null, null);
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int shardIndex;
+    private final int shardCount;
+    private final Pattern includeTestCases;
+    private final Pattern excludeTestCases;
+    private final Pattern includeFiles;
+    private final Pattern excludeFiles;
+
+    private TestCaseSelector(int shardIndex, int shardCount, Pattern includeTestCases, Pattern excludeTestCases,
+                             Pattern includeFiles, Pattern excludeFiles) {
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.includeTestCases = includeTestCases;
+        this.excludeTestCases = excludeTestCases;
+        this.includeFiles = includeFiles;
+        this.excludeFiles = excludeFiles;
+    }
+
+    /**
+     * Создает селектор по параметрам конвертации.
+     * @param options Параметры конвертации.
+     * @return Селектор; ALL, если шардирование и фильтры не заданы.
+     * @throws IllegalArgumentException Если номер или число шардов недопустимы или регулярное выражение некорректно.
+     */
+    public static TestCaseSelector of(ConversionOptions options) {
+        int shardCount = options.getShardCount() > 0 ? options.getShardCount() : 1;
+        if (options.getShardIndex() < 0 || options.getShardIndex() >= shardCount) {
+            throw new IllegalArgumentException("Invalid shardIndex: " + options.getShardIndex() + ", expected 0.." + (shardCount - 1));
+        }
+        Pattern includeTestCases = compile("includeTestCases", options.getIncludeTestCases());
+        Pattern excludeTestCases = compile("excludeTestCases", options.getExcludeTestCases());
+        Pattern includeFiles = compile("includeFiles", options.getIncludeFiles());
+        Pattern excludeFiles = compile("excludeFiles", options.getExcludeFiles());
+        if (shardCount == 1 && includeTestCases == null && excludeTestCases == null && includeFiles == null && excludeFiles == null) {
+            return ALL;
+        }
+        return new TestCaseSelector(options.getShardIndex(), shardCount, includeTestCases, excludeTestCases, includeFiles, excludeFiles);
+    }
+
+    /**
+     * Проверяет, заданы ли шардирование или фильтры.
+     * @return true, если отбираются не все тест-кейсы.
+     */
+    public boolean isActive() {
+        return this != ALL;
+    }
+
+    /**
+     * Проверяет XML файл по фильтрам имени файла.
+     * @param fileName Имя XML файла (для записи ZIP-архива - имя файла без каталогов).
+     * @return true, если файл нужно конвертировать.
+     */
+    public boolean acceptsFile(String fileName) {
+        return matches(includeFiles, fileName, true) && !matches(excludeFiles, fileName, false);
+    }
+
+    /**
+     * Проверяет тест-кейс по фильтрам id и шарду.
+     * @param fileName Имя XML файла.
+     * @param testCaseId Значение атрибута id тест-кейса.
+     * @return true, если тест-кейс нужно конвертировать.
+     */
+    public boolean accepts(String fileName, String testCaseId) {
+        if (!matches(includeTestCases, testCaseId, true) || matches(excludeTestCases, testCaseId, false)) {
+            return false;
+        }
+        return shardCount == 1 || shardOf(fileName, testCaseId, shardCount) == shardIndex;
+    }
+
+    /**
+     * Возвращает имя тест-кейса для построения имени файла результата, не зависящее от шарда:
+     * к id добавляется хеш имени XML файла, поэтому тест-кейсы с одинаковым id из разных файлов
+     * не получают одинаковые имена файлов в разных шардах.
+     * @param fileName Имя XML файла.
+     * @param testCaseId Значение атрибута id тест-кейса.
+     * @return Имя для ResultFileNamer.
+     */
+    public String resultName(String fileName, String testCaseId) {
+        return testCaseId + "-" + String.format("%08x", (int) hash(fileName, ""));
+    }
+
+    /**
+     * Вычисляет номер шарда тест-кейса.
+     * @param fileName Имя XML файла.
+     * @param testCaseId Значение атрибута id тест-кейса.
+     * @param shardCount Число шардов.
+     * @return Номер шарда от 0 до shardCount - 1.
+     */
+    public static int shardOf(String fileName, String testCaseId, int shardCount) {
+        return (int) Long.remainderUnsigned(hash(fileName, testCaseId), shardCount);
+    }
+
+    private static long hash(String fileName, String testCaseId) {
+        long hash = FNV_OFFSET;
+        hash = update(hash, fileName != null ? fileName : "");
+        // Разделитель, которого нет в UTF-8 тексте: "ab" + "c" и "a" + "bc" дают разные хеши
+        hash = (hash ^ 0xff) * FNV_PRIME;
+        hash = update(hash, testCaseId != null ? testCaseId : "");
+        // Финальное перемешивание (из splitmix64), чтобы остаток от деления зависел от всех бит хеша
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    private static long update(long hash, String value) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static boolean matches(Pattern pattern, String value, boolean ifAbsent) {
+        return pattern == null ? ifAbsent : pattern.matcher(value != null ? value : "").matches();
+    }
+
+    private static Pattern compile(String parameter, String regex) {
+        if (regex == null || regex.isEmpty()) {
+            return null;
+        }
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid " + parameter + " pattern: " + e.getDescription(), e);
+        }
+    }
+}
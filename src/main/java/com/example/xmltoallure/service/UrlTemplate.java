@@ -0,0 +1,199 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.parser.XmlElement;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разобранный шаблон URL мока (текст элемента query) с плейсхолдерами ${имя}.
+ * Шаблон разбирается один раз и кешируется по тексту (LRU, не больше MAX_CACHED_TEMPLATES шаблонов),
+ * подстановка выполняется за один проход.
+ * Результат совпадает с последовательными String.replace("${" + key + "}", value) по всем параметрам.
+ */
+final class UrlTemplate {
+
+    /**
+     * Максимальное число шаблонов в кеше: при переполнении вытесняется шаблон, который дольше всех не использовался.
+     */
+    static final int MAX_CACHED_TEMPLATES = 10_000;
+    private static final Map<String, UrlTemplate> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, UrlTemplate> eldest) {
+            return size() > MAX_CACHED_TEMPLATES;
+        }
+    };
+    private static final Pattern METHOD_NAME_PATTERN = Pattern.compile(".*/(.*?)(?:\\?.*)?$");
+
+    private final String template;
+    /**
+     * Текст между плейсхолдерами; всегда на один элемент больше, чем names.
+     */
+    private final String[] literals;
+    private final String[] names;
+    /**
+     * Содержит ли текст вне плейсхолдеров символы $, { или }: тогда однопроходная подстановка может
+     * отличаться от последовательной, и используется последовательная.
+     */
+    private final boolean literalsHaveDelimiters;
+
+    private UrlTemplate(String template, String[] literals, String[] names, boolean literalsHaveDelimiters) {
+        this.template = template;
+        this.literals = literals;
+        this.names = names;
+        this.literalsHaveDelimiters = literalsHaveDelimiters;
+    }
+
+    /**
+     * Возвращает разобранный шаблон, по возможности из кеша.
+     * @param template Текст шаблона.
+     * @return Разобранный шаблон.
+     */
+    static UrlTemplate compile(String template) {
+        UrlTemplate compiled;
+        synchronized (CACHE) {
+            compiled = CACHE.get(template);
+        }
+        if (compiled != null) {
+            return compiled;
+        }
+        // Разбор выполняется вне блокировки; если шаблон параллельно разобрал другой поток, остается его экземпляр
+        compiled = parse(template);
+        synchronized (CACHE) {
+            UrlTemplate existing = CACHE.putIfAbsent(template, compiled);
+            return existing != null ? existing : compiled;
+        }
+    }
+
+    /**
+     * Подставляет значения параметров вместо плейсхолдеров.
+     * Для каждого плейсхолдера используется первый дочерний элемент parameters с таким именем;
+     * плейсхолдеры без параметра остаются как есть.
+     * @param paramsElement Элемент parameters или null.
+     * @return URL с замененными параметрами.
+     */
+    String expand(XmlElement paramsElement) {
+        if (paramsElement == null || names.length == 0) {
+            return template;
+        }
+        List<XmlElement> params = paramsElement.getChildren();
+        List<String> values = new ArrayList<>(params.size());
+        boolean valuesHaveDelimiters = false;
+        for (XmlElement param : params) {
+            String value = param.getText().trim();
+            valuesHaveDelimiters |= hasDelimiters(value);
+            values.add(value);
+        }
+        if (literalsHaveDelimiters || valuesHaveDelimiters) {
+            return expandSequentially(params, values);
+        }
+
+        StringBuilder result = new StringBuilder(template.length() + 16 * names.length);
+        for (int i = 0; i < names.length; i++) {
+            result.append(literals[i]);
+            String value = lookup(params, values, names[i]);
+            if (value != null) {
+                result.append(value);
+            } else {
+                result.append("${").append(names[i]).append('}');
+            }
+        }
+        return result.append(literals[names.length]).toString();
+    }
+
+    /**
+     * Извлекает имя метода из URL: последний сегмент пути без строки запроса.
+     * @param url URL.
+     * @return Имя метода или unknown_method, если в URL нет символа /.
+     */
+    static String methodName(String url) {
+        if (hasLineTerminator(url)) {
+            // Точка в регулярном выражении не совпадает с переводом строки; такие URL разбираются как раньше
+            Matcher matcher = METHOD_NAME_PATTERN.matcher(url);
+            return matcher.find() ? matcher.group(1) : "unknown_method";
+        }
+        int slash = url.lastIndexOf('/');
+        if (slash < 0) {
+            return "unknown_method";
+        }
+        int query = url.indexOf('?', slash + 1);
+        return query < 0 ? url.substring(slash + 1) : url.substring(slash + 1, query);
+    }
+
+    private String expandSequentially(List<XmlElement> params, List<String> values) {
+        String result = template;
+        for (int i = 0; i < params.size(); i++) {
+            result = result.replace("${" + params.get(i).getName() + "}", values.get(i));
+        }
+        return result;
+    }
+
+    private static String lookup(List<XmlElement> params, List<String> values, String name) {
+        for (int i = 0; i < params.size(); i++) {
+            if (name.equals(params.get(i).getName())) {
+                return values.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Разбирает шаблон на текст и плейсхолдеры ${имя}, где имя не содержит символов $, { и }.
+     */
+    private static UrlTemplate parse(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        boolean literalsHaveDelimiters = false;
+        StringBuilder literal = new StringBuilder();
+        int length = template.length();
+        int i = 0;
+        while (i < length) {
+            char c = template.charAt(i);
+            if (c == '$' && i + 1 < length && template.charAt(i + 1) == '{') {
+                int end = i + 2;
+                while (end < length && !isDelimiter(template.charAt(end))) {
+                    end++;
+                }
+                if (end < length && template.charAt(end) == '}') {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    names.add(template.substring(i + 2, end));
+                    i = end + 1;
+                    continue;
+                }
+            }
+            literalsHaveDelimiters |= isDelimiter(c);
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString());
+        return new UrlTemplate(template, literals.toArray(new String[0]), names.toArray(new String[0]), literalsHaveDelimiters);
+    }
+
+    private static boolean hasDelimiters(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (isDelimiter(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '$' || c == '{' || c == '}';
+    }
+
+    private static boolean hasLineTerminator(String url) {
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
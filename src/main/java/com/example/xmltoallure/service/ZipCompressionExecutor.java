@@ -0,0 +1,66 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.OutputFormat;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул потоков для параллельного сжатия записей ZIP-архива с результатами, общий для всех запросов.
+ * Создает writer архива: ZIP со сжатием пишется через ParallelZipWriter, остальные форматы и ZIP без сжатия -
+ * последовательно, как в ResultArchiveWriter.open.
+ */
+@Component
+public class ZipCompressionExecutor implements DisposableBean {
+
+    private final ExecutorService executor;
+    private final int threads;
+
+    /**
+     * Создает пул сжатия.
+     * @param threads Количество потоков (0 - по числу доступных процессоров, 1 - сжатие в потоке записи архива).
+     */
+    public ZipCompressionExecutor(@Value("${converter.zip.compression-threads:0}") int threads) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        if (this.threads > 1) {
+            AtomicInteger threadCounter = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+                Thread thread = new Thread(runnable, "zip-compression-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Создает writer архива нужного формата.
+     * @param format Формат архива.
+     * @param compressionLevel Уровень сжатия ZIP от 0 (без сжатия) до 9 или -1 (по умолчанию); для tar не используется.
+     * @param outputStream Поток, в который записывается архив.
+     * @param metrics Метрики конвертации.
+     * @return Writer архива.
+     */
+    public ResultArchiveWriter open(OutputFormat format, int compressionLevel, OutputStream outputStream, ConversionMetrics metrics) {
+        if (format == OutputFormat.ZIP && compressionLevel != 0 && executor != null) {
+            return new ParallelZipWriter(outputStream, compressionLevel, executor, threads, metrics);
+        }
+        return ResultArchiveWriter.open(format, compressionLevel, outputStream, metrics);
+    }
+
+    /**
+     * Останавливает пул потоков при завершении приложения.
+     */
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.xmltoallure.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Определяет суммарный распакованный размер XML записей ZIP-архива по его центральному каталогу, не распаковывая записи.
+ * Читаются только конец архива и центральный каталог (в том числе в формате ZIP64).
+ * Размеры берутся из заголовков архива и не проверяются, поэтому годятся только для оценки.
+ */
+final class ZipEntrySizes {
+
+    private static final int END = 0x06054b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_END = 0x06064b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final long MAGIC = 0xFFFFFFFFL;
+    /**
+     * Центральный каталог больше этого размера не читается: оценка строится по размеру архива.
+     */
+    private static final long MAX_CENTRAL_DIRECTORY_BYTES = 64L * 1024 * 1024;
+
+    private ZipEntrySizes() {
+    }
+
+    /**
+     * Суммирует распакованные размеры XML записей архива.
+     * @param source ZIP-архив.
+     * @return Суммарный размер в байтах или -1, если центральный каталог не найден, поврежден или слишком велик.
+     * @throws IOException Если не удалось прочитать архив.
+     */
+    static long inflatedXmlBytes(ConversionSource source) throws IOException {
+        long size = source.getSize();
+        int tailLength = (int) Math.min(size, END_SIZE + 0xFFFF + ZIP64_LOCATOR_SIZE);
+        long tailStart = size - tailLength;
+        if (tailLength < END_SIZE) {
+            return -1;
+        }
+        ByteBuffer tail = buffer(read(source, tailStart, tailLength));
+
+        int end = -1;
+        for (int i = tailLength - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            return -1;
+        }
+        long centralSize = Integer.toUnsignedLong(tail.getInt(end + 12));
+        long centralOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+        if (centralSize == MAGIC || centralOffset == MAGIC || Short.toUnsignedInt(tail.getShort(end + 10)) == 0xFFFF) {
+            int locator = end - ZIP64_LOCATOR_SIZE;
+            if (locator < 0 || tail.getInt(locator) != ZIP64_LOCATOR) {
+                return -1;
+            }
+            long zip64End = tail.getLong(locator + 8);
+            if (zip64End < 0 || zip64End + ZIP64_END_SIZE > size) {
+                return -1;
+            }
+            ByteBuffer record = zip64End >= tailStart
+                    ? slice(tail, (int) (zip64End - tailStart), ZIP64_END_SIZE)
+                    : buffer(read(source, zip64End, ZIP64_END_SIZE));
+            if (record.getInt(0) != ZIP64_END) {
+                return -1;
+            }
+            centralSize = record.getLong(40);
+            centralOffset = record.getLong(48);
+        }
+        if (centralSize < 0 || centralSize > MAX_CENTRAL_DIRECTORY_BYTES || centralOffset < 0 || centralOffset + centralSize > size) {
+            return -1;
+        }
+        ByteBuffer central = centralOffset >= tailStart
+                ? slice(tail, (int) (centralOffset - tailStart), (int) centralSize)
+                : buffer(read(source, centralOffset, (int) centralSize));
+        return sumXmlEntries(central);
+    }
+
+    private static long sumXmlEntries(ByteBuffer central) {
+        long total = 0;
+        int position = 0;
+        while (position + 46 <= central.limit()) {
+            if (central.getInt(position) != CENTRAL_HEADER) {
+                return -1;
+            }
+            long uncompressed = Integer.toUnsignedLong(central.getInt(position + 24));
+            int nameLength = Short.toUnsignedInt(central.getShort(position + 28));
+            int extraLength = Short.toUnsignedInt(central.getShort(position + 30));
+            int commentLength = Short.toUnsignedInt(central.getShort(position + 32));
+            int next = position + 46 + nameLength + extraLength + commentLength;
+            if (next > central.limit()) {
+                return -1;
+            }
+            byte[] name = new byte[nameLength];
+            central.get(position + 46, name);
+            if (new String(name, StandardCharsets.UTF_8).toLowerCase().endsWith(".xml")) {
+                if (uncompressed == MAGIC) {
+                    uncompressed = zip64Size(central, position + 46 + nameLength, extraLength);
+                    if (uncompressed < 0) {
+                        return -1;
+                    }
+                }
+                total += uncompressed;
+            }
+            position = next;
+        }
+        return position == central.limit() ? total : -1;
+    }
+
+    /**
+     * Читает распакованный размер из дополнительного поля ZIP64 (первое значение поля 0x0001).
+     */
+    private static long zip64Size(ByteBuffer central, int extraStart, int extraLength) {
+        int position = extraStart;
+        int extraEnd = extraStart + extraLength;
+        while (position + 4 <= extraEnd) {
+            int id = Short.toUnsignedInt(central.getShort(position));
+            int length = Short.toUnsignedInt(central.getShort(position + 2));
+            if (id == 0x0001 && length >= 8 && position + 12 <= extraEnd) {
+                return central.getLong(position + 4);
+            }
+            position += 4 + length;
+        }
+        return -1;
+    }
+
+    private static byte[] read(ConversionSource source, long offset, int length) throws IOException {
+        try (InputStream is = source.openStream()) {
+            is.skipNBytes(offset);
+            byte[] bytes = is.readNBytes(length);
+            if (bytes.length != length) {
+                throw new IOException("Unexpected end of zip archive " + source.getFileName());
+            }
+            return bytes;
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        return buffer.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static ByteBuffer buffer(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.xmltoallure.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Код завершения CLI: файлы, которые не удалось сконвертировать, не должны оставаться незамеченными в CI.
+ */
+class ConverterCliTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void failedFileGivesNonZeroExitCode() throws Exception {
+        Path valid = Files.writeString(directory.resolve("valid.xml"), "<test><test-case id=\"a\"/></test>");
+        Path broken = Files.writeString(directory.resolve("broken.xml"), "<test><test-case id=\"b\">");
+        Path output = directory.resolve("out");
+
+        assertEquals(0, ConverterCli.run(new String[] {"--output=" + output, valid.toString()}));
+        assertEquals(3, ConverterCli.run(new String[] {"--output=" + output, valid.toString(), broken.toString()}));
+        assertTrue(Files.exists(output.resolve("conversion-report.json")));
+    }
+
+    @Test
+    void failedFileInIncrementalModeGivesNonZeroExitCode() throws Exception {
+        Path broken = Files.writeString(directory.resolve("broken.xml"), "<test><test-case id=\"b\">");
+
+        assertEquals(3, ConverterCli.run(new String[] {"--incremental=true", "--output=" + directory.resolve("out"), broken.toString()}));
+    }
+}
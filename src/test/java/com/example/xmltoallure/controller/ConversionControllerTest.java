@@ -0,0 +1,128 @@
+package com.example.xmltoallure.controller;
+
+import com.example.xmltoallure.parser.XmlParserPool;
+import com.example.xmltoallure.service.BatchConversionService;
+import com.example.xmltoallure.service.ConversionAdmission;
+import com.example.xmltoallure.service.ConversionCache;
+import com.example.xmltoallure.service.ConversionExecutor;
+import com.example.xmltoallure.service.ConversionLimitException;
+import com.example.xmltoallure.service.ConversionLimits;
+import com.example.xmltoallure.service.ConversionMetrics;
+import com.example.xmltoallure.service.ConversionService;
+import com.example.xmltoallure.service.NdjsonResultWriter;
+import com.example.xmltoallure.service.ResultStoreFactory;
+import com.example.xmltoallure.service.ZipCompressionExecutor;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Эндпоинт NDJSON: последняя строка ответа - отчет о конвертации или, если конвертация прервалась, ошибка.
+ */
+class ConversionControllerTest {
+
+    @TempDir
+    Path directory;
+
+    private final ConversionMetrics metrics = new ConversionMetrics(new SimpleMeterRegistry());
+    private ConversionExecutor executor;
+    private ZipCompressionExecutor zipCompressionExecutor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ConversionExecutor(2, 256L << 20);
+        zipCompressionExecutor = new ZipCompressionExecutor(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+        zipCompressionExecutor.destroy();
+    }
+
+    @Test
+    void ndjsonEndsWithConversionReport() throws IOException {
+        List<MultipartFile> files = List.of(
+                xml("first.xml", "<test><test-case id=\"a\"/><test-case id=\"b\"/></test>"),
+                xml("broken.xml", "<test><test-case id=\"c\">"));
+
+        List<String> lines = ndjson(controller(ConversionLimits.defaults()), files);
+
+        assertEquals(3, lines.size());
+        assertEquals("a", JsonParser.parseString(lines.get(0)).getAsJsonObject().get("name").getAsString());
+        assertEquals("b", JsonParser.parseString(lines.get(1)).getAsJsonObject().get("name").getAsString());
+        JsonObject report = JsonParser.parseString(lines.get(2)).getAsJsonObject()
+                .getAsJsonObject(NdjsonResultWriter.REPORT_FIELD);
+        assertEquals(2, report.get("totalFiles").getAsInt());
+        assertEquals(1, report.get("failedFiles").getAsInt());
+        assertEquals(2, report.get("testCases").getAsInt());
+    }
+
+    /**
+     * Лимит архива прерывает конвертацию: вместо отчета последней строкой записывается ошибка с именем лимита.
+     */
+    @Test
+    void ndjsonEndsWithErrorWhenConversionIsAborted() throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(zip)) {
+            for (String name : List.of("first.xml", "second.xml")) {
+                zos.putNextEntry(new ZipEntry(name));
+                zos.write("<test><test-case id=\"z\"/></test>".getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+        }
+        List<MultipartFile> files = List.of(
+                xml("first.xml", "<test><test-case id=\"a\"/></test>"),
+                new MockMultipartFile("files", "tests.zip", "application/zip", zip.toByteArray()));
+
+        List<String> lines = ndjson(controller(new ConversionLimits(0, 0, 1, 0, 0, 0)), files);
+
+        JsonObject error = JsonParser.parseString(lines.get(lines.size() - 1)).getAsJsonObject();
+        assertTrue(error.has("error"));
+        assertEquals(ConversionLimitException.Limit.ENTRIES.getTag(), error.get("limit").getAsString());
+        assertFalse(lines.stream().anyMatch(line -> line.contains(NdjsonResultWriter.REPORT_FIELD)));
+    }
+
+    private List<String> ndjson(ConversionController controller, List<MultipartFile> files) throws IOException {
+        ResponseEntity<StreamingResponseBody> response = controller.convertXmlToAllureNdjson(files, new ConversionParams(),
+                new MockHttpServletRequest());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+        String text = body.toString(StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\n"));
+        return new ArrayList<>(List.of(text.split("\n")));
+    }
+
+    private ConversionController controller(ConversionLimits limits) throws IOException {
+        BatchConversionService batchConversionService = new BatchConversionService(
+                new ConversionService(new XmlParserPool(), metrics, limits), executor, new ConversionCache(false, 0, "", 0), metrics, limits);
+        return new ConversionController(batchConversionService, metrics, new ResultStoreFactory(1 << 20, directory.toString()),
+                zipCompressionExecutor, new ConversionAdmission(false, 0, 3, 16, 1000, 0, "", 10));
+    }
+
+    private static MockMultipartFile xml(String fileName, String content) {
+        return new MockMultipartFile("files", fileName, "text/xml", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
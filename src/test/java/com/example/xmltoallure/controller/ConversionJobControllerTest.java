@@ -0,0 +1,157 @@
+package com.example.xmltoallure.controller;
+
+import com.example.xmltoallure.model.ConversionJobState;
+import com.example.xmltoallure.model.ConversionJobStatus;
+import com.example.xmltoallure.parser.XmlParserPool;
+import com.example.xmltoallure.service.BatchConversionService;
+import com.example.xmltoallure.service.ConversionCache;
+import com.example.xmltoallure.service.ConversionExecutor;
+import com.example.xmltoallure.service.ConversionJobService;
+import com.example.xmltoallure.service.ConversionLimits;
+import com.example.xmltoallure.service.ConversionMetrics;
+import com.example.xmltoallure.service.ConversionService;
+import com.example.xmltoallure.service.ZipCompressionExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Асинхронные задачи: заполненная очередь отклоняется с 429, а истекшие задачи удаляются вместе с каталогом.
+ */
+class ConversionJobControllerTest {
+
+    private static final long BUDGET_BYTES = 1024;
+
+    @TempDir
+    Path directory;
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private ConversionExecutor executor;
+    private ZipCompressionExecutor zipCompressionExecutor;
+    private ConversionJobService jobService;
+    private ConversionJobController controller;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ConversionMetrics metrics = new ConversionMetrics(new SimpleMeterRegistry());
+        ConversionLimits limits = ConversionLimits.defaults();
+        executor = new ConversionExecutor(1, BUDGET_BYTES);
+        zipCompressionExecutor = new ZipCompressionExecutor(1);
+        BatchConversionService batchConversionService = new BatchConversionService(
+                new ConversionService(new XmlParserPool(), metrics, limits), executor, new ConversionCache(false, 0, "", 0), metrics, limits);
+        // один обработчик, одно место в очереди, результаты истекают сразу после завершения задачи
+        jobService = new ConversionJobService(batchConversionService, metrics, zipCompressionExecutor, 1, 1, Duration.ZERO,
+                directory.toString());
+        controller = new ConversionJobController(jobService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        jobService.destroy();
+        zipCompressionExecutor.destroy();
+        executor.destroy();
+    }
+
+    /**
+     * Пока первая задача выполняется, а вторая ждет в очереди, третья отклоняется с 429 и Retry-After.
+     */
+    @Test
+    void fullQueueReturnsTooManyRequests() throws Exception {
+        occupyConversionExecutor();
+        ConversionJobStatus running = (ConversionJobStatus) submit().getBody();
+        awaitStatus(running.getId(), status -> status.getState() == ConversionJobState.RUNNING);
+        ResponseEntity<?> queued = submit();
+        assertEquals(202, queued.getStatusCode().value());
+
+        ResponseEntity<?> rejected = submit();
+
+        assertEquals(429, rejected.getStatusCode().value());
+        assertEquals("30", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(2, jobDirectories().size());
+
+        // незавершенные задачи не истекают
+        jobService.expireJobs();
+        assertEquals(2, jobDirectories().size());
+
+        unblock.countDown();
+        awaitStatus(running.getId(), status -> status.getState() == ConversionJobState.COMPLETED);
+        awaitStatus(((ConversionJobStatus) queued.getBody()).getId(), status -> status.getState() == ConversionJobState.COMPLETED);
+        assertEquals(202, submit().getStatusCode().value());
+    }
+
+    @Test
+    void expiredJobIsDeletedWithItsDirectory() throws Exception {
+        ConversionJobStatus submitted = (ConversionJobStatus) submit().getBody();
+        ConversionJobStatus finished = awaitStatus(submitted.getId(), status -> status.getFinishedAt() != null);
+        assertEquals(ConversionJobState.COMPLETED, finished.getState());
+        Path result = jobService.getResult(submitted.getId()).orElseThrow();
+        assertTrue(Files.exists(result));
+
+        jobService.expireJobs();
+
+        assertFalse(Files.exists(result.getParent()));
+        assertEquals(List.of(), jobDirectories());
+        assertTrue(jobService.getStatus(submitted.getId()).isEmpty());
+        assertEquals(404, controller.getJobStatus(submitted.getId()).getStatusCode().value());
+    }
+
+    /**
+     * Занимает весь бюджет и единственный поток пула конвертации, пока тест не отпустит блокировку.
+     */
+    private void occupyConversionExecutor() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.newBatch(result -> { }).submit(BUDGET_BYTES, () -> {
+            started.countDown();
+            unblock.await();
+            return List.of();
+        });
+        started.await();
+    }
+
+    private ResponseEntity<?> submit() {
+        List<MultipartFile> files = List.of(new MockMultipartFile("files", "tests.xml", "text/xml",
+                "<test><test-case id=\"a\"/></test>".getBytes(StandardCharsets.UTF_8)));
+        return controller.submitJob(files, new ArchiveConversionParams());
+    }
+
+    private ConversionJobStatus awaitStatus(String jobId, Predicate<ConversionJobStatus> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            ConversionJobStatus status = jobService.getStatus(jobId).orElseThrow();
+            if (condition.test(status)) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Job " + jobId + " did not reach the expected state");
+    }
+
+    private List<Path> jobDirectories() throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+    }
+}
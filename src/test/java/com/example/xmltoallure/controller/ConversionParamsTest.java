@@ -0,0 +1,50 @@
+package com.example.xmltoallure.controller;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Параметры запроса: значения по умолчанию и общая проверка уровня сжатия, шардирования и фильтров.
+ */
+class ConversionParamsTest {
+
+    @Test
+    void defaultsMatchRequestParameterDefaults() {
+        ArchiveConversionParams params = new ArchiveConversionParams();
+        params.setEpic("");
+
+        ConversionOptions options = params.toOptions();
+
+        assertNull(params.validationError());
+        assertEquals("JAICP", options.getEpic());
+        assertTrue(options.isPrettyPrinting());
+        assertEquals(0, options.getAttachmentThreshold());
+        assertEquals(0, options.getShardIndex());
+        assertEquals(1, options.getShardCount());
+
+        ConversionOptions ndjsonOptions = new ConversionParams().toOptions();
+        assertEquals("JAICP", ndjsonOptions.getEpic());
+        assertFalse(ndjsonOptions.isPrettyPrinting());
+    }
+
+    @Test
+    void invalidParametersAreReported() {
+        ArchiveConversionParams compression = new ArchiveConversionParams();
+        compression.setCompressionLevel(10);
+        assertEquals("Invalid compressionLevel: 10, expected -1..9", compression.validationError());
+
+        ArchiveConversionParams shard = new ArchiveConversionParams();
+        shard.setShardIndex(2);
+        shard.setShardCount(2);
+        assertEquals("Invalid shardIndex: 2, expected 0..1", shard.validationError());
+
+        ConversionParams filter = new ConversionParams();
+        filter.setIncludeTestCases("(");
+        assertTrue(filter.validationError().startsWith("Invalid includeTestCases pattern"), filter.validationError());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.parser.XmlParserPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+
+/**
+ * Общая для тестов сборка BatchConversionService без Spring: два потока конвертации, кеш выключен
+ * (если не передан свой), метрики в SimpleMeterRegistry. Закрытие останавливает пул потоков.
+ */
+final class BatchConversionFixture implements AutoCloseable {
+
+    private final ConversionMetrics metrics = new ConversionMetrics(new SimpleMeterRegistry());
+    private final ConversionExecutor executor = new ConversionExecutor(2, 256L << 20);
+    private final BatchConversionService service;
+
+    private BatchConversionFixture(ConversionLimits limits, ConversionCache cache) {
+        this.service = new BatchConversionService(new ConversionService(new XmlParserPool(), metrics, limits), executor,
+                cache, metrics, limits);
+    }
+
+    /**
+     * Создает сервис с лимитами по умолчанию и выключенным кешем.
+     * @return Новая сборка.
+     * @throws IOException Не выбрасывается для выключенного кеша.
+     */
+    static BatchConversionFixture create() throws IOException {
+        return create(ConversionLimits.defaults());
+    }
+
+    /**
+     * Создает сервис с заданными лимитами и выключенным кешем.
+     * @param limits Лимиты на входные данные.
+     * @return Новая сборка.
+     * @throws IOException Не выбрасывается для выключенного кеша.
+     */
+    static BatchConversionFixture create(ConversionLimits limits) throws IOException {
+        return new BatchConversionFixture(limits, new ConversionCache(false, 0, "", 0));
+    }
+
+    /**
+     * Создает сервис с лимитами по умолчанию и заданным кешем.
+     * @param cache Кеш результатов.
+     * @return Новая сборка.
+     */
+    static BatchConversionFixture create(ConversionCache cache) {
+        return new BatchConversionFixture(ConversionLimits.defaults(), cache);
+    }
+
+    BatchConversionService service() {
+        return service;
+    }
+
+    /**
+     * Формирует XML с тест-кейсами из одного шага q.
+     * @param ids Значения атрибута id тест-кейсов.
+     * @return Содержимое XML файла.
+     */
+    static String testCases(String... ids) {
+        StringBuilder xml = new StringBuilder("<test>");
+        for (String id : ids) {
+            xml.append("<test-case id=\"").append(id).append("\"><q>Привет</q></test-case>");
+        }
+        return xml.append("</test>").toString();
+    }
+
+    @Override
+    public void close() {
+        executor.destroy();
+    }
+}
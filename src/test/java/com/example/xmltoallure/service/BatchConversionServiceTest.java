@@ -0,0 +1,203 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import com.example.xmltoallure.model.ConversionReport;
+import com.example.xmltoallure.model.FileConversionResult;
+import com.example.xmltoallure.model.FileConversionStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.example.xmltoallure.service.BatchConversionFixture.testCases;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Пакетная конвертация: лимиты XML отдельного файла не прерывают запрос, лимиты архива проверяются для всех записей.
+ */
+class BatchConversionServiceTest {
+
+    private static final int MAX_XML_DEPTH = 8;
+
+    @TempDir
+    Path directory;
+
+    private BatchConversionFixture fixture;
+    private BatchConversionService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fixture = BatchConversionFixture.create(
+                new ConversionLimits(8L << 30, 512L << 20, 100_000, 100, MAX_XML_DEPTH, 10_000_000));
+        service = fixture.service();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void xmlFileOverDepthLimitIsReportedAsFailed() throws Exception {
+        List<ConversionSource> sources = List.of(
+                source("first.xml", testCases("a")),
+                source("deep.xml", deepXml()),
+                source("last.xml", testCases("b")));
+        List<String> names = new ArrayList<>();
+
+        ConversionReport report = service.convertSources(sources, ConversionOptions.builder().build(), result -> names.add(result.name()));
+
+        assertEquals(List.of("a", "b"), names);
+        assertEquals(1, report.getFailedFiles());
+        assertConverted(report.getFiles().get(0));
+        assertRejected(report.getFiles().get(1));
+        assertConverted(report.getFiles().get(2));
+    }
+
+    @Test
+    void zipEntryOverDepthLimitIsReportedAsFailed() throws Exception {
+        Path zip = directory.resolve("tests.zip");
+        try (OutputStream os = Files.newOutputStream(zip);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zipEntry(zos, "first.xml", testCases("a"));
+            zipEntry(zos, "deep.xml", deepXml());
+            zipEntry(zos, "last.xml", testCases("b"));
+        }
+        List<String> names = new ArrayList<>();
+
+        ConversionReport report = service.convertSources(List.of(ConversionSource.of(zip, "tests.zip")),
+                ConversionOptions.builder().build(), result -> names.add(result.name()));
+
+        assertEquals(List.of("a", "b"), names);
+        assertEquals(3, report.getTotalFiles());
+        assertEquals("tests.zip!/deep.xml", report.getFiles().get(1).getFileName());
+        assertRejected(report.getFiles().get(1));
+    }
+
+    /**
+     * Записи, которые не конвертируются (не XML и XML, исключенные фильтром), распаковываются с проверкой
+     * лимита на размер записи.
+     */
+    @Test
+    void skippedEntryOverEntryLimitRejectsArchive() throws Exception {
+        try (BatchConversionFixture limited = BatchConversionFixture.create(new ConversionLimits(0, 1 << 20, 0, 0, 0, 0))) {
+            for (String skippedName : List.of("payload.bin", "excluded.xml")) {
+                Path zip = directory.resolve("skipped.zip");
+                try (OutputStream os = Files.newOutputStream(zip);
+                     ZipOutputStream zos = new ZipOutputStream(os)) {
+                    zipEntry(zos, "first.xml", testCases("a"));
+                    zipEntry(zos, skippedName, new byte[2 << 20]);
+                }
+                ConversionOptions options = ConversionOptions.builder().excludeFiles("excluded\\.xml").build();
+
+                ConversionLimitException e = assertThrows(ConversionLimitException.class, () -> limited.service()
+                        .convertSources(List.of(ConversionSource.of(zip, "skipped.zip")), options, result -> { }));
+
+                assertEquals(ConversionLimitException.Limit.ENTRY_BYTES, e.getLimit());
+                assertEquals("skipped.zip!/" + skippedName, e.getSource());
+            }
+        }
+    }
+
+    @Test
+    void skippedEntriesCountTowardsTotalInflatedBytes() throws Exception {
+        try (BatchConversionFixture limited = BatchConversionFixture.create(new ConversionLimits(1 << 20, 0, 0, 0, 0, 0))) {
+            Path zip = directory.resolve("payload.zip");
+            try (OutputStream os = Files.newOutputStream(zip);
+                 ZipOutputStream zos = new ZipOutputStream(os)) {
+                zipEntry(zos, "first.bin", new byte[600 << 10]);
+                zipEntry(zos, "second.bin", new byte[600 << 10]);
+            }
+
+            ConversionLimitException e = assertThrows(ConversionLimitException.class, () -> limited.service()
+                    .convertSources(List.of(ConversionSource.of(zip, "payload.zip")), ConversionOptions.builder().build(), result -> { }));
+
+            assertEquals(ConversionLimitException.Limit.TOTAL_INFLATED_BYTES, e.getLimit());
+        }
+    }
+
+    /**
+     * Поврежденная запись дискового кеша не приводит к ошибке файла или запроса: файл конвертируется заново.
+     */
+    @Test
+    void corruptDiskCacheEntryFallsBackToConversion() throws Exception {
+        Path cacheDirectory = directory.resolve("cache");
+        Path zip = directory.resolve("tests.zip");
+        try (OutputStream os = Files.newOutputStream(zip);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zipEntry(zos, "zipped.xml", testCases("b"));
+        }
+        List<ConversionSource> sources = List.of(source("plain.xml", testCases("a")), ConversionSource.of(zip, "tests.zip"));
+        ConversionOptions options = ConversionOptions.builder().build();
+        try (BatchConversionFixture cached = BatchConversionFixture.create(
+                new ConversionCache(true, 1 << 20, cacheDirectory.toString(), 1 << 20))) {
+            cached.service().convertSources(sources, options, result -> { });
+        }
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            entries = files.collect(Collectors.toList());
+        }
+        assertEquals(2, entries.size());
+        for (Path entry : entries) {
+            // одна запись с отрицательной длиной имени
+            Files.write(entry, new byte[] {0, 0, 0, 1, -1, -1, -1, -1});
+        }
+        List<String> names = new ArrayList<>();
+
+        try (BatchConversionFixture cached = BatchConversionFixture.create(
+                new ConversionCache(true, 1 << 20, cacheDirectory.toString(), 1 << 20))) {
+            ConversionReport report = cached.service().convertSources(sources, options, result -> names.add(result.name()));
+
+            assertEquals(List.of("a", "b"), names);
+            assertEquals(0, report.getFailedFiles());
+            assertConverted(report.getFiles().get(0));
+            assertConverted(report.getFiles().get(1));
+        }
+    }
+
+    private static void assertConverted(FileConversionResult result) {
+        assertEquals(FileConversionStatus.CONVERTED, result.getStatus());
+        assertEquals(1, result.getTestCases());
+        assertNull(result.getLimit());
+    }
+
+    private static void assertRejected(FileConversionResult result) {
+        assertEquals(FileConversionStatus.FAILED, result.getStatus());
+        assertEquals(ConversionLimitException.Limit.XML_DEPTH.getTag(), result.getLimit());
+        assertEquals(0, result.getTestCases());
+    }
+
+    private ConversionSource source(String fileName, String xml) throws IOException {
+        Path path = directory.resolve(fileName);
+        Files.writeString(path, xml);
+        return ConversionSource.of(path, fileName);
+    }
+
+    private static void zipEntry(ZipOutputStream zos, String name, String xml) throws IOException {
+        zipEntry(zos, name, xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void zipEntry(ZipOutputStream zos, String name, byte[] content) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(content);
+        zos.closeEntry();
+    }
+
+    private static String deepXml() {
+        return "<test><test-case id=\"deep\">" + "<x>".repeat(MAX_XML_DEPTH) + "</x>".repeat(MAX_XML_DEPTH) + "</test-case></test>";
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.xmltoallure.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Ограничение одновременных запросов одного клиента.
+ */
+class ConversionAdmissionTest {
+
+    private static final int MAX_CONCURRENT_PER_CLIENT = 2;
+
+    /**
+     * Без заголовка с идентификатором клиента запросы с одного адреса (например, от ingress) не ограничиваются.
+     */
+    @Test
+    void requestsFromOneAddressAreNotLimitedWithoutClientHeader() {
+        ConversionAdmission admission = admission("");
+        List<ConversionAdmission.Permit> permits = new ArrayList<>();
+
+        for (int i = 0; i < MAX_CONCURRENT_PER_CLIENT * 3; i++) {
+            permits.add(admission.acquire(request(null), List.of()));
+        }
+
+        assertEquals(MAX_CONCURRENT_PER_CLIENT * 3, admission.getActive());
+        permits.forEach(ConversionAdmission.Permit::close);
+        assertEquals(0, admission.getActive());
+    }
+
+    @Test
+    void requestsOfOneClientAreLimitedByClientHeader() {
+        ConversionAdmission admission = admission("X-Client-Id");
+        List<ConversionAdmission.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < MAX_CONCURRENT_PER_CLIENT; i++) {
+            permits.add(admission.acquire(request("first"), List.of()));
+        }
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                () -> admission.acquire(request("first"), List.of()));
+
+        assertEquals("client", e.getReason());
+        admission.acquire(request("second"), List.of()).close();
+        admission.acquire(request(null), List.of()).close();
+        permits.get(0).close();
+        admission.acquire(request("first"), List.of()).close();
+    }
+
+    private static ConversionAdmission admission(String clientHeader) {
+        return new ConversionAdmission(true, 1 << 20, 3, 16, 1000, MAX_CONCURRENT_PER_CLIENT, clientHeader, 10);
+    }
+
+    private static MockHttpServletRequest request(String clientId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.1");
+        if (clientId != null) {
+            request.addHeader("X-Client-Id", clientId);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Кеш результатов конвертации: состав ключа, вытеснение и восстановление после поврежденной записи.
+ */
+class ConversionCacheTest {
+
+    private static final byte[] XML = "<test><test-case id=\"a\"/></test>".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Фильтры по имени файла не влияют на результат конвертации файла, который прошел фильтр, поэтому не входят в ключ.
+     */
+    @Test
+    void fileFiltersDoNotChangeKey() throws IOException {
+        ConversionCache cache = memoryCache(1 << 20);
+        ConversionOptions options = baseOptions().build();
+        cache.put(cache.key(XML, 0, XML.length, "a.xml", options), List.of(result("a")));
+
+        String key = cache.key(XML, 0, XML.length, "a.xml", baseOptions().includeFiles("a.*").excludeFiles("b.*").build());
+
+        assertNotNull(cache.get(key));
+        assertEquals(1, cache.getMemoryHits());
+    }
+
+    @Test
+    void optionsAffectingResultChangeKey() throws IOException {
+        ConversionCache cache = memoryCache(1 << 20);
+        String base = cache.key(XML, 0, XML.length, "a.xml", baseOptions().build());
+        cache.put(base, List.of(result("a")));
+        List<ConversionOptions> variants = List.of(
+                baseOptions().prettyPrinting(false).build(),
+                baseOptions().attachmentThreshold(1024).build(),
+                baseOptions().epic("Other").build(),
+                baseOptions().feature("Other").build(),
+                baseOptions().story("Other").build(),
+                baseOptions().owner("other").build(),
+                baseOptions().shardIndex(1).build(),
+                baseOptions().shardCount(4).build(),
+                baseOptions().includeTestCases("a.*").build(),
+                baseOptions().excludeTestCases("a.*").build());
+        Set<String> keys = new HashSet<>(List.of(base));
+
+        for (ConversionOptions variant : variants) {
+            String key = cache.key(XML, 0, XML.length, "a.xml", variant);
+            assertTrue(keys.add(key), "Key did not change for " + variant);
+            assertNull(cache.get(key));
+        }
+        assertNotEquals(base, cache.key(XML, 0, XML.length, "b.xml", baseOptions().build()));
+        assertNotEquals(base, cache.key(XML, 0, XML.length - 1, "a.xml", baseOptions().build()));
+        assertEquals(variants.size(), cache.getMisses());
+    }
+
+    @Test
+    void streamAndArrayKeysMatch() throws IOException {
+        ConversionCache cache = memoryCache(1 << 20);
+        ConversionOptions options = baseOptions().build();
+
+        assertEquals(cache.key(XML, 0, XML.length, "a.xml", options),
+                cache.key(new ByteArrayInputStream(XML), "a.xml", options));
+    }
+
+    /**
+     * При превышении размера в памяти вытесняется запись, к которой дольше всего не обращались.
+     */
+    @Test
+    void memoryEvictsLeastRecentlyUsedEntry() throws IOException {
+        // оценка одной записи - 230 байт, в 500 байт помещаются две
+        ConversionCache cache = memoryCache(500);
+        cache.put("first", List.of(result("1")));
+        cache.put("second", List.of(result("2")));
+        assertNotNull(cache.get("first"));
+
+        cache.put("third", List.of(result("3")));
+
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("first"));
+        assertNotNull(cache.get("third"));
+        assertTrue(cache.getMemoryBytes() <= 500);
+    }
+
+    @Test
+    void diskEvictsLeastRecentlyUsedEntry() throws IOException {
+        // в памяти записи не держатся, файл одной записи - 117 байт, в 250 байт помещаются два
+        ConversionCache cache = new ConversionCache(true, 0, directory.toString(), 250);
+        cache.put("first", List.of(result("1")));
+        cache.put("second", List.of(result("2")));
+        assertNotNull(cache.get("first"));
+
+        cache.put("third", List.of(result("3")));
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(List.of("first.bin", "third.bin"), diskFiles());
+        assertNull(cache.get("second"));
+        assertArrayEquals(result("1").json(), cache.get("first").get(0).json());
+    }
+
+    @Test
+    void diskEntriesSurviveRestart() throws IOException {
+        new ConversionCache(true, 1 << 20, directory.toString(), 1 << 20).put("key", List.of(result("a")));
+
+        ConversionCache restarted = new ConversionCache(true, 1 << 20, directory.toString(), 1 << 20);
+
+        List<SerializedTestCase> cached = restarted.get("key");
+        assertEquals(1, restarted.getDiskHits());
+        assertEquals("a", cached.get(0).name());
+        assertArrayEquals(result("a").json(), cached.get(0).json());
+    }
+
+    /**
+     * Поврежденный файл дискового уровня считается промахом и удаляется, после чего запись можно сохранить заново.
+     */
+    @Test
+    void corruptDiskEntryIsDroppedAsMiss() throws IOException {
+        new ConversionCache(true, 1 << 20, directory.toString(), 1 << 20).put("key", List.of(result("a")));
+        for (byte[] corrupt : List.of(new byte[] {0, 0, 0, 1, -1, -1, -1, -1}, new byte[] {-1, -1, -1, -1}, new byte[] {0, 0, 0, 1, 0})) {
+            Files.write(directory.resolve("key.bin"), corrupt);
+            ConversionCache restarted = new ConversionCache(true, 1 << 20, directory.toString(), 1 << 20);
+
+            assertNull(restarted.get("key"));
+            assertEquals(1, restarted.getMisses());
+            assertEquals(List.of(), diskFiles());
+
+            restarted.put("key", List.of(result("a")));
+            assertEquals("a", new ConversionCache(true, 1 << 20, directory.toString(), 1 << 20).get("key").get(0).name());
+        }
+    }
+
+    private static ConversionCache memoryCache(long maxMemoryBytes) throws IOException {
+        return new ConversionCache(true, maxMemoryBytes, "", 0);
+    }
+
+    private static ConversionOptions.ConversionOptionsBuilder baseOptions() {
+        return ConversionOptions.builder()
+                .epic("JAICP")
+                .feature("Dialogs")
+                .story("a")
+                .owner("u_login")
+                .prettyPrinting(true)
+                .shardCount(1);
+    }
+
+    private static SerializedTestCase result(String name) {
+        return new SerializedTestCase(name, "x".repeat(100).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> diskFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
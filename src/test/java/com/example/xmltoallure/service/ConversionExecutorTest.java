@@ -0,0 +1,148 @@
+package com.example.xmltoallure.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Бюджет байтов пула конвертации: занят, пока задача выполняется, и не дольше.
+ */
+class ConversionExecutorTest {
+
+    private static final long BUDGET_BYTES = 1024;
+
+    private ConversionExecutor executor;
+    private ExecutorService requests;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ConversionExecutor(2, BUDGET_BYTES);
+        requests = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        requests.shutdownNow();
+        executor.destroy();
+    }
+
+    /**
+     * Медленный обработчик одного запроса не держит бюджет, нужный другому запросу.
+     */
+    @Test
+    void slowHandlerDoesNotHoldBudget() throws Exception {
+        CountDownLatch handling = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        Future<?> slow = requests.submit(() -> {
+            ConversionExecutor.OrderedBatch batch = executor.newBatch(result -> {
+                handling.countDown();
+                awaitUninterruptibly(unblock);
+            });
+            batch.submit(BUDGET_BYTES, () -> List.of(testCase("slow")));
+            batch.finish();
+            return null;
+        });
+        try {
+            assertTrue(handling.await(5, TimeUnit.SECONDS));
+
+            assertEquals(1, (int) convert("fast").get(5, TimeUnit.SECONDS));
+        } finally {
+            unblock.countDown();
+        }
+        slow.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Отмена пакета не возвращает бюджет задачи, которая еще выполняется: он освобождается, когда задача завершится.
+     */
+    @Test
+    void cancelledRunningTaskHoldsBudgetUntilItFinishes() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        ConversionExecutor.OrderedBatch batch = executor.newBatch(result -> { });
+        batch.submit(BUDGET_BYTES, () -> {
+            running.countDown();
+            // задача не реагирует на прерывание, как разбор XML внутри парсера
+            awaitUninterruptibly(unblock);
+            return List.of(testCase("cancelled"));
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        batch.cancel();
+        Future<Integer> next = convert("next");
+
+        assertThrows(TimeoutException.class, () -> next.get(200, TimeUnit.MILLISECONDS));
+        unblock.countDown();
+        assertEquals(1, (int) next.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Задача, отмененная до начала выполнения, сразу возвращает свой бюджет.
+     */
+    @Test
+    void cancelledQueuedTaskReleasesBudget() throws Exception {
+        ConversionExecutor single = new ConversionExecutor(1, 2 * BUDGET_BYTES);
+        try {
+            CountDownLatch unblock = new CountDownLatch(1);
+            ConversionExecutor.OrderedBatch blocker = single.newBatch(result -> { });
+            blocker.submit(1, () -> {
+                unblock.await();
+                return List.of();
+            });
+            ConversionExecutor.OrderedBatch queued = single.newBatch(result -> { });
+            queued.submit(BUDGET_BYTES, () -> List.of(testCase("queued")));
+
+            queued.cancel();
+            unblock.countDown();
+            blocker.finish();
+
+            ConversionExecutor.OrderedBatch next = single.newBatch(result -> { });
+            Future<?> submitted = requests.submit(() -> {
+                next.submit(2 * BUDGET_BYTES, List::of);
+                next.finish();
+                return null;
+            });
+            submitted.get(5, TimeUnit.SECONDS);
+        } finally {
+            single.destroy();
+        }
+    }
+
+    private Future<Integer> convert(String name) {
+        return requests.submit(() -> {
+            int[] handled = new int[1];
+            ConversionExecutor.OrderedBatch batch = executor.newBatch(result -> handled[0]++);
+            batch.submit(BUDGET_BYTES, () -> List.of(testCase(name)));
+            batch.finish();
+            return handled[0];
+        });
+    }
+
+    private static SerializedTestCase testCase(String name) {
+        return new SerializedTestCase(name, "{}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException ignored) {
+                // ждем дальше
+            }
+        }
+    }
+}
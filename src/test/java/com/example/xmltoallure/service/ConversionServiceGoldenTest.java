@@ -0,0 +1,86 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.parser.XmlParserPool;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Сравнение результата потоковой конвертации с эталонными файлами golden/*.json.
+ * Эталоны получены реализацией на DOM (parseTestCase, parseGenericStep, collectExpectedResults).
+ */
+class ConversionServiceGoldenTest {
+
+    private final ConversionService conversionService = new ConversionService(new XmlParserPool(),
+            new ConversionMetrics(new SimpleMeterRegistry()), ConversionLimits.defaults());
+
+    @Test
+    void nestedMockDataMatchesDomOutput() throws Exception {
+        assertGolden("nested-mock-data");
+    }
+
+    @Test
+    void expectedResultsAreClosedByAnyOtherElement() throws Exception {
+        assertGolden("expected-results");
+    }
+
+    @Test
+    void leadingAndMultipleDateTimesMatchDomOutput() throws Exception {
+        assertGolden("date-time");
+    }
+
+    /**
+     * Как и в DOM-реализации (getElementsByTagName), вложенный test-case возвращается отдельным тест-кейсом
+     * после внешнего, а для внешнего остается обычным дочерним элементом, который закрывает текущий шаг.
+     */
+    @Test
+    void nestedTestCaseIsReturnedAfterOuterTestCase() throws Exception {
+        JsonArray results = assertGolden("nested-test-case");
+        List<String> names = new ArrayList<>();
+        for (JsonElement result : results) {
+            names.add(result.getAsJsonObject().get("name").getAsString());
+        }
+        assertEquals(List.of("outer", "inner", "innermost", "next"), names);
+    }
+
+    /**
+     * Пространства имен не обрабатываются, как в DOM-реализации: необъявленные префиксы не являются ошибкой,
+     * а имена элементов и атрибутов (в том числе параметров мока) читаются вместе с префиксом.
+     */
+    @Test
+    void undeclaredPrefixesMatchDomOutput() throws Exception {
+        assertGolden("undeclared-prefix");
+    }
+
+    private JsonArray assertGolden(String name) throws Exception {
+        TestCaseJsonWriter jsonWriter = new TestCaseJsonWriter(true);
+        JsonArray actual = new JsonArray();
+        try (InputStream xml = resource(name + ".xml")) {
+            conversionService.convert(xml, name + ".xml", "JAICP", null, null, "u_login",
+                    testCase -> actual.add(JsonParser.parseString(new String(jsonWriter.toBytes(testCase), StandardCharsets.UTF_8))));
+        }
+        JsonElement expected;
+        try (InputStream json = resource(name + ".json")) {
+            expected = JsonParser.parseString(new String(json.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(expected, actual, name);
+        return actual;
+    }
+
+    private InputStream resource(String name) throws IOException {
+        InputStream stream = getClass().getResourceAsStream("/golden/" + name);
+        assertNotNull(stream, "Missing test resource golden/" + name);
+        return stream;
+    }
+}
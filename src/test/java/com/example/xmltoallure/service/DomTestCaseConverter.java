@@ -0,0 +1,259 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.Labels;
+import com.example.xmltoallure.model.Parameter;
+import com.example.xmltoallure.model.TestCase;
+import com.example.xmltoallure.model.TestStep;
+import org.apache.commons.text.StringEscapeUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Эталонная реализация конвертации на DOM - алгоритм ConversionService до перехода на StAX и TestCaseBuilder.
+ * Используется в тестах для сравнения результатов; сама не оптимизируется и не изменяется.
+ */
+final class DomTestCaseConverter {
+
+    private DomTestCaseConverter() {
+    }
+
+    /**
+     * Конвертирует содержимое XML в список объектов TestCase.
+     * Вложенный test-case возвращается и как отдельный тест-кейс (getElementsByTagName находит все вложенные).
+     * @param xmlContent Содержимое XML файла.
+     * @param fileName Имя файла.
+     * @param epic Epic для Allure отчета.
+     * @param feature Feature для Allure отчета.
+     * @param story Story для Allure отчета.
+     * @param owner Владелец тест-кейса.
+     * @return Список объектов TestCase.
+     * @throws Exception Если произошла ошибка при парсинге XML.
+     */
+    static List<TestCase> convert(String xmlContent, String fileName, String epic, String feature, String story, String owner) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(xmlContent)));
+        doc.getDocumentElement().normalize();
+
+        List<TestCase> testCases = new ArrayList<>();
+        NodeList testCaseNodes = doc.getElementsByTagName("test-case");
+        for (int i = 0; i < testCaseNodes.getLength(); i++) {
+            Node testCaseNode = testCaseNodes.item(i);
+            if (testCaseNode.getNodeType() == Node.ELEMENT_NODE) {
+                testCases.add(parseTestCase((Element) testCaseNode, fileName, epic, feature, story, owner));
+            }
+        }
+        return testCases;
+    }
+
+    private static TestCase parseTestCase(Element testCaseElement, String fileName, String epic, String feature, String story, String owner) {
+        String testCaseName = testCaseElement.getAttribute("id");
+
+        // Первый проход: число dateTime и их положение относительно первого шага
+        int dateTimeCount = 0;
+        int firstDateTimeIndex = -1;
+        int firstRequestIndex = -1;
+        NodeList allNodes = testCaseElement.getChildNodes();
+        for (int i = 0; i < allNodes.getLength(); i++) {
+            Node node = allNodes.item(i);
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                String tagName = ((Element) node).getTagName();
+                if ("dateTime".equals(tagName)) {
+                    dateTimeCount++;
+                    if (firstDateTimeIndex == -1) {
+                        firstDateTimeIndex = i;
+                    }
+                }
+                if (firstRequestIndex == -1 && ("request".equals(tagName) || "q".equals(tagName) || "event".equals(tagName))) {
+                    firstRequestIndex = i;
+                }
+            }
+        }
+
+        boolean singleDateTimeAtStart = dateTimeCount == 1 && (firstRequestIndex == -1 || firstDateTimeIndex < firstRequestIndex);
+        String description = "";
+        if (singleDateTimeAtStart) {
+            description = "Установить дату и время\n" + allNodes.item(firstDateTimeIndex).getTextContent().trim();
+        }
+
+        // Второй проход: шаги
+        List<TestStep> regularSteps = new ArrayList<>();
+        List<TestStep> mockSubSteps = new ArrayList<>();
+        String pendingDateTime = null;
+        String pendingRequestData = null;
+
+        for (int i = 0; i < allNodes.getLength(); i++) {
+            Node node = allNodes.item(i);
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            Element element = (Element) node;
+            String tagName = element.getTagName();
+            if ("dateTime".equals(tagName)) {
+                if (!singleDateTimeAtStart) {
+                    pendingDateTime = element.getTextContent().trim();
+                }
+            } else if ("requestData".equals(tagName)) {
+                pendingRequestData = element.getTextContent().trim();
+            } else if ("mockData".equals(tagName)) {
+                mockSubSteps.add(parseSingleMockSubStep(element));
+            } else if ("request".equals(tagName)) {
+                i = parseGenericStep(regularSteps, allNodes, i, pendingDateTime, null, body -> "Отправить запрос:", true);
+                pendingDateTime = null;
+                pendingRequestData = null;
+            } else if ("q".equals(tagName)) {
+                i = parseGenericStep(regularSteps, allNodes, i, pendingDateTime, pendingRequestData, body -> "Отправить текст в бота:\n" + body, false);
+                pendingDateTime = null;
+                pendingRequestData = null;
+            } else if ("event".equals(tagName)) {
+                i = parseGenericStep(regularSteps, allNodes, i, pendingDateTime, pendingRequestData, body -> "Вызвать ивент:\n" + body, false);
+                pendingDateTime = null;
+                pendingRequestData = null;
+            }
+        }
+
+        List<TestStep> finalSteps = new ArrayList<>();
+        if (!mockSubSteps.isEmpty()) {
+            finalSteps.add(TestStep.builder().name("Создать моки").status("passed").steps(mockSubSteps).build());
+        }
+        finalSteps.addAll(regularSteps);
+
+        return TestCase.builder()
+                .name(testCaseName)
+                .fullName(testCaseName)
+                .description(description)
+                .status("passed")
+                .labels(createLabels(fileName, epic, feature, story, owner))
+                .steps(finalSteps)
+                .build();
+    }
+
+    private static List<Labels> createLabels(String fileName, String epic, String feature, String story, String owner) {
+        List<Labels> labels = new ArrayList<>();
+        if (epic != null && !epic.isEmpty()) {
+            labels.add(Labels.builder().name("epic").value(epic).build());
+        }
+        if (feature != null && !feature.isEmpty()) {
+            labels.add(Labels.builder().name("feature").value(feature).build());
+        }
+        if (story != null && !story.isEmpty()) {
+            labels.add(Labels.builder().name("story").value(story).build());
+        } else if (fileName != null && !fileName.isEmpty()) {
+            labels.add(Labels.builder().name("story").value(fileName.replaceFirst("[.][^.]+$", "")).build());
+        }
+        if (owner != null && !owner.isEmpty()) {
+            labels.add(Labels.builder().name("owner").value(owner).build());
+        }
+        return labels;
+    }
+
+    private static TestStep parseSingleMockSubStep(Element mockDataElement) {
+        Element queryElement = (Element) mockDataElement.getElementsByTagName("query").item(0);
+        Element responseElement = (Element) mockDataElement.getElementsByTagName("response").item(0);
+        Element paramsElement = (Element) mockDataElement.getElementsByTagName("parameters").item(0);
+
+        String finalUrl = replaceParameters(queryElement.getTextContent().trim(), paramsElement);
+
+        List<Parameter> parameters = new ArrayList<>();
+        parameters.add(Parameter.builder().name("Method").value(queryElement.getAttribute("method").toUpperCase()).build());
+        parameters.add(Parameter.builder().name("URL").value(finalUrl).build());
+        parameters.add(Parameter.builder().name("Status").value(responseElement.getAttribute("status")).build());
+        parameters.add(Parameter.builder().name("Body").value(StringEscapeUtils.escapeJson(responseElement.getTextContent().trim())).build());
+
+        return TestStep.builder().name(getMethodNameFromUrl(finalUrl)).status("passed").parameters(parameters).build();
+    }
+
+    private static int parseGenericStep(List<TestStep> mainSteps, NodeList nodes, int currentIndex, String pendingDateTime,
+                                        String pendingRequestData, Function<String, String> stepNameFormatter, boolean isRequest) {
+        String body = nodes.item(currentIndex).getTextContent().trim();
+
+        List<TestStep> subSteps = new ArrayList<>();
+        List<Parameter> mainParameters = new ArrayList<>();
+        if (pendingDateTime != null) {
+            subSteps.add(TestStep.builder().name("Перед шагом установить дату и время\n" + pendingDateTime).status("passed").build());
+            mainParameters.add(Parameter.builder().name("DateTime").value(pendingDateTime).build());
+        }
+        if (pendingRequestData != null) {
+            subSteps.add(TestStep.builder().name("Установить значение\n" + pendingRequestData).status("passed").build());
+            mainParameters.add(Parameter.builder().name("RequestData").value(pendingRequestData).build());
+        }
+        if (isRequest) {
+            mainParameters.add(Parameter.builder().name("Body").value(body).build());
+            TestStep bodySubStep = TestStep.builder().name(body).status("passed").build();
+            subSteps.add(TestStep.builder().name("Тело запроса:").status("passed").steps(List.of(bodySubStep)).build());
+        }
+
+        List<TestStep> expectedResultSteps = new ArrayList<>();
+        int nextIndex = collectExpectedResults(nodes, currentIndex + 1, expectedResultSteps);
+        if (!expectedResultSteps.isEmpty()) {
+            subSteps.add(TestStep.builder().name("Expected Result").steps(expectedResultSteps).build());
+        }
+
+        mainSteps.add(TestStep.builder()
+                .name(stepNameFormatter.apply(body))
+                .status("passed")
+                .steps(subSteps)
+                .parameters(mainParameters)
+                .build());
+        return nextIndex - 1;
+    }
+
+    private static int collectExpectedResults(NodeList nodes, int startIndex, List<TestStep> expectedResultSteps) {
+        for (int i = startIndex; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            Element element = (Element) node;
+            if ("a".equals(element.getTagName())) {
+                String state = element.getAttribute("state");
+                expectedResultSteps.add(TestStep.builder().name("state = '" + state + "' " + element.getTextContent().trim()).build());
+            } else if ("responseData".equals(element.getTagName())) {
+                String field = element.getAttribute("field");
+                String text = element.getTextContent().trim();
+                String stepName;
+                if ("replies".equals(field)) {
+                    stepName = "Ожидаемое тело:\n" + text;
+                } else if (text.isEmpty()) {
+                    stepName = "Ключ " + field + " не равен NULL/существует в ответе";
+                } else {
+                    stepName = "Элемент тела\n" + field + "\nимеет значение\n" + text;
+                }
+                expectedResultSteps.add(TestStep.builder().name(stepName).build());
+            } else {
+                return i;
+            }
+        }
+        return nodes.getLength();
+    }
+
+    private static String replaceParameters(String urlTemplate, Element paramsElement) {
+        if (paramsElement == null) {
+            return urlTemplate;
+        }
+        String result = urlTemplate;
+        NodeList paramNodes = paramsElement.getChildNodes();
+        for (int i = 0; i < paramNodes.getLength(); i++) {
+            Node node = paramNodes.item(i);
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                Element param = (Element) node;
+                result = result.replace("${" + param.getTagName() + "}", param.getTextContent().trim());
+            }
+        }
+        return result;
+    }
+
+    private static String getMethodNameFromUrl(String url) {
+        Matcher matcher = Pattern.compile(".*/(.*?)(?:\\?.*)?$").matcher(url);
+        return matcher.find() ? matcher.group(1) : "unknown_method";
+    }
+}
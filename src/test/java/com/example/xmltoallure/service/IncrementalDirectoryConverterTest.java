@@ -0,0 +1,125 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.ConversionOptions;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.example.xmltoallure.service.BatchConversionFixture.testCases;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Инкрементальная конвертация каталога: результаты относятся к тем исходным файлам, из которых получены.
+ */
+class IncrementalDirectoryConverterTest {
+
+    @TempDir
+    Path directory;
+
+    private BatchConversionFixture fixture;
+    private IncrementalDirectoryConverter converter;
+    private Path output;
+    private Path manifest;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fixture = BatchConversionFixture.create();
+        output = directory.resolve("out");
+        manifest = output.resolve(IncrementalDirectoryConverter.DEFAULT_MANIFEST_NAME);
+        converter = new IncrementalDirectoryConverter(fixture.service(), output, manifest, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    /**
+     * Файл, исключенный фильтром имен, между двумя измененными файлами не сдвигает привязку результатов:
+     * при повторном запуске результаты измененного последнего файла удаляются, а не остаются в каталоге.
+     */
+    @Test
+    void excludedFileBetweenChangedFilesDoesNotShiftResults() throws Exception {
+        Path first = source("first.xml", "a");
+        Path excluded = source("excluded.xml", "x");
+        Path last = source("last.xml", "c");
+        ConversionOptions options = ConversionOptions.builder().excludeFiles("excluded\\.xml").build();
+
+        converter.convert(List.of(first, excluded, last), options);
+
+        assertEquals(Map.of("first.xml", 1, "excluded.xml", 0, "last.xml", 1), manifestResults());
+        assertEquals(2, resultFiles().size());
+
+        Files.writeString(last, testCases("changed"));
+        IncrementalDirectoryConverter.Summary summary = converter.convert(List.of(first, excluded, last), options);
+
+        assertEquals(1, summary.converted());
+        assertEquals(Map.of("first.xml", 1, "excluded.xml", 0, "last.xml", 1), manifestResults());
+        List<String> results = resultFiles();
+        assertEquals(2, results.size());
+        assertEquals(1, results.stream().filter(name -> name.startsWith("changed")).count());
+    }
+
+    /**
+     * Файл с новым временем изменения, но прежним содержимым, не конвертируется повторно, а его результаты
+     * и вложения, на которые они ссылаются, остаются в каталоге.
+     */
+    @Test
+    void touchedFileKeepsItsAttachments() throws Exception {
+        Path file = Files.writeString(directory.resolve("large.xml"),
+                "<test><test-case id=\"a\"><request>" + "{\"k\": 1}".repeat(100) + "</request></test-case></test>");
+        ConversionOptions options = ConversionOptions.builder().attachmentThreshold(64).build();
+
+        converter.convert(List.of(file), options);
+        List<String> attachments = outputFiles("-attachment.json");
+        assertEquals(1, attachments.size());
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 60_000));
+        IncrementalDirectoryConverter.Summary summary = converter.convert(List.of(file), options);
+
+        assertEquals(0, summary.converted());
+        assertEquals(attachments, outputFiles("-attachment.json"));
+        assertEquals(1, outputFiles("-result.json").size());
+    }
+
+    private Map<String, Integer> manifestResults() throws IOException {
+        Map<String, Integer> results = new HashMap<>();
+        for (JsonElement element : JsonParser.parseString(Files.readString(manifest)).getAsJsonObject().getAsJsonArray("files")) {
+            JsonObject entry = element.getAsJsonObject();
+            results.put(Path.of(entry.get("path").getAsString()).getFileName().toString(),
+                    entry.has("results") ? entry.getAsJsonArray("results").size() : 0);
+        }
+        return results;
+    }
+
+    private List<String> resultFiles() throws IOException {
+        return outputFiles("-result.json");
+    }
+
+    private List<String> outputFiles(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(output)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(suffix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path source(String fileName, String testCaseId) throws IOException {
+        return Files.writeString(directory.resolve(fileName), testCases(testCaseId));
+    }
+}
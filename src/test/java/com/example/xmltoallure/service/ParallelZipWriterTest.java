@@ -0,0 +1,130 @@
+package com.example.xmltoallure.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Архив ParallelZipWriter читается стандартными средствами: java.util.zip.ZipFile (центральный каталог)
+ * и ZipInputStream (локальные заголовки).
+ */
+class ParallelZipWriterTest {
+
+    private static final int PARALLELISM = 4;
+
+    @TempDir
+    Path directory;
+
+    private ExecutorService executor;
+    private ConversionMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(PARALLELISM);
+        metrics = new ConversionMetrics(new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void archiveIsReadableByZipFileAndZipInputStream() throws IOException {
+        byte[] attachment = "{\"body\": true}".getBytes(StandardCharsets.UTF_8);
+        byte[] large = "{\"k\": \"Привет\"}".repeat(100_000).getBytes(StandardCharsets.UTF_8);
+        Path zip = directory.resolve("results.zip");
+        for (int level : List.of(-1, 0, 9)) {
+            try (ParallelZipWriter writer = open(zip, level)) {
+                writer.handle(new SerializedTestCase("first case", json("a"), List.of(new AttachmentFile("shared-attachment.json", attachment))));
+                writer.handle(new SerializedTestCase("first case", large, List.of(new AttachmentFile("shared-attachment.json", attachment))));
+                writer.flush();
+                writer.writeFile("conversion-report.json", json("report"));
+            }
+
+            List<String> names = List.of("shared-attachment.json", "first_case-result.json", "first_case-1-result.json",
+                    "conversion-report.json");
+            try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+                assertEquals(names, Collections.list(zipFile.entries()).stream().map(ZipEntry::getName).toList());
+                assertArrayEquals(attachment, read(zipFile, "shared-attachment.json"));
+                assertArrayEquals(json("a"), read(zipFile, "first_case-result.json"));
+                assertArrayEquals(large, read(zipFile, "first_case-1-result.json"));
+                assertArrayEquals(json("report"), read(zipFile, "conversion-report.json"));
+            }
+            List<String> streamed = new ArrayList<>();
+            try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zip))) {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                    streamed.add(entry.getName());
+                    zis.readAllBytes();
+                }
+            }
+            assertEquals(names, streamed);
+        }
+    }
+
+    /**
+     * Больше 65535 записей не помещаются в счетчики обычной записи конца каталога, и архив пишется в формате ZIP64.
+     */
+    @Test
+    void moreThan65535EntriesUseZip64() throws IOException {
+        int entries = 70_000;
+        Path zip = directory.resolve("many.zip");
+        try (ParallelZipWriter writer = open(zip, -1)) {
+            for (int i = 0; i < entries; i++) {
+                writer.writeFile("entry-" + i + ".json", json(Integer.toString(i)));
+            }
+        }
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals(entries, zipFile.size());
+            for (int i : List.of(0, 65_534, 65_535, 65_536, entries - 1)) {
+                assertArrayEquals(json(Integer.toString(i)), read(zipFile, "entry-" + i + ".json"));
+            }
+        }
+        int streamed = 0;
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zip))) {
+            while (zis.getNextEntry() != null) {
+                streamed++;
+            }
+        }
+        assertEquals(entries, streamed);
+    }
+
+    private ParallelZipWriter open(Path zip, int level) throws IOException {
+        return new ParallelZipWriter(new BufferedOutputStream(Files.newOutputStream(zip)), level, executor, PARALLELISM, metrics);
+    }
+
+    private static byte[] read(ZipFile zipFile, String name) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+        assertNotNull(entry, name);
+        try (InputStream is = zipFile.getInputStream(entry)) {
+            return is.readAllBytes();
+        }
+    }
+
+    private static byte[] json(String value) {
+        return ("{\"value\": \"" + value + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.xmltoallure.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Хранилище результатов: перенос на диск после порога, воспроизведение в исходном порядке и удаление временного файла.
+ */
+class SpillingResultStoreTest {
+
+    private static final long THRESHOLD_BYTES = 100;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resultsBelowThresholdStayInMemory() throws IOException {
+        List<SerializedTestCase> results = List.of(result("a", 40), result("b", 40));
+        try (SpillingResultStore store = new SpillingResultStore(directory.resolve("spill"), THRESHOLD_BYTES)) {
+            for (SerializedTestCase result : results) {
+                store.handle(result);
+            }
+
+            assertFalse(store.isSpilled());
+            assertFalse(Files.exists(directory.resolve("spill")));
+            assertReplays(results, store);
+        }
+    }
+
+    @Test
+    void resultsPastThresholdSpillToDiskAndAreDeletedOnClose() throws IOException {
+        Path spillDirectory = directory.resolve("spill");
+        List<SerializedTestCase> results = new ArrayList<>();
+        results.add(result("a", 60));
+        results.add(new SerializedTestCase("b", json(60), List.of(new AttachmentFile("b-attachment.json", json(10)))));
+        results.add(result("c", 10));
+        results.add(result("d", 0));
+        SpillingResultStore store = new SpillingResultStore(spillDirectory, THRESHOLD_BYTES);
+        try {
+            store.handle(results.get(0));
+            assertFalse(store.isSpilled());
+            for (SerializedTestCase result : results.subList(1, results.size())) {
+                store.handle(result);
+            }
+
+            assertTrue(store.isSpilled());
+            assertEquals(results.size(), store.size());
+            assertEquals(1, files(spillDirectory).size());
+            assertReplays(results, store);
+            // повторное воспроизведение читает файл заново
+            assertReplays(results, store);
+        } finally {
+            store.close();
+        }
+
+        assertEquals(List.of(), files(spillDirectory));
+    }
+
+    private static void assertReplays(List<SerializedTestCase> expected, ResultStore store) throws IOException {
+        List<SerializedTestCase> replayed = new ArrayList<>();
+        store.replay(replayed::add);
+        assertEquals(expected.size(), replayed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).name(), replayed.get(i).name());
+            assertArrayEquals(expected.get(i).json(), replayed.get(i).json());
+            assertEquals(expected.get(i).attachments().size(), replayed.get(i).attachments().size());
+            for (int j = 0; j < expected.get(i).attachments().size(); j++) {
+                assertEquals(expected.get(i).attachments().get(j).source(), replayed.get(i).attachments().get(j).source());
+                assertArrayEquals(expected.get(i).attachments().get(j).content(), replayed.get(i).attachments().get(j).content());
+            }
+        }
+    }
+
+    private static List<String> files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).collect(Collectors.toList());
+        }
+    }
+
+    private static SerializedTestCase result(String name, int size) {
+        return new SerializedTestCase(name, json(size));
+    }
+
+    private static byte[] json(int size) {
+        return "x".repeat(size).getBytes(StandardCharsets.UTF_8);
+    }
+}
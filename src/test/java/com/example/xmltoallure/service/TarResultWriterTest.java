@@ -0,0 +1,140 @@
+package com.example.xmltoallure.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Архив TarResultWriter разбирается по формату USTAR/PAX: имена, содержимое, контрольные суммы и выравнивание.
+ */
+class TarResultWriterTest {
+
+    private static final int BLOCK_SIZE = 512;
+
+    @Test
+    void filesRoundTrip() throws IOException {
+        byte[] attachment = "{\"body\": true}".getBytes(StandardCharsets.UTF_8);
+        byte[] block = new byte[BLOCK_SIZE];
+        Arrays.fill(block, (byte) 'x');
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        try (TarResultWriter writer = new TarResultWriter(tar, new ConversionMetrics(new SimpleMeterRegistry()))) {
+            writer.handle(new SerializedTestCase("case", json("a"), List.of(new AttachmentFile("attachment.json", attachment))));
+            writer.handle(new SerializedTestCase("case", block, List.of(new AttachmentFile("attachment.json", attachment))));
+            writer.handle(new SerializedTestCase("empty", new byte[0]));
+            writer.writeFile("conversion-report.json", json("report"));
+        }
+
+        Map<String, byte[]> files = read(tar.toByteArray());
+
+        assertEquals(List.of("attachment.json", "case-result.json", "case-1-result.json", "empty-result.json",
+                "conversion-report.json"), List.copyOf(files.keySet()));
+        assertArrayEquals(attachment, files.get("attachment.json"));
+        assertArrayEquals(json("a"), files.get("case-result.json"));
+        assertArrayEquals(block, files.get("case-1-result.json"));
+        assertArrayEquals(new byte[0], files.get("empty-result.json"));
+        assertArrayEquals(json("report"), files.get("conversion-report.json"));
+    }
+
+    /**
+     * Имя длиннее 100 байт (в том числе из многобайтовых символов) передается PAX-записью path.
+     */
+    @Test
+    void longNameRoundTripsThroughPaxHeader() throws IOException {
+        List<String> names = List.of("a".repeat(101) + ".json", "тест-".repeat(40) + "result.json", "b".repeat(100));
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        try (TarResultWriter writer = new TarResultWriter(tar, new ConversionMetrics(new SimpleMeterRegistry()))) {
+            for (String name : names) {
+                writer.writeFile(name, json(name));
+            }
+        }
+
+        Map<String, byte[]> files = read(tar.toByteArray());
+
+        assertEquals(names, List.copyOf(files.keySet()));
+        for (String name : names) {
+            assertArrayEquals(json(name), files.get(name));
+        }
+    }
+
+    /**
+     * Разбирает tar-архив: проверяет контрольные суммы заголовков, PAX-записи и окончание архива.
+     */
+    private static Map<String, byte[]> read(byte[] tar) {
+        assertEquals(0, tar.length % (20 * BLOCK_SIZE));
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        String paxPath = null;
+        int offset = 0;
+        while (!isZeroBlock(tar, offset)) {
+            byte[] header = Arrays.copyOfRange(tar, offset, offset + BLOCK_SIZE);
+            assertEquals("ustar\0", new String(header, 257, 6, StandardCharsets.US_ASCII));
+            assertEquals(checksum(header), octal(header, 148, 8));
+            int size = (int) octal(header, 124, 12);
+            byte[] data = Arrays.copyOfRange(tar, offset + BLOCK_SIZE, offset + BLOCK_SIZE + size);
+            offset += BLOCK_SIZE + (size + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+            if (header[156] == 'x') {
+                paxPath = paxPath(data);
+                continue;
+            }
+            assertEquals((byte) '0', header[156]);
+            String name = paxPath != null ? paxPath : nameField(header);
+            paxPath = null;
+            files.put(name, data);
+        }
+        assertTrue(isZeroBlock(tar, offset + BLOCK_SIZE));
+        return files;
+    }
+
+    private static String paxPath(byte[] data) {
+        String record = new String(data, StandardCharsets.UTF_8);
+        int space = record.indexOf(' ');
+        assertEquals(Integer.parseInt(record.substring(0, space)), data.length);
+        assertTrue(record.startsWith("path=", space + 1));
+        assertTrue(record.endsWith("\n"));
+        return record.substring(space + 1 + "path=".length(), record.length() - 1);
+    }
+
+    private static String nameField(byte[] header) {
+        int length = 0;
+        while (length < 100 && header[length] != 0) {
+            length++;
+        }
+        return new String(header, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(byte[] header) {
+        long checksum = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            checksum += i >= 148 && i < 156 ? ' ' : header[i] & 0xff;
+        }
+        return checksum;
+    }
+
+    private static long octal(byte[] header, int offset, int length) {
+        String value = new String(header, offset, length, StandardCharsets.US_ASCII).replace("\0", "").trim();
+        return Long.parseLong(value, 8);
+    }
+
+    private static boolean isZeroBlock(byte[] tar, int offset) {
+        for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+            if (tar[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] json(String value) {
+        return ("{\"value\": \"" + value + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
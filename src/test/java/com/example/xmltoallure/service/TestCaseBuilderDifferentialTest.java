@@ -0,0 +1,134 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.model.Labels;
+import com.example.xmltoallure.model.ModelInterner;
+import com.example.xmltoallure.model.TestCase;
+import com.example.xmltoallure.parser.TestCaseXmlReader;
+import com.example.xmltoallure.parser.XmlElement;
+import com.example.xmltoallure.parser.XmlParserPool;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Дифференциальный тест однопроходного TestCaseBuilder: случайно сгенерированные тест-кейсы конвертируются
+ * эталонной реализацией на DOM и потоковым чтением с TestCaseBuilder, результаты JSON должны совпадать байт в байт.
+ * Генератор смешивает все элементы test-case, поэтому покрывает правило единственного dateTime в начале,
+ * отложенные requestData и dateTime и закрытие шага любым элементом, кроме a и responseData.
+ */
+class TestCaseBuilderDifferentialTest {
+
+    private static final int FILES = 200;
+    private static final int TEST_CASES_PER_FILE = 40;
+    private static final String[] TAGS = {"dateTime", "requestData", "q", "event", "request", "a", "responseData", "mockData", "other"};
+    private static final int[] WEIGHTS = {3, 2, 3, 2, 2, 4, 3, 1, 1};
+
+    private final XmlParserPool parserPool = new XmlParserPool();
+    private final TestCaseJsonWriter jsonWriter = new TestCaseJsonWriter(true);
+
+    @Test
+    void builderMatchesDomImplementationOnRandomTestCases() throws Exception {
+        int compared = 0;
+        for (int file = 0; file < FILES; file++) {
+            String xml = generate(new Random(file));
+            List<TestCase> expected = DomTestCaseConverter.convert(xml, "random.xml", "JAICP", "feature", null, "u_login");
+            List<TestCase> actual = convertWithBuilder(xml);
+            assertEquals(expected.size(), actual.size(), "Test cases in file with seed " + file);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(json(expected.get(i)), json(actual.get(i)),
+                        "Test case " + expected.get(i).getName() + " in file with seed " + file);
+                compared++;
+            }
+        }
+        assertEquals(FILES * TEST_CASES_PER_FILE, compared);
+    }
+
+    /**
+     * Конвертирует XML так же, как ConversionService: потоковое чтение и общий для файла интернер.
+     */
+    private List<TestCase> convertWithBuilder(String xml) throws Exception {
+        List<Labels> labels = List.of(
+                Labels.builder().name("epic").value("JAICP").build(),
+                Labels.builder().name("feature").value("feature").build(),
+                Labels.builder().name("story").value("random").build(),
+                Labels.builder().name("owner").value("u_login").build());
+        ModelInterner interner = new ModelInterner();
+        List<TestCase> testCases = new ArrayList<>();
+        new TestCaseXmlReader().read(parserPool.createReader(new StringReader(xml)), new TestCaseXmlReader.TestCaseListener() {
+            private TestCaseBuilder builder;
+
+            @Override
+            public boolean onStart(String testCaseId) {
+                builder = new TestCaseBuilder(testCaseId, labels, interner);
+                return true;
+            }
+
+            @Override
+            public void onChild(XmlElement child) {
+                builder.accept(child);
+            }
+
+            @Override
+            public void onEnd() {
+                testCases.add(builder.build());
+            }
+        });
+        return testCases;
+    }
+
+    private String json(TestCase testCase) throws Exception {
+        return new String(jsonWriter.toBytes(testCase), StandardCharsets.UTF_8);
+    }
+
+    private static String generate(Random random) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<test>\n");
+        for (int t = 0; t < TEST_CASES_PER_FILE; t++) {
+            xml.append("<test-case id=\"tc").append(t).append("\">\n");
+            int children = random.nextInt(13);
+            for (int i = 0; i < children; i++) {
+                String tag = pick(random);
+                switch (tag) {
+                    case "mockData":
+                        xml.append("<mockData><query method=\"get\">http://x/${a}/${b}/m").append(i).append("?p=1</query>")
+                                .append(random.nextBoolean() ? "<parameters><a>v" + i + "</a><b> $" + "{a} </b></parameters>" : "")
+                                .append("<response status=\"200\">{\"k\":").append(i).append(", \"s\":\"Ответ\"}</response></mockData>\n");
+                        break;
+                    case "a":
+                        xml.append("<a state=\"/s").append(random.nextInt(3)).append("\">ans ").append(i).append("</a>\n");
+                        break;
+                    case "responseData":
+                        xml.append("<responseData field=\"").append(random.nextBoolean() ? "replies" : "f" + random.nextInt(2)).append("\">")
+                                .append(random.nextBoolean() ? "" : "val").append("</responseData>\n");
+                        break;
+                    default:
+                        // Повторяющийся текст проверяет общие экземпляры ModelInterner
+                        xml.append('<').append(tag).append("> text ").append(random.nextInt(4)).append(" </").append(tag).append(">\n");
+                        break;
+                }
+            }
+            xml.append("</test-case>\n");
+        }
+        return xml.append("</test>\n").toString();
+    }
+
+    private static String pick(Random random) {
+        int total = 0;
+        for (int weight : WEIGHTS) {
+            total += weight;
+        }
+        int value = random.nextInt(total);
+        for (int i = 0; i < TAGS.length; i++) {
+            value -= WEIGHTS[i];
+            if (value < 0) {
+                return TAGS[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+}
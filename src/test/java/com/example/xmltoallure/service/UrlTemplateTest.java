@@ -0,0 +1,137 @@
+package com.example.xmltoallure.service;
+
+import com.example.xmltoallure.parser.TestCaseXmlReader;
+import com.example.xmltoallure.parser.XmlElement;
+import com.example.xmltoallure.parser.XmlParserPool;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Проверяет, что разобранный шаблон и быстрое извлечение имени метода дают тот же результат,
+ * что и последовательные String.replace и регулярное выражение прежней реализации.
+ */
+class UrlTemplateTest {
+
+    private static final Pattern METHOD_NAME_PATTERN = Pattern.compile(".*/(.*?)(?:\\?.*)?$");
+
+    @Test
+    void valueWithPlaceholderFallsBackToSequentialReplace() throws Exception {
+        XmlElement params = parameters("a", "${b}", "b", "v");
+        // Последовательная замена подставляет b и в значение, подставленное вместо a
+        assertEquals("http://x/v/v", UrlTemplate.compile("http://x/${a}/${b}").expand(params));
+        assertEquals(sequential("http://x/${b}/${a}", params), UrlTemplate.compile("http://x/${b}/${a}").expand(params));
+    }
+
+    @Test
+    void literalDelimitersFallBackToSequentialReplace() throws Exception {
+        XmlElement params = parameters("a", "1", "b", "2");
+        for (String template : new String[]{"http://x/$${a}", "http://x/${${a}}", "http://x/{${a}}/${b}}", "http://x/${a"}) {
+            assertEquals(sequential(template, params), UrlTemplate.compile(template).expand(params), template);
+        }
+    }
+
+    @Test
+    void repeatedPlaceholdersAreAllReplaced() throws Exception {
+        assertEquals("http://x/1/1?q=1&r=${missing}",
+                UrlTemplate.compile("http://x/${a}/${a}?q=${a}&r=${missing}").expand(parameters("a", " 1 ")));
+        // Из повторяющихся параметров используется первый, как и при последовательной замене
+        XmlElement duplicates = parameters("a", "1", "a", "2");
+        assertEquals("http://x/1/1", UrlTemplate.compile("http://x/${a}/${a}").expand(duplicates));
+        assertEquals(sequential("http://x/${a}/${a}", duplicates), UrlTemplate.compile("http://x/${a}/${a}").expand(duplicates));
+    }
+
+    @Test
+    void expandMatchesSequentialReplaceOnRandomTemplates() throws Exception {
+        Random random = new Random(12);
+        String alphabet = "ab/${}";
+        for (int i = 0; i < 20_000; i++) {
+            String template = randomString(random, alphabet, 12);
+            XmlElement params = parameters("a", randomString(random, alphabet, 4), "b", randomString(random, alphabet, 4));
+            assertEquals(sequential(template, params), UrlTemplate.compile(template).expand(params), template);
+        }
+    }
+
+    @Test
+    void methodNameMatchesRegexIncludingLineTerminators() {
+        String[] urls = {
+                "http://x/api/getItems", "http://x/api/getItems?id=1", "http://x/a?b/c", "http://x/api/", "no-slash",
+                "http://x/get\nItems", "http://x/getItems\n", "http://x/getItems\r\n", "http://x/a\n/b?c",
+                "http://x/get\rItems", "http://x/get\u0085Items", "http://x/get Items", "http://x/get Items?q"
+        };
+        for (String url : urls) {
+            Matcher matcher = METHOD_NAME_PATTERN.matcher(url);
+            String expected = matcher.find() ? matcher.group(1) : "unknown_method";
+            assertEquals(expected, UrlTemplate.methodName(url), url);
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedTemplateIsEvicted() {
+        String prefix = "http://lru-test/" + System.nanoTime() + "/";
+        UrlTemplate kept = UrlTemplate.compile(prefix + "kept/${a}");
+        UrlTemplate evicted = UrlTemplate.compile(prefix + "evicted/${a}");
+        for (int i = 0; i < UrlTemplate.MAX_CACHED_TEMPLATES; i++) {
+            if (i == UrlTemplate.MAX_CACHED_TEMPLATES / 2) {
+                assertSame(kept, UrlTemplate.compile(prefix + "kept/${a}"));
+            }
+            UrlTemplate.compile(prefix + i + "/${a}");
+        }
+        assertSame(kept, UrlTemplate.compile(prefix + "kept/${a}"));
+        assertNotSame(evicted, UrlTemplate.compile(prefix + "evicted/${a}"));
+    }
+
+    private static String sequential(String template, XmlElement params) {
+        String result = template;
+        for (XmlElement param : params.getChildren()) {
+            result = result.replace("${" + param.getName() + "}", param.getText().trim());
+        }
+        return result;
+    }
+
+    private static String randomString(Random random, String alphabet, int maxLength) {
+        StringBuilder value = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+        for (int i = 0; i < length; i++) {
+            value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return value.toString();
+    }
+
+    /**
+     * Читает элемент parameters так же, как при конвертации mockData.
+     * @param namesAndValues Имена и значения параметров попарно.
+     */
+    private static XmlElement parameters(String... namesAndValues) throws Exception {
+        StringBuilder xml = new StringBuilder("<test><test-case><mockData><parameters>");
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            xml.append('<').append(namesAndValues[i]).append('>').append(namesAndValues[i + 1])
+                    .append("</").append(namesAndValues[i]).append('>');
+        }
+        xml.append("</parameters></mockData></test-case></test>");
+        XmlElement[] parameters = new XmlElement[1];
+        new TestCaseXmlReader().read(new XmlParserPool().createReader(new StringReader(xml.toString())), new TestCaseXmlReader.TestCaseListener() {
+            @Override
+            public boolean onStart(String testCaseId) {
+                return true;
+            }
+
+            @Override
+            public void onChild(XmlElement child) {
+                parameters[0] = child.getFirstDescendant("parameters");
+            }
+
+            @Override
+            public void onEnd() {
+            }
+        });
+        return parameters[0];
+    }
+}